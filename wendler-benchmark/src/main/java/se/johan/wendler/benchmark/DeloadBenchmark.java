@@ -0,0 +1,77 @@
+package se.johan.wendler.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.johan.wendler.core.CycleState;
+import se.johan.wendler.core.DeloadType;
+import se.johan.wendler.core.ProgramConfig;
+import se.johan.wendler.core.ProgramMath;
+import se.johan.wendler.core.ProgramTemplate;
+
+/**
+ * Deloading a failed exercise and undoing it again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DeloadBenchmark {
+
+    @Param({"INCREMENT", "PERCENTAGE"})
+    public DeloadType deloadType;
+
+    @Param({"true", "false"})
+    public boolean deloadFromTrainingMax;
+
+    @Param({"2", "4"})
+    public int week;
+
+    private ProgramConfig mConfig;
+
+    /**
+     * Build the config for the deload type.
+     */
+    @Setup
+    public void setUp() {
+        mConfig = new ProgramConfig(
+                2.5,
+                new int[]{40, 50, 60},
+                new int[]{5, 5, 3},
+                new int[]{5, 5, 5},
+                false,
+                false,
+                deloadFromTrainingMax,
+                deloadType,
+                10,
+                ProgramTemplate.get(ProgramTemplate.FIVE_THREE_ONE));
+    }
+
+    /**
+     * Deload an exercise, delayed unless it is the last week.
+     */
+    @Benchmark
+    public CycleState doDeload() {
+        CycleState state = new CycleState(week, 3, 142.5, 3);
+        ProgramMath.doDeload(mConfig, state, 90, 5);
+        return state;
+    }
+
+    /**
+     * Deload a weight and undo it.
+     */
+    @Benchmark
+    public double deloadAndReverse() {
+        double weight = ProgramMath.calculateDeloadWeight(mConfig, 142.5, 5);
+        return ProgramMath.calculateReverseDeloadWeight(mConfig, weight, 5);
+    }
+}
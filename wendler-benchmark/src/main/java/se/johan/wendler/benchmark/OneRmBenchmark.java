@@ -0,0 +1,54 @@
+package se.johan.wendler.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.johan.wendler.core.ProgramMath;
+
+/**
+ * The estimated one rm and reps to beat, calculated for every main exercise card.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OneRmBenchmark {
+
+    @Param({"40", "102.5", "227.5"})
+    public double weight;
+
+    @Param({"1", "5", "12"})
+    public int reps;
+
+    /**
+     * Estimated one rm of a set.
+     */
+    @Benchmark
+    public int calculateOneRm() {
+        return ProgramMath.calculateOneRm(weight, reps);
+    }
+
+    /**
+     * Reps needed to reach a one rm slightly above the current set.
+     */
+    @Benchmark
+    public double calculateOneRmReps() {
+        return ProgramMath.calculateOneRmReps(weight, weight * 1.2);
+    }
+
+    /**
+     * Reps needed on the plus set to beat the record.
+     */
+    @Benchmark
+    public int getRepsToBeat() {
+        return ProgramMath.getRepsToBeat(weight, (int) (weight * 1.2));
+    }
+}
@@ -0,0 +1,75 @@
+package se.johan.wendler.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.johan.wendler.core.PlateInventory;
+import se.johan.wendler.core.PlateLoading;
+import se.johan.wendler.core.PlateSolver;
+import se.johan.wendler.core.PlateTable;
+
+/**
+ * The plate loading, looked up for every set shown and solved when the inventory changes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PlateBenchmark {
+
+    @Param({"45", "97.5", "187.5", "317.5", "502.5"})
+    public double weight;
+
+    @Param({"2", "10"})
+    public int pairs;
+
+    private PlateInventory mInventory;
+    private PlateTable mTable;
+    private PlateSolver mSolver;
+
+    /**
+     * Build the table for a pound inventory.
+     */
+    @Setup
+    public void setUp() {
+        mInventory = new PlateInventory(
+                45,
+                new double[]{45, 25, 10, 5, 2.5, 1.25},
+                new int[]{pairs, 2, 2, 2, 2, 2});
+        mTable = new PlateTable(mInventory, 2.5);
+        mSolver = new PlateSolver(mInventory);
+    }
+
+    /**
+     * Look up a weight on the rounding grid.
+     */
+    @Benchmark
+    public PlateLoading lookUp() {
+        return mTable.get(weight);
+    }
+
+    /**
+     * Solve a single weight with an already built solver.
+     */
+    @Benchmark
+    public PlateLoading solve() {
+        return mSolver.solve(weight);
+    }
+
+    /**
+     * Build the whole table, done once every time the inventory or rounding changes.
+     */
+    @Benchmark
+    public PlateTable buildTable() {
+        return new PlateTable(mInventory, 2.5);
+    }
+}
@@ -0,0 +1,115 @@
+package se.johan.wendler.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import se.johan.wendler.core.DeloadType;
+import se.johan.wendler.core.ProgramConfig;
+import se.johan.wendler.core.ProgramTemplate;
+import se.johan.wendler.core.ProjectionResult;
+import se.johan.wendler.core.ProjectionScenario;
+import se.johan.wendler.core.TrainingProjection;
+
+/**
+ * A what-if sweep over increments, training max percentages and deload types.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    private static final int[][] PERCENTAGES = {
+            {65, 75, 85},
+            {70, 80, 90},
+            {75, 85, 95},
+            {40, 50, 60}
+    };
+
+    private static final int[] TRAINING_PERCENTAGES = {80, 85, 90, 95, 100};
+
+    @Param({"20"})
+    public int cycles;
+
+    private TrainingProjection mProjection;
+    private List<ProjectionScenario> mScenarios;
+    private ForkJoinPool mPool;
+
+    /**
+     * Build the 50 scenarios of the sweep.
+     */
+    @Setup
+    public void setUp() {
+        mProjection = new TrainingProjection(
+                new double[]{60, 180, 100, 140},
+                new double[]{1, 4, 2, 3},
+                PERCENTAGES,
+                cycles);
+
+        mScenarios = new ArrayList<>();
+        for (DeloadType deloadType : new DeloadType[]{DeloadType.INCREMENT,
+                DeloadType.PERCENTAGE}) {
+            ProgramConfig config = new ProgramConfig(
+                    2.5,
+                    new int[]{40, 50, 60},
+                    new int[]{5, 5, 3},
+                    new int[]{5, 5, 5},
+                    true,
+                    false,
+                    true,
+                    deloadType,
+                    10,
+                    ProgramTemplate.get(ProgramTemplate.FIVE_THREE_ONE));
+            for (int trainingPercentage : TRAINING_PERCENTAGES) {
+                for (int step = 1; step <= 5; step++) {
+                    double upper = 1.25 * step;
+                    double lower = 2.5 * step;
+                    mScenarios.add(new ProjectionScenario(config, trainingPercentage,
+                            new double[]{upper, lower, upper, lower}));
+                }
+            }
+        }
+        mPool = new ForkJoinPool();
+    }
+
+    /**
+     * Stop the pool threads.
+     */
+    @TearDown
+    public void tearDown() {
+        mPool.shutdown();
+    }
+
+    /**
+     * The sweep on one thread.
+     */
+    @Benchmark
+    public ProjectionResult sweep() {
+        return mProjection.project(mScenarios);
+    }
+
+    /**
+     * The sweep split over a fork-join pool.
+     */
+    @Benchmark
+    public ProjectionResult sweepParallel() throws InterruptedException {
+        return mProjection.project(mScenarios, mPool);
+    }
+}
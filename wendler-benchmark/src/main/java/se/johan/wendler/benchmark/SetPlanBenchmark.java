@@ -0,0 +1,94 @@
+package se.johan.wendler.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.johan.wendler.core.DeloadType;
+import se.johan.wendler.core.ProgramConfig;
+import se.johan.wendler.core.ProgramMath;
+import se.johan.wendler.core.ProgramTemplate;
+import se.johan.wendler.core.SetPlan;
+
+/**
+ * The warm up, main and supplemental sets, calculated for every week of the cycle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SetPlanBenchmark {
+
+    private static final int[][] PERCENTAGES = {
+            {65, 75, 85},
+            {70, 80, 90},
+            {75, 85, 95},
+            {40, 50, 60}
+    };
+
+    @Param({"1", "2", "3", "4"})
+    public int week;
+
+    @Param({"60", "142.5", "255"})
+    public double oneRm;
+
+    @Param({"1.25", "2.5", "5"})
+    public double roundTo;
+
+    @Param({ProgramTemplate.FIVE_THREE_ONE, ProgramTemplate.BORING_BUT_BIG})
+    public String program;
+
+    private ProgramConfig mConfig;
+    private int[] mPercentages;
+
+    /**
+     * Build the config with the default warm up scheme.
+     */
+    @Setup
+    public void setUp() {
+        mConfig = new ProgramConfig(
+                roundTo,
+                new int[]{40, 50, 60},
+                new int[]{5, 5, 3},
+                new int[]{5, 5, 5},
+                true,
+                false,
+                true,
+                DeloadType.INCREMENT,
+                10,
+                ProgramTemplate.get(program));
+        mPercentages = PERCENTAGES[week - 1];
+    }
+
+    /**
+     * The work sets of the week.
+     */
+    @Benchmark
+    public SetPlan getWorkoutPlan() {
+        return ProgramMath.getWorkoutPlan(mConfig, oneRm, mPercentages, week);
+    }
+
+    /**
+     * The supplemental sets of the week, if the program has any.
+     */
+    @Benchmark
+    public SetPlan getSupplementalPlan() {
+        return ProgramMath.getSupplementalPlan(mConfig, oneRm, mPercentages, week);
+    }
+
+    /**
+     * The warm up sets.
+     */
+    @Benchmark
+    public SetPlan getWarmUpPlan() {
+        return ProgramMath.getWarmUpPlan(mConfig, oneRm);
+    }
+}
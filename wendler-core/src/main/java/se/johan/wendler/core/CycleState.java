@@ -0,0 +1,93 @@
+package se.johan.wendler.core;
+
+/**
+ * Where an exercise is in the program, updated when a workout is done.
+ */
+public class CycleState {
+
+    private int mWeek;
+    private int mCycle;
+    private double mWeight;
+    private boolean mDoDelayedDeload;
+    private int mCycleName;
+
+    /**
+     * Constructor.
+     */
+    public CycleState(int week, int cycle, double weight, int cycleName) {
+        mWeek = week;
+        mCycle = cycle;
+        mWeight = weight;
+        mCycleName = cycleName;
+    }
+
+    /**
+     * Return the week.
+     */
+    public int getWeek() {
+        return mWeek;
+    }
+
+    /**
+     * Set the current week.
+     */
+    public void setWeek(int week) {
+        mWeek = week;
+    }
+
+    /**
+     * Return the cycle.
+     */
+    public int getCycle() {
+        return mCycle;
+    }
+
+    /**
+     * Set the current cycle.
+     */
+    public void setCycle(int cycle) {
+        mCycle = cycle;
+    }
+
+    /**
+     * Return the cycle name.
+     */
+    public int getCycleName() {
+        return mCycleName;
+    }
+
+    /**
+     * Set the current cycle name.
+     */
+    public void setCycleName(int cycleName) {
+        mCycleName = cycleName;
+    }
+
+    /**
+     * Return if we should do a delayed deload.
+     */
+    public boolean doDelayedDeload() {
+        return mDoDelayedDeload;
+    }
+
+    /**
+     * Set the delayed deload to true.
+     */
+    public void setDoDelayedDeload() {
+        mDoDelayedDeload = true;
+    }
+
+    /**
+     * Return the weight.
+     */
+    public double getWeight() {
+        return mWeight;
+    }
+
+    /**
+     * Set the weight.
+     */
+    public void setWeight(double weight) {
+        mWeight = weight;
+    }
+}
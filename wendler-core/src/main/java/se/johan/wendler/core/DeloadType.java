@@ -0,0 +1,10 @@
+package se.johan.wendler.core;
+
+/**
+ * Enum describing how the training max is lowered on a deload.
+ */
+public enum DeloadType {
+    NONE,
+    INCREMENT,
+    PERCENTAGE
+}
@@ -0,0 +1,111 @@
+package se.johan.wendler.core;
+
+import java.util.TimeZone;
+
+/**
+ * Conversions between calendar dates and epoch days, the number of days since 1 January 1970.
+ * A date stored as an epoch day is a single integer which sorts and compares like the date,
+ * and converting it needs no calendar objects. Months are counted from zero like in
+ * {@link java.util.Calendar}.
+ */
+public final class EpochDay {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    // Days in a 400 year era and between 0000-03-01 and 1970-01-01
+    private static final int DAYS_PER_ERA = 146097;
+    private static final int DAYS_TO_EPOCH = 719468;
+
+    /**
+     * Private constructor, only static helpers.
+     */
+    private EpochDay() {
+    }
+
+    /**
+     * Return the epoch day of a date.
+     */
+    public static int of(int year, int month, int dayOfMonth) {
+        // Count from March so the leap day is the last day of the year
+        int m = month + 1;
+        int y = m <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5 + dayOfMonth - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_TO_EPOCH;
+    }
+
+    /**
+     * Return the epoch day of an instant in a time zone.
+     */
+    public static int fromMillis(long millis, TimeZone timeZone) {
+        long local = millis + timeZone.getOffset(millis);
+        long day = local / MILLIS_PER_DAY;
+        if (local % MILLIS_PER_DAY < 0) {
+            day--;
+        }
+        return (int) day;
+    }
+
+    /**
+     * Return the milliseconds at midnight UTC of an epoch day.
+     */
+    public static long toMillis(int epochDay) {
+        return epochDay * MILLIS_PER_DAY;
+    }
+
+    /**
+     * Return the year of an epoch day.
+     */
+    public static int getYear(int epochDay) {
+        int year = marchYear(epochDay);
+        return marchMonth(epochDay, year) < 10 ? year : year + 1;
+    }
+
+    /**
+     * Return the month of an epoch day, counted from zero.
+     */
+    public static int getMonth(int epochDay) {
+        int month = marchMonth(epochDay, marchYear(epochDay));
+        return month < 10 ? month + 2 : month - 10;
+    }
+
+    /**
+     * Return the day of the month of an epoch day.
+     */
+    public static int getDayOfMonth(int epochDay) {
+        int year = marchYear(epochDay);
+        int dayOfYear = epochDay - startOfMarchYear(year);
+        return dayOfYear - (153 * marchMonth(epochDay, year) + 2) / 5 + 1;
+    }
+
+    /**
+     * Return the year of an epoch day when years are counted from March.
+     */
+    private static int marchYear(int epochDay) {
+        int z = epochDay + DAYS_TO_EPOCH;
+        int era = (z >= 0 ? z : z - DAYS_PER_ERA + 1) / DAYS_PER_ERA;
+        int dayOfEra = z - era * DAYS_PER_ERA;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        return yearOfEra + era * 400;
+    }
+
+    /**
+     * Return the month of an epoch day counted from March, zero being March.
+     */
+    private static int marchMonth(int epochDay, int marchYear) {
+        int dayOfYear = epochDay - startOfMarchYear(marchYear);
+        return (5 * dayOfYear + 2) / 153;
+    }
+
+    /**
+     * Return the epoch day of the first of March of a year.
+     */
+    private static int startOfMarchYear(int marchYear) {
+        int era = (marchYear >= 0 ? marchYear : marchYear - 399) / 400;
+        int yearOfEra = marchYear - era * 400;
+        return era * DAYS_PER_ERA + yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100
+                - DAYS_TO_EPOCH;
+    }
+}
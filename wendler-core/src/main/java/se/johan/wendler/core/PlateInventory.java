@@ -0,0 +1,107 @@
+package se.johan.wendler.core;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The bar and the plates available to load it with. Immutable, plates are kept heaviest first.
+ */
+public class PlateInventory {
+
+    private final double mBarWeight;
+    private final double[] mPlates;
+    private final int[] mPairs;
+
+    /**
+     * Constructor, plates and the number of pairs of each are given in the same order.
+     */
+    public PlateInventory(double barWeight, double[] plates, int[] pairs) {
+        if (barWeight < 0) {
+            throw new IllegalArgumentException("Bar weight can't be negative: " + barWeight);
+        }
+        if (plates.length != pairs.length) {
+            throw new IllegalArgumentException("Every plate needs a number of pairs");
+        }
+
+        Integer[] order = new Integer[plates.length];
+        for (int i = 0; i < order.length; i++) {
+            if (plates[i] <= 0 || pairs[i] < 0) {
+                throw new IllegalArgumentException("Invalid plate " + plates[i] + "x" + pairs[i]);
+            }
+            order[i] = i;
+        }
+        final double[] unsorted = plates;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                return Double.compare(unsorted[rhs], unsorted[lhs]);
+            }
+        });
+
+        mBarWeight = barWeight;
+        mPlates = new double[plates.length];
+        mPairs = new int[plates.length];
+        for (int i = 0; i < order.length; i++) {
+            mPlates[i] = plates[order[i]];
+            mPairs[i] = pairs[order[i]];
+        }
+    }
+
+    /**
+     * Return the weight of the bar.
+     */
+    public double getBarWeight() {
+        return mBarWeight;
+    }
+
+    /**
+     * Return the number of different plates.
+     */
+    public int size() {
+        return mPlates.length;
+    }
+
+    /**
+     * Return the weight of a plate.
+     */
+    public double getPlate(int plate) {
+        return mPlates[plate];
+    }
+
+    /**
+     * Return the number of pairs available of a plate.
+     */
+    public int getPairs(int plate) {
+        return mPairs[plate];
+    }
+
+    /**
+     * Return the heaviest weight which can be loaded.
+     */
+    public double getMaxWeight() {
+        double weight = mBarWeight;
+        for (int i = 0; i < mPlates.length; i++) {
+            weight += 2 * mPlates[i] * mPairs[i];
+        }
+        return weight;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof PlateInventory) {
+            PlateInventory other = (PlateInventory) o;
+            return Double.compare(other.mBarWeight, mBarWeight) == 0
+                    && Arrays.equals(other.mPlates, mPlates)
+                    && Arrays.equals(other.mPairs, mPairs);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        long bits = Double.doubleToLongBits(mBarWeight);
+        int result = (int) (bits ^ (bits >>> 32));
+        result = 31 * result + Arrays.hashCode(mPlates);
+        return 31 * result + Arrays.hashCode(mPairs);
+    }
+}
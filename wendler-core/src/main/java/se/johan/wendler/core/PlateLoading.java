@@ -0,0 +1,66 @@
+package se.johan.wendler.core;
+
+/**
+ * The plates to load on each side of the bar for a weight. Immutable.
+ */
+public class PlateLoading {
+
+    private final PlateInventory mInventory;
+    private final int[] mCounts;
+    private final double mWeight;
+
+    /**
+     * Constructor, takes ownership of the counts which follow the order of the inventory.
+     */
+    PlateLoading(PlateInventory inventory, int[] counts) {
+        mInventory = inventory;
+        mCounts = counts;
+
+        double weight = inventory.getBarWeight();
+        for (int i = 0; i < counts.length; i++) {
+            weight += 2 * inventory.getPlate(i) * counts[i];
+        }
+        mWeight = weight;
+    }
+
+    /**
+     * Return the total weight of the bar and plates, which might differ from the weight asked
+     * for when it can't be loaded exactly.
+     */
+    public double getWeight() {
+        return mWeight;
+    }
+
+    /**
+     * Return the number of different plates in the inventory.
+     */
+    public int size() {
+        return mCounts.length;
+    }
+
+    /**
+     * Return the weight of a plate.
+     */
+    public double getPlate(int plate) {
+        return mInventory.getPlate(plate);
+    }
+
+    /**
+     * Return how many of a plate to load on each side.
+     */
+    public int getCount(int plate) {
+        return mCounts[plate];
+    }
+
+    /**
+     * Return if nothing but the bar is loaded.
+     */
+    public boolean isEmpty() {
+        for (int count : mCounts) {
+            if (count > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,128 @@
+package se.johan.wendler.core;
+
+import java.util.Arrays;
+
+/**
+ * Finds the plates to load for a weight with a limited inventory. Every weight which can be put
+ * on one side of the bar is worked out once, with the fewest plates possible, so a weight which
+ * can't be loaded exactly gets the closest one which can.
+ */
+public class PlateSolver {
+
+    private static final int UNSET = Integer.MAX_VALUE;
+
+    // Plates are weighed in hundredths, divided by what they all have in common
+    private static final int PRECISION = 100;
+
+    private final PlateInventory mInventory;
+    private final int mUnit;
+    private final int[] mSizes;
+    private final int mMaxSide;
+    private final int[] mPlateCounts;
+    private final byte[][] mChoices;
+
+    /**
+     * Constructor, works out every loading the inventory allows.
+     */
+    public PlateSolver(PlateInventory inventory) {
+        mInventory = inventory;
+
+        int plates = inventory.size();
+        int[] hundredths = new int[plates];
+        int unit = 0;
+        for (int i = 0; i < plates; i++) {
+            hundredths[i] = (int) Math.round(inventory.getPlate(i) * PRECISION);
+            unit = gcd(unit, hundredths[i]);
+        }
+        mUnit = Math.max(unit, 1);
+
+        mSizes = new int[plates];
+        int maxSide = 0;
+        for (int i = 0; i < plates; i++) {
+            mSizes[i] = hundredths[i] / mUnit;
+            maxSide += mSizes[i] * inventory.getPairs(i);
+        }
+        mMaxSide = maxSide;
+
+        // Bounded knapsack over the plates, lightest first, so that on a tie in plate count
+        // the heavier plates decided last are preferred.
+        mPlateCounts = new int[maxSide + 1];
+        Arrays.fill(mPlateCounts, UNSET);
+        mPlateCounts[0] = 0;
+        mChoices = new byte[plates][maxSide + 1];
+
+        for (int i = plates - 1; i >= 0; i--) {
+            int[] previous = mPlateCounts.clone();
+            int pairs = Math.min(inventory.getPairs(i), Byte.MAX_VALUE);
+            for (int side = 0; side <= maxSide; side++) {
+                int best = UNSET;
+                int choice = 0;
+                for (int count = Math.min(pairs, side / Math.max(mSizes[i], 1)); count >= 0;
+                     count--) {
+                    int rest = previous[side - count * mSizes[i]];
+                    if (rest != UNSET && rest + count < best) {
+                        best = rest + count;
+                        choice = count;
+                    }
+                }
+                mPlateCounts[side] = best;
+                mChoices[i][side] = (byte) choice;
+            }
+        }
+    }
+
+    /**
+     * Return the inventory the solver loads from.
+     */
+    public PlateInventory getInventory() {
+        return mInventory;
+    }
+
+    /**
+     * Return the loading for a weight, or the closest one possible, the lighter one on a tie.
+     */
+    public PlateLoading solve(double weight) {
+        double side = (weight - mInventory.getBarWeight()) / 2;
+        long target = Math.round(side * PRECISION / mUnit);
+        target = Math.max(0, Math.min(target, mMaxSide));
+
+        int closest = (int) target;
+        for (int distance = 0; distance <= mMaxSide; distance++) {
+            if (target - distance >= 0 && mPlateCounts[(int) target - distance] != UNSET) {
+                closest = (int) target - distance;
+                break;
+            }
+            if (target + distance <= mMaxSide
+                    && mPlateCounts[(int) target + distance] != UNSET) {
+                closest = (int) target + distance;
+                break;
+            }
+        }
+        return new PlateLoading(mInventory, getCounts(closest));
+    }
+
+    /**
+     * Walk back through the choices to find the count of every plate for one side.
+     */
+    private int[] getCounts(int side) {
+        int[] counts = new int[mInventory.size()];
+        int rest = side;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = mChoices[i][rest];
+            rest -= counts[i] * mSizes[i];
+        }
+        return counts;
+    }
+
+    /**
+     * Return the greatest common divisor of two numbers.
+     */
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int tmp = b;
+            b = a % b;
+            a = tmp;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,67 @@
+package se.johan.wendler.core;
+
+/**
+ * The loading of every weight on the rounding grid, from the empty bar up to the heaviest weight
+ * the inventory allows. Weights are always rounded to the grid, so looking up a set is an index
+ * into an array.
+ */
+public class PlateTable {
+
+    // How far off the grid a weight may be and still use the table
+    private static final double TOLERANCE = 0.001;
+
+    private final PlateSolver mSolver;
+    private final double mRoundTo;
+    private final PlateLoading[] mLoadings;
+
+    /**
+     * Constructor, solves every weight on the grid.
+     */
+    public PlateTable(PlateInventory inventory, double roundTo) {
+        if (roundTo <= 0) {
+            throw new IllegalArgumentException("Round to must be positive: " + roundTo);
+        }
+        mSolver = new PlateSolver(inventory);
+        mRoundTo = roundTo;
+
+        double range = inventory.getMaxWeight() - inventory.getBarWeight();
+        mLoadings = new PlateLoading[(int) Math.ceil(range / roundTo) + 1];
+        for (int i = 0; i < mLoadings.length; i++) {
+            mLoadings[i] = mSolver.solve(inventory.getBarWeight() + i * roundTo);
+        }
+    }
+
+    /**
+     * Return the number of weights in the table.
+     */
+    public int size() {
+        return mLoadings.length;
+    }
+
+    /**
+     * Return the index of a weight in the table, -1 if it is not on the grid.
+     */
+    public int indexOf(double weight) {
+        double steps = (weight - mSolver.getInventory().getBarWeight()) / mRoundTo;
+        long index = Math.round(steps);
+        if (index < 0 || index >= mLoadings.length || Math.abs(steps - index) > TOLERANCE) {
+            return -1;
+        }
+        return (int) index;
+    }
+
+    /**
+     * Return the loading at an index of the table.
+     */
+    public PlateLoading get(int index) {
+        return mLoadings[index];
+    }
+
+    /**
+     * Return the loading for a weight, solved right away if it is not in the table.
+     */
+    public PlateLoading get(double weight) {
+        int index = indexOf(weight);
+        return index == -1 ? mSolver.solve(weight) : mLoadings[index];
+    }
+}
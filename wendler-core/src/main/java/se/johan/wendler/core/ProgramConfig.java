@@ -0,0 +1,160 @@
+package se.johan.wendler.core;
+
+import java.util.Arrays;
+
+/**
+ * The settings the program is calculated with. Immutable, arrays are copied in and out.
+ */
+public class ProgramConfig {
+
+    private final double mRoundTo;
+    private final int[] mWarmUpPercentages;
+    private final int[] mWarmUpReps;
+    private final int[] mDeloadReps;
+    private final boolean mAutoDeload;
+    private final boolean mResetCycleOnDeload;
+    private final boolean mDeloadFromTrainingMax;
+    private final DeloadType mDeloadType;
+    private final int mDeloadPercentage;
+    private final ProgramTemplate mTemplate;
+
+    /**
+     * Constructor.
+     */
+    public ProgramConfig(double roundTo,
+                         int[] warmUpPercentages,
+                         int[] warmUpReps,
+                         int[] deloadReps,
+                         boolean autoDeload,
+                         boolean resetCycleOnDeload,
+                         boolean deloadFromTrainingMax,
+                         DeloadType deloadType,
+                         int deloadPercentage,
+                         ProgramTemplate template) {
+        if (roundTo <= 0) {
+            throw new IllegalArgumentException("Round to must be positive: " + roundTo);
+        }
+        mRoundTo = roundTo;
+        mWarmUpPercentages = warmUpPercentages.clone();
+        mWarmUpReps = warmUpReps.clone();
+        mDeloadReps = deloadReps.clone();
+        mAutoDeload = autoDeload;
+        mResetCycleOnDeload = resetCycleOnDeload;
+        mDeloadFromTrainingMax = deloadFromTrainingMax;
+        mDeloadType = deloadType;
+        mDeloadPercentage = deloadPercentage;
+        mTemplate = template;
+    }
+
+    /**
+     * Return the value weights are rounded to.
+     */
+    public double getRoundTo() {
+        return mRoundTo;
+    }
+
+    /**
+     * Return the percentages of the warm up sets.
+     */
+    public int[] getWarmUpPercentages() {
+        return mWarmUpPercentages.clone();
+    }
+
+    /**
+     * Return the reps of the warm up sets.
+     */
+    public int[] getWarmUpReps() {
+        return mWarmUpReps.clone();
+    }
+
+    /**
+     * Return the reps of the deload week.
+     */
+    public int[] getDeloadReps() {
+        return mDeloadReps.clone();
+    }
+
+    /**
+     * Return if a failed workout should deload right away.
+     */
+    public boolean isAutoDeload() {
+        return mAutoDeload;
+    }
+
+    /**
+     * Return if the cycle name starts over on a deload.
+     */
+    public boolean isResetCycleOnDeload() {
+        return mResetCycleOnDeload;
+    }
+
+    /**
+     * Return if the deload is calculated from the training max rather than the one rm.
+     */
+    public boolean isDeloadFromTrainingMax() {
+        return mDeloadFromTrainingMax;
+    }
+
+    /**
+     * Return the type of deload.
+     */
+    public DeloadType getDeloadType() {
+        return mDeloadType;
+    }
+
+    /**
+     * Return the percentage to lower the weight with for a percentage deload.
+     */
+    public int getDeloadPercentage() {
+        return mDeloadPercentage;
+    }
+
+    /**
+     * Return the program the sets of each week follow.
+     */
+    public ProgramTemplate getTemplate() {
+        return mTemplate;
+    }
+
+    /**
+     * Return a copy of the settings deloading with another type.
+     */
+    public ProgramConfig withDeloadType(DeloadType deloadType) {
+        return new ProgramConfig(mRoundTo, mWarmUpPercentages, mWarmUpReps, mDeloadReps,
+                mAutoDeload, mResetCycleOnDeload, mDeloadFromTrainingMax, deloadType,
+                mDeloadPercentage, mTemplate);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ProgramConfig) {
+            ProgramConfig other = (ProgramConfig) o;
+            return Double.compare(other.mRoundTo, mRoundTo) == 0
+                    && Arrays.equals(other.mWarmUpPercentages, mWarmUpPercentages)
+                    && Arrays.equals(other.mWarmUpReps, mWarmUpReps)
+                    && Arrays.equals(other.mDeloadReps, mDeloadReps)
+                    && other.mAutoDeload == mAutoDeload
+                    && other.mResetCycleOnDeload == mResetCycleOnDeload
+                    && other.mDeloadFromTrainingMax == mDeloadFromTrainingMax
+                    && other.mDeloadType == mDeloadType
+                    && other.mDeloadPercentage == mDeloadPercentage
+                    && other.mTemplate.getId().equals(mTemplate.getId());
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        long bits = Double.doubleToLongBits(mRoundTo);
+        int result = (int) (bits ^ (bits >>> 32));
+        result = 31 * result + Arrays.hashCode(mWarmUpPercentages);
+        result = 31 * result + Arrays.hashCode(mWarmUpReps);
+        result = 31 * result + Arrays.hashCode(mDeloadReps);
+        result = 31 * result + (mAutoDeload ? 1 : 0);
+        result = 31 * result + (mResetCycleOnDeload ? 1 : 0);
+        result = 31 * result + (mDeloadFromTrainingMax ? 1 : 0);
+        result = 31 * result + mDeloadType.hashCode();
+        result = 31 * result + mDeloadPercentage;
+        return 31 * result + mTemplate.getId().hashCode();
+    }
+}
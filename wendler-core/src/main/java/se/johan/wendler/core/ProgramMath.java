@@ -0,0 +1,207 @@
+package se.johan.wendler.core;
+
+import se.johan.wendler.model.SetType;
+
+/**
+ * The arithmetic of the program, free of any Android dependencies.
+ */
+public class ProgramMath {
+
+    private static final double ONE_RM_CONSTANT = 0.0333;
+
+    /**
+     * Private constructor.
+     */
+    private ProgramMath() {
+    }
+
+    /**
+     * Calculate one rm for a given weight and repetitions.
+     */
+    public static int calculateOneRm(double weight, int reps) {
+        if (reps <= 0) {
+            return -1;
+        }
+        double oneRm = weight * reps * ONE_RM_CONSTANT + weight;
+        return (int) Math.round(oneRm);
+    }
+
+    /**
+     * Calculate the reps needed with a weight to reach a given one rm.
+     */
+    public static double calculateOneRmReps(double weight, double oneRm) {
+        return 1 / ((weight * ONE_RM_CONSTANT) / (oneRm - weight));
+
+        /**
+         * Proof (probably horrible math):
+         * O = (w*r*c) + w
+         * O-w = w*r*c
+         * (o-w)/r = w*c
+         * (o-w)*(1/r) = w*c
+         * 1/r = (w*c)/(o-w)
+         * R = 1/((w*c)/(o-w))
+         * QED
+         */
+    }
+
+    /**
+     * Calculate a percentage of a weight, rounded as configured.
+     */
+    public static double calculateWeight(ProgramConfig config, double weight, int percentage) {
+        return roundToClosest(weight * ((double) percentage / 100), config.getRoundTo());
+    }
+
+    /**
+     * Calculate the main sets for a training max and week. The last set is the plus set when the
+     * week is done for as many reps as possible, otherwise every set has fixed reps.
+     */
+    public static SetPlan getWorkoutPlan(ProgramConfig config,
+                                         double oneRm,
+                                         int[] setPercentages,
+                                         int week) {
+        WeekScheme scheme = config.getTemplate().getWeek(week);
+        int[] deloadReps = config.getDeloadReps();
+        SetType lastType = scheme.isAmrap() && !scheme.isDeload()
+                ? SetType.PLUS_SET : SetType.REGULAR;
+        SetType[] types = new SetType[setPercentages.length];
+        double[] weights = new double[setPercentages.length];
+        int[] sets = new int[setPercentages.length];
+        int[] reps = new int[setPercentages.length];
+        for (int i = 0; i < setPercentages.length; i++) {
+            types[i] = i == setPercentages.length - 1 ? lastType : SetType.REGULAR;
+            weights[i] = calculateWeight(config, oneRm, setPercentages[i]);
+            sets[i] = 1;
+            reps[i] = scheme.isDeload()
+                    ? deloadReps[Math.min(i, deloadReps.length - 1)]
+                    : scheme.getReps(i);
+        }
+        return new SetPlan(types, weights, sets, reps);
+    }
+
+    /**
+     * Calculate the supplemental sets for a training max and week, null if there are none.
+     */
+    public static SetPlan getSupplementalPlan(ProgramConfig config,
+                                              double oneRm,
+                                              int[] setPercentages,
+                                              int week) {
+        WeekScheme scheme = config.getTemplate().getWeek(week);
+        if (!scheme.hasSupplemental()) {
+            return null;
+        }
+        return new SetPlan(
+                new SetType[]{SetType.SUPPLEMENTAL},
+                new double[]{calculateWeight(
+                        config, oneRm, scheme.getSupplementalPercentage(setPercentages))},
+                new int[]{scheme.getSupplementalSets()},
+                new int[]{scheme.getSupplementalReps()});
+    }
+
+    /**
+     * Calculate the warm up sets for a training max.
+     */
+    public static SetPlan getWarmUpPlan(ProgramConfig config, double oneRm) {
+        int[] percentages = config.getWarmUpPercentages();
+        int[] warmUpReps = config.getWarmUpReps();
+        SetType[] types = new SetType[percentages.length];
+        double[] weights = new double[percentages.length];
+        int[] sets = new int[percentages.length];
+        int[] reps = new int[percentages.length];
+        for (int i = 0; i < percentages.length; i++) {
+            types[i] = SetType.WARM_UP;
+            weights[i] = calculateWeight(config, oneRm, percentages[i]);
+            sets[i] = 1;
+            reps[i] = warmUpReps[i];
+        }
+        return new SetPlan(types, weights, sets, reps);
+    }
+
+    /**
+     * Return the reps needed on the last set to beat the highest estimated one rm, -1 if
+     * there is none.
+     */
+    public static int getRepsToBeat(double lastSetWeight, int highestEstimated1RM) {
+        if (highestEstimated1RM == -1) {
+            return -1;
+        }
+
+        double oneRmReps = calculateOneRmReps(lastSetWeight, highestEstimated1RM);
+        int ceilOneRmReps = (int) Math.ceil(oneRmReps);
+
+        if (calculateOneRm(lastSetWeight, ceilOneRmReps) <= highestEstimated1RM) {
+            return ceilOneRmReps + 1;
+        } else {
+            return ceilOneRmReps;
+        }
+    }
+
+    /**
+     * Move a failed exercise on, deloading it now or marking it for a deload after the cycle.
+     */
+    public static void doDeload(ProgramConfig config,
+                                CycleState state,
+                                int trainingPercentage,
+                                double increment) {
+
+        if (config.isAutoDeload() || state.getWeek() == 4) {
+            state.setWeek(1);
+
+            if (config.isResetCycleOnDeload()) {
+                state.setCycleName(1);
+            } else {
+                state.setCycleName(state.getCycleName() + 1);
+            }
+
+            state.setCycle(state.getCycle() + 1);
+
+            if (!config.isDeloadFromTrainingMax()) {
+                state.setWeight(calculateWeight(
+                        config, state.getWeight(), 100 + (100 - trainingPercentage)));
+            }
+            state.setWeight(calculateDeloadWeight(config, state.getWeight(), increment));
+
+        } else {
+            state.setWeek(state.getWeek() + 1);
+            state.setDoDelayedDeload();
+        }
+    }
+
+    /**
+     * Calculate the weight after a deload.
+     */
+    public static double calculateDeloadWeight(ProgramConfig config,
+                                               double oldWeight,
+                                               double increment) {
+        switch (config.getDeloadType()) {
+            case INCREMENT:
+                return oldWeight - (increment * 3);
+            case PERCENTAGE:
+                return calculateWeight(config, oldWeight, 100 - config.getDeloadPercentage());
+            default:
+                return oldWeight;
+        }
+    }
+
+    /**
+     * Calculate the weight after undoing a deload.
+     */
+    public static double calculateReverseDeloadWeight(ProgramConfig config,
+                                                      double oldWeight,
+                                                      double increment) {
+        switch (config.getDeloadType()) {
+            case INCREMENT:
+                return oldWeight + (increment * 3);
+            case PERCENTAGE:
+                return Math.round(oldWeight / (100 - config.getDeloadPercentage()) * 100);
+            default:
+                return oldWeight;
+        }
+    }
+
+    /**
+     * Round a value to the closest given number.
+     */
+    private static double roundToClosest(double value, double roundTo) {
+        return Math.round(value / roundTo) * roundTo;
+    }
+}
@@ -0,0 +1,90 @@
+package se.johan.wendler.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A program defined by the scheme of each week in a cycle. The built in programs are defined
+ * here once and looked up by id, so generating the sets of a week costs the same no matter how
+ * many programs there are.
+ */
+public class ProgramTemplate {
+
+    public static final String FIVE_THREE_ONE = "531";
+    public static final String FIVES_PRO = "5s_pro";
+    public static final String BORING_BUT_BIG = "bbb";
+    public static final String FIRST_SET_LAST = "fsl";
+
+    private static final WeekScheme DELOAD = new WeekScheme(null, false);
+
+    private static final Map<String, ProgramTemplate> sTemplates;
+
+    static {
+        Map<String, ProgramTemplate> templates = new LinkedHashMap<String, ProgramTemplate>();
+        add(templates, new ProgramTemplate(FIVE_THREE_ONE,
+                new WeekScheme(new int[]{5, 5, 5}, true),
+                new WeekScheme(new int[]{3, 3, 3}, true),
+                new WeekScheme(new int[]{5, 3, 1}, true),
+                DELOAD));
+        add(templates, new ProgramTemplate(FIVES_PRO,
+                new WeekScheme(new int[]{5, 5, 5}, false),
+                new WeekScheme(new int[]{5, 5, 5}, false),
+                new WeekScheme(new int[]{5, 5, 5}, false),
+                DELOAD));
+        add(templates, new ProgramTemplate(BORING_BUT_BIG,
+                new WeekScheme(new int[]{5, 5, 5}, true, 50, 5, 10),
+                new WeekScheme(new int[]{3, 3, 3}, true, 50, 5, 10),
+                new WeekScheme(new int[]{5, 3, 1}, true, 50, 5, 10),
+                DELOAD));
+        add(templates, new ProgramTemplate(FIRST_SET_LAST,
+                new WeekScheme(new int[]{5, 5, 5}, true, WeekScheme.FIRST_SET, 5, 5),
+                new WeekScheme(new int[]{3, 3, 3}, true, WeekScheme.FIRST_SET, 5, 5),
+                new WeekScheme(new int[]{5, 3, 1}, true, WeekScheme.FIRST_SET, 5, 5),
+                DELOAD));
+        sTemplates = Collections.unmodifiableMap(templates);
+    }
+
+    private final String mId;
+    private final WeekScheme[] mWeeks;
+
+    /**
+     * Constructor, one scheme for every week of the cycle.
+     */
+    public ProgramTemplate(String id, WeekScheme... weeks) {
+        if (weeks.length == 0) {
+            throw new IllegalArgumentException("A program needs at least one week");
+        }
+        mId = id;
+        mWeeks = weeks.clone();
+    }
+
+    /**
+     * Return the built in program with an id, 5/3/1 if there is none.
+     */
+    public static ProgramTemplate get(String id) {
+        ProgramTemplate template = sTemplates.get(id);
+        return template == null ? sTemplates.get(FIVE_THREE_ONE) : template;
+    }
+
+    /**
+     * Return the id of the program.
+     */
+    public String getId() {
+        return mId;
+    }
+
+    /**
+     * Return the scheme of a week, counted from one. Weeks past the end use the last scheme.
+     */
+    public WeekScheme getWeek(int week) {
+        return mWeeks[Math.max(0, Math.min(week, mWeeks.length) - 1)];
+    }
+
+    /**
+     * Add a program to the built in ones.
+     */
+    private static void add(Map<String, ProgramTemplate> templates, ProgramTemplate template) {
+        templates.put(template.getId(), template);
+    }
+}
@@ -0,0 +1,92 @@
+package se.johan.wendler.core;
+
+/**
+ * The projected training maxes of a sweep, kept in flat primitive arrays so they can be handed
+ * to a chart without boxing. Filled by {@link TrainingProjection}, where every scenario writes
+ * only its own slice.
+ */
+public class ProjectionResult {
+
+    private final int mScenarios;
+    private final int mLifts;
+    private final int mCycles;
+    private final double[] mTrainingMaxes;
+    private final int[] mDeloads;
+
+    /**
+     * Constructor, room for the training max at the start of every cycle and after the last.
+     */
+    ProjectionResult(int scenarios, int lifts, int cycles) {
+        mScenarios = scenarios;
+        mLifts = lifts;
+        mCycles = cycles;
+        mTrainingMaxes = new double[scenarios * lifts * (cycles + 1)];
+        mDeloads = new int[scenarios * lifts];
+    }
+
+    /**
+     * Return the number of scenarios.
+     */
+    public int getScenarioCount() {
+        return mScenarios;
+    }
+
+    /**
+     * Return the number of lifts.
+     */
+    public int getLiftCount() {
+        return mLifts;
+    }
+
+    /**
+     * Return the number of projected cycles.
+     */
+    public int getCycleCount() {
+        return mCycles;
+    }
+
+    /**
+     * Return the training max of a lift when a cycle starts, cycle 0 being the current one and
+     * the cycle count meaning after the last projected cycle.
+     */
+    public double getTrainingMax(int scenario, int lift, int cycle) {
+        return mTrainingMaxes[offset(scenario, lift) + cycle];
+    }
+
+    /**
+     * Copy the training maxes of a lift, one per cycle, into an array at least cycle count + 1
+     * long and return it.
+     */
+    public double[] getTrainingMaxes(int scenario, int lift, double[] out) {
+        System.arraycopy(mTrainingMaxes, offset(scenario, lift), out, 0, mCycles + 1);
+        return out;
+    }
+
+    /**
+     * Return the number of times a lift was deloaded.
+     */
+    public int getDeloads(int scenario, int lift) {
+        return mDeloads[scenario * mLifts + lift];
+    }
+
+    /**
+     * Store the training max of a lift when a cycle starts.
+     */
+    void setTrainingMax(int scenario, int lift, int cycle, double trainingMax) {
+        mTrainingMaxes[offset(scenario, lift) + cycle] = trainingMax;
+    }
+
+    /**
+     * Store the number of times a lift was deloaded.
+     */
+    void setDeloads(int scenario, int lift, int deloads) {
+        mDeloads[scenario * mLifts + lift] = deloads;
+    }
+
+    /**
+     * Return where the training maxes of a lift start.
+     */
+    private int offset(int scenario, int lift) {
+        return (scenario * mLifts + lift) * (mCycles + 1);
+    }
+}
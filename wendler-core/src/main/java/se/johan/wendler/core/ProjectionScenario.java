@@ -0,0 +1,75 @@
+package se.johan.wendler.core;
+
+import java.util.Arrays;
+
+/**
+ * One set of choices to project the training maxes with: the program settings, and the
+ * percentage of the one rep max used as training max and the increment of every lift. Immutable.
+ */
+public class ProjectionScenario {
+
+    private final ProgramConfig mConfig;
+    private final int[] mTrainingPercentages;
+    private final double[] mIncrements;
+
+    /**
+     * Constructor, one training max percentage for every lift and one increment per lift in the
+     * order of the projection.
+     */
+    public ProjectionScenario(ProgramConfig config, int trainingPercentage, double[] increments) {
+        this(config, filled(trainingPercentage, increments.length), increments);
+    }
+
+    /**
+     * Constructor, one training max percentage and one increment per lift in the order of the
+     * projection.
+     */
+    public ProjectionScenario(ProgramConfig config,
+                              int[] trainingPercentages,
+                              double[] increments) {
+        if (trainingPercentages.length != increments.length) {
+            throw new IllegalArgumentException("Got " + trainingPercentages.length
+                    + " training max percentages for " + increments.length + " increments");
+        }
+        mConfig = config;
+        mTrainingPercentages = trainingPercentages.clone();
+        mIncrements = increments.clone();
+    }
+
+    /**
+     * Return an array of a given length holding one value.
+     */
+    private static int[] filled(int value, int length) {
+        int[] array = new int[length];
+        Arrays.fill(array, value);
+        return array;
+    }
+
+    /**
+     * Return the program settings.
+     */
+    public ProgramConfig getConfig() {
+        return mConfig;
+    }
+
+    /**
+     * Return the percentage of the one rep max used as training max of a lift.
+     */
+    public int getTrainingPercentage(int lift) {
+        return mTrainingPercentages[lift];
+    }
+
+    /**
+     * Return the number of lifts the scenario has increments for.
+     */
+    public int getLiftCount() {
+        return mIncrements.length;
+    }
+
+    /**
+     * Return the increment of a lift.
+     */
+    public double getIncrement(int lift) {
+        return mIncrements[lift];
+    }
+}
@@ -0,0 +1,59 @@
+package se.johan.wendler.core;
+
+import se.johan.wendler.model.SetType;
+
+/**
+ * The calculated weights and reps of a group of sets, without any progress. Immutable.
+ */
+public class SetPlan {
+
+    private final SetType[] mTypes;
+    private final double[] mWeights;
+    private final int[] mSets;
+    private final int[] mReps;
+
+    /**
+     * Constructor, takes ownership of the arrays.
+     */
+    SetPlan(SetType[] types, double[] weights, int[] sets, int[] reps) {
+        mTypes = types;
+        mWeights = weights;
+        mSets = sets;
+        mReps = reps;
+    }
+
+    /**
+     * Return the number of sets.
+     */
+    public int size() {
+        return mTypes.length;
+    }
+
+    /**
+     * Return the type of a set.
+     */
+    public SetType getType(int set) {
+        return mTypes[set];
+    }
+
+    /**
+     * Return the weight of a set.
+     */
+    public double getWeight(int set) {
+        return mWeights[set];
+    }
+
+    /**
+     * Return how many times a set is performed.
+     */
+    public int getSets(int set) {
+        return mSets[set];
+    }
+
+    /**
+     * Return the rep goal of a set.
+     */
+    public int getReps(int set) {
+        return mReps[set];
+    }
+}
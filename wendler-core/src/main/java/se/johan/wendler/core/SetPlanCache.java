@@ -0,0 +1,165 @@
+package se.johan.wendler.core;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the weights and reps of the sets already calculated for a training max and week. They
+ * only change a few times per cycle while every card asks for them, the progress of a workout
+ * is put on top of a plan when the sets are built. A plan is only kept for the config it was
+ * calculated with, a new config drops them all.
+ */
+public class SetPlanCache {
+
+    private static final int KIND_MAIN = 0;
+    private static final int KIND_WARM_UP = 1;
+    private static final int KIND_SUPPLEMENTAL = 2;
+
+    private final Map<Key, SetPlan> mPlans;
+    private ProgramConfig mConfig;
+
+    /**
+     * Constructor, keeps at most the given number of plans, the least recently used are dropped.
+     */
+    public SetPlanCache(int maxPlans) {
+        mPlans = new PlanMap(maxPlans);
+    }
+
+    /**
+     * Return the work sets of a week, see ProgramMath.getWorkoutPlan.
+     */
+    public synchronized SetPlan getWorkoutPlan(ProgramConfig config,
+                                               double oneRm,
+                                               int[] percentages,
+                                               int week) {
+        Key key = new Key(KIND_MAIN, oneRm, percentages, week);
+        SetPlan plan = get(config, key);
+        if (plan == null) {
+            plan = ProgramMath.getWorkoutPlan(config, oneRm, percentages, week);
+            put(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Return the supplemental sets of a week, see ProgramMath.getSupplementalPlan.
+     */
+    public synchronized SetPlan getSupplementalPlan(ProgramConfig config,
+                                                    double oneRm,
+                                                    int[] percentages,
+                                                    int week) {
+        Key key = new Key(KIND_SUPPLEMENTAL, oneRm, percentages, week);
+        SetPlan plan = get(config, key);
+        if (plan == null) {
+            plan = ProgramMath.getSupplementalPlan(config, oneRm, percentages, week);
+            put(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Return the warm up sets, see ProgramMath.getWarmUpPlan.
+     */
+    public synchronized SetPlan getWarmUpPlan(ProgramConfig config, double oneRm) {
+        Key key = new Key(KIND_WARM_UP, oneRm, null, 0);
+        SetPlan plan = get(config, key);
+        if (plan == null) {
+            plan = ProgramMath.getWarmUpPlan(config, oneRm);
+            put(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Return the number of plans kept.
+     */
+    public synchronized int size() {
+        return mPlans.size();
+    }
+
+    /**
+     * Return the cached plan, null if there is none for the given config.
+     */
+    private SetPlan get(ProgramConfig config, Key key) {
+        if (config != mConfig) {
+            // Rounding, warm up and deload reps are all part of the plans
+            mPlans.clear();
+            mConfig = config;
+        }
+        return mPlans.get(key);
+    }
+
+    /**
+     * Store a plan under a copy of its key, the percentages belong to the caller.
+     */
+    private void put(Key key, SetPlan plan) {
+        mPlans.put(new Key(key.mKind, key.mOneRm,
+                key.mPercentages == null ? null : key.mPercentages.clone(), key.mWeek), plan);
+    }
+
+    /**
+     * Plans in the order they were used, dropping the least recently used above a size.
+     */
+    private static class PlanMap extends LinkedHashMap<Key, SetPlan> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int mMaxPlans;
+
+        /**
+         * Constructor.
+         */
+        PlanMap(int maxPlans) {
+            super(16, 0.75f, true);
+            mMaxPlans = maxPlans;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, SetPlan> eldest) {
+            return size() > mMaxPlans;
+        }
+    }
+
+    /**
+     * What a plan is calculated from, apart from the config.
+     */
+    private static class Key {
+
+        private final int mKind;
+        private final double mOneRm;
+        private final int[] mPercentages;
+        private final int mWeek;
+
+        /**
+         * Constructor.
+         */
+        Key(int kind, double oneRm, int[] percentages, int week) {
+            mKind = kind;
+            mOneRm = oneRm;
+            mPercentages = percentages;
+            mWeek = week;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Key) {
+                Key other = (Key) o;
+                return other.mKind == mKind
+                        && Double.compare(other.mOneRm, mOneRm) == 0
+                        && other.mWeek == mWeek
+                        && Arrays.equals(other.mPercentages, mPercentages);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            long bits = Double.doubleToLongBits(mOneRm);
+            int result = (int) (bits ^ (bits >>> 32));
+            result = 31 * result + Arrays.hashCode(mPercentages);
+            result = 31 * result + mWeek;
+            return 31 * result + mKind;
+        }
+    }
+}
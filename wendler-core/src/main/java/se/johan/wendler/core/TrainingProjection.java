@@ -0,0 +1,192 @@
+package se.johan.wendler.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Simulates the coming cycles of every lift with the same rules the app applies after a
+ * workout. A lift keeps getting stronger at its own pace, and fails a week when the plus set
+ * asks for more than its one rep max, after which it is deloaded like a failed workout would be.
+ * Scenarios are independent, so sweeps over many of them can be split between threads.
+ */
+public class TrainingProjection {
+
+    private static final int WEEKS_IN_CYCLE = 4;
+    private static final int SCENARIOS_PER_TASK = 4;
+
+    private final double[] mOneRms;
+    private final double[] mGains;
+    private final int[][] mWeekPercentages;
+    private final int mCycles;
+
+    /**
+     * Constructor.
+     *
+     * @param oneRms          The current one rep max of every lift.
+     * @param gains           How much the one rep max of every lift grows in a cycle.
+     * @param weekPercentages The set percentages of every week, counted from zero.
+     * @param cycles          The number of cycles to project.
+     */
+    public TrainingProjection(double[] oneRms,
+                              double[] gains,
+                              int[][] weekPercentages,
+                              int cycles) {
+        if (oneRms.length != gains.length) {
+            throw new IllegalArgumentException("Every lift needs a one rep max and a gain");
+        }
+        mOneRms = oneRms.clone();
+        mGains = gains.clone();
+        mWeekPercentages = new int[weekPercentages.length][];
+        for (int i = 0; i < weekPercentages.length; i++) {
+            mWeekPercentages[i] = weekPercentages[i].clone();
+        }
+        mCycles = cycles;
+    }
+
+    /**
+     * Project every scenario on the calling thread.
+     */
+    public ProjectionResult project(List<ProjectionScenario> scenarios) {
+        ProjectionResult result = newResult(scenarios);
+        project(scenarios, 0, scenarios.size(), result);
+        return result;
+    }
+
+    /**
+     * Project every scenario, splitting them into tasks run by an executor. Blocks until all of
+     * them are done.
+     */
+    public ProjectionResult project(final List<ProjectionScenario> scenarios,
+                                    ExecutorService executor) throws InterruptedException {
+        final ProjectionResult result = newResult(scenarios);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < scenarios.size(); start += SCENARIOS_PER_TASK) {
+            final int from = start;
+            final int to = Math.min(start + SCENARIOS_PER_TASK, scenarios.size());
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    project(scenarios, from, to, result);
+                    return null;
+                }
+            });
+        }
+
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Create the result for a list of scenarios, checking they all have every lift.
+     */
+    private ProjectionResult newResult(List<ProjectionScenario> scenarios) {
+        for (ProjectionScenario scenario : scenarios) {
+            if (scenario.getLiftCount() != mOneRms.length) {
+                throw new IllegalArgumentException("Every scenario needs an increment per lift");
+            }
+        }
+        return new ProjectionResult(scenarios.size(), mOneRms.length, mCycles);
+    }
+
+    /**
+     * Project a range of scenarios into the result.
+     */
+    private void project(List<ProjectionScenario> scenarios,
+                         int from,
+                         int to,
+                         ProjectionResult result) {
+        for (int scenario = from; scenario < to; scenario++) {
+            for (int lift = 0; lift < mOneRms.length; lift++) {
+                projectLift(scenarios.get(scenario), scenario, lift, result);
+            }
+        }
+    }
+
+    /**
+     * Walk one lift through the cycles week by week.
+     */
+    private void projectLift(ProjectionScenario scenario,
+                             int index,
+                             int lift,
+                             ProjectionResult result) {
+        ProgramConfig config = scenario.getConfig();
+        int trainingPercentage = scenario.getTrainingPercentage(lift);
+        double increment = scenario.getIncrement(lift);
+        double weeklyGain = mGains[lift] / WEEKS_IN_CYCLE;
+
+        double oneRm = mOneRms[lift];
+        double trainingMax = ProgramMath.calculateWeight(config, oneRm, trainingPercentage);
+        int week = 1;
+        int cycle = 0;
+        int deloads = 0;
+        boolean delayedDeload = false;
+        result.setTrainingMax(index, lift, 0, trainingMax);
+
+        while (cycle < mCycles) {
+            int nextCycle = cycle;
+            // A deload delayed by a failed week is done when the last week is reached.
+            boolean deloadNow = delayedDeload && week == WEEKS_IN_CYCLE;
+            if (!deloadNow && isWon(config, trainingMax, oneRm, week)) {
+                if (week < WEEKS_IN_CYCLE) {
+                    week++;
+                } else {
+                    week = 1;
+                    nextCycle++;
+                    trainingMax += increment;
+                }
+            } else {
+                CycleState state = new CycleState(week, cycle, trainingMax, 0);
+                ProgramMath.doDeload(config, state, trainingPercentage, increment);
+                week = state.getWeek();
+                nextCycle = state.getCycle();
+                trainingMax = state.getWeight();
+                if (state.doDelayedDeload()) {
+                    delayedDeload = true;
+                } else {
+                    delayedDeload = false;
+                    deloads++;
+                }
+            }
+            oneRm += weeklyGain;
+
+            if (nextCycle != cycle) {
+                cycle = nextCycle;
+                result.setTrainingMax(index, lift, cycle, trainingMax);
+            }
+        }
+        result.setDeloads(index, lift, deloads);
+    }
+
+    /**
+     * Return if the plus set of a week can be done for its rep goal with a one rep max.
+     */
+    private boolean isWon(ProgramConfig config, double trainingMax, double oneRm, int week) {
+        WeekScheme scheme = config.getTemplate().getWeek(week);
+        if (week > mWeekPercentages.length || scheme.isDeload()) {
+            return true;
+        }
+        int[] percentages = mWeekPercentages[week - 1];
+        if (percentages.length == 0) {
+            return true;
+        }
+        int last = percentages.length - 1;
+        double weight = ProgramMath.calculateWeight(config, trainingMax, percentages[last]);
+        return ProgramMath.calculateOneRm(weight, scheme.getReps(last)) <= oneRm;
+    }
+}
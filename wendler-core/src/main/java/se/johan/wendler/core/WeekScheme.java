@@ -0,0 +1,94 @@
+package se.johan.wendler.core;
+
+/**
+ * The sets of one week in a program. The weights of the main sets come from the percentages of
+ * the week, the scheme decides their reps and any supplemental work done after them.
+ */
+public class WeekScheme {
+
+    /**
+     * Supplemental percentage meaning the percentage of the first main set.
+     */
+    public static final int FIRST_SET = -1;
+
+    private final int[] mReps;
+    private final boolean mAmrap;
+    private final int mSupplementalPercentage;
+    private final int mSupplementalSets;
+    private final int mSupplementalReps;
+
+    /**
+     * Constructor for a week without supplemental work, reps null for the deload reps.
+     */
+    public WeekScheme(int[] reps, boolean amrap) {
+        this(reps, amrap, 0, 0, 0);
+    }
+
+    /**
+     * Constructor, reps null for the deload reps.
+     */
+    public WeekScheme(int[] reps,
+                      boolean amrap,
+                      int supplementalPercentage,
+                      int supplementalSets,
+                      int supplementalReps) {
+        if (reps != null && reps.length == 0) {
+            throw new IllegalArgumentException("A week needs at least one set");
+        }
+        mReps = reps == null ? null : reps.clone();
+        mAmrap = amrap;
+        mSupplementalPercentage = supplementalPercentage;
+        mSupplementalSets = supplementalSets;
+        mSupplementalReps = supplementalReps;
+    }
+
+    /**
+     * Return the rep goal of a main set, the last one is used for any set past the end.
+     */
+    int getReps(int set) {
+        return mReps[Math.min(set, mReps.length - 1)];
+    }
+
+    /**
+     * Return if the week uses the deload reps.
+     */
+    boolean isDeload() {
+        return mReps == null;
+    }
+
+    /**
+     * Return if as many reps as possible are done on the last main set.
+     */
+    public boolean isAmrap() {
+        return mAmrap;
+    }
+
+    /**
+     * Return if supplemental sets are done after the main sets.
+     */
+    public boolean hasSupplemental() {
+        return mSupplementalSets > 0;
+    }
+
+    /**
+     * Return the percentage of the supplemental sets given the percentages of the main sets.
+     */
+    int getSupplementalPercentage(int[] setPercentages) {
+        return mSupplementalPercentage == FIRST_SET
+                ? setPercentages[0] : mSupplementalPercentage;
+    }
+
+    /**
+     * Return the number of supplemental sets.
+     */
+    int getSupplementalSets() {
+        return mSupplementalSets;
+    }
+
+    /**
+     * Return the reps of each supplemental set.
+     */
+    int getSupplementalReps() {
+        return mSupplementalReps;
+    }
+}
@@ -6,5 +6,6 @@ package se.johan.wendler.model;
 public enum SetType {
     WARM_UP,
     REGULAR,
-    PLUS_SET
+    PLUS_SET,
+    SUPPLEMENTAL
 }
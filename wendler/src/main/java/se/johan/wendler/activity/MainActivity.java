@@ -28,11 +28,11 @@ import se.johan.wendler.fragment.base.DrawerFragment;
 import se.johan.wendler.model.ListItem;
 import se.johan.wendler.model.ListItemType;
 import se.johan.wendler.sql.SqlHandler;
+import se.johan.wendler.sql.WorkoutRepository;
 import se.johan.wendler.ui.adapter.DrawerAdapter;
 import se.johan.wendler.ui.dialog.ChangelogDialog;
 import se.johan.wendler.ui.view.MyDrawerLayout;
 import se.johan.wendler.util.Constants;
-import se.johan.wendler.util.MathHelper;
 import se.johan.wendler.util.PreferenceUtil;
 import se.johan.wendler.util.Utils;
 import se.johan.wendler.util.WendlerConstants;
@@ -45,6 +45,7 @@ public class MainActivity extends BaseActivity {
 
     public static final int REQUEST_WORKOUT_RESULT = 1337;
     public static final String ACTION_UPDATE = "action_update";
+    public static final String EXTRA_WORKOUT_ID = "workoutId";
 
     private static final String EXTRA_SAVED_SELECTION = "savedSelection";
     private static final String EXTRA_SAVED_EDIT_PAGE = "savedEditPage";
@@ -93,6 +94,7 @@ public class MainActivity extends BaseActivity {
 
         showChangelogIfNeeded();
         purgeExtraExercisesIfNeeded();
+        purgeDeletedWorkouts();
         updateCycleNameIfNeeded();
         migrateFromOldRoundToValues();
     }
@@ -184,6 +186,9 @@ public class MainActivity extends BaseActivity {
         WendlerizedLog.d("Received result with code " + resultCode);
         Intent intent = new Intent();
         intent.setAction(ACTION_UPDATE);
+        if (data != null) {
+            intent.putExtra(EXTRA_WORKOUT_ID, data.getIntExtra(EXTRA_WORKOUT_ID, -1));
+        }
         LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
     }
 
@@ -295,16 +300,36 @@ public class MainActivity extends BaseActivity {
                     this,
                     PreferenceUtil.KEY_ROUND_TO_VALUE,
                     2.5f);
-            MathHelper.getInstance().resetRoundToValue();
         } else if (roundToValue.equals("1")) {
             PreferenceUtil.putFloat(
                     this,
                     PreferenceUtil.KEY_ROUND_TO_VALUE,
                     5f);
-            MathHelper.getInstance().resetRoundToValue();
         }
     }
 
+    /**
+     * Purge the workouts deleted from the history whose undo went away with a previous
+     * activity before it was dismissed.
+     */
+    private void purgeDeletedWorkouts() {
+        WorkoutRepository.getInstance(this).write(
+                new WorkoutRepository.Query<Integer>() {
+                    @Override
+                    public Integer run(SqlHandler handler) {
+                        return handler.purgeDeletedWorkouts();
+                    }
+                },
+                new WorkoutRepository.Callback<Integer>() {
+                    @Override
+                    public void onResult(Integer purged) {
+                        if (purged != null && purged > 0) {
+                            WendlerizedLog.d("Purged " + purged + " deleted workouts");
+                        }
+                    }
+                });
+    }
+
     /**
      * Called ot update the mCycle mName if needed
      */
@@ -1,6 +1,7 @@
 package se.johan.wendler.activity;
 
 import android.R.anim;
+import android.app.ProgressDialog;
 import android.content.Intent;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
@@ -25,20 +26,21 @@ import se.johan.wendler.fragment.InitWeightFragment;
 import se.johan.wendler.fragment.base.InitFragment;
 import se.johan.wendler.sql.SqlHandler;
 import se.johan.wendler.ui.dialog.ConfirmationDialog;
-import se.johan.wendler.util.Constants;
+import se.johan.wendler.util.MigrationRunner;
 import se.johan.wendler.util.PreferenceUtil;
 import se.johan.wendler.util.Utils;
-import se.johan.wendler.util.WendlerMath;
 import se.johan.wendler.util.WendlerizedLog;
 
 /**
  * Activity handling the initial setup of the application
  */
 public class StartupActivity extends BaseActivity
-        implements ConfirmationDialog.ConfirmationDialogListener, ViewPager.OnPageChangeListener {
+        implements ConfirmationDialog.ConfirmationDialogListener, ViewPager.OnPageChangeListener,
+        MigrationRunner.MigrationListener {
 
     private static final String CURRENT_PAGE = "currentPage";
     private ViewPager mViewPager;
+    private ProgressDialog mProgressDialog;
     private static final SparseArray<InitFragment> mFragmentList = new SparseArray<InitFragment>();
 
     /**
@@ -49,10 +51,13 @@ public class StartupActivity extends BaseActivity
         super.onCreate(savedInstanceState, R.layout.activity_startup);
 
         if (isInitialized()) {
-            WendlerizedLog.d("Already initialized! Start the MainActivity");
-
-            recalculateOneRmIfNeeded();
+            if (MigrationRunner.isTrainingMaxUpdateNeeded(this)) {
+                WendlerizedLog.d("Update to TM before starting the MainActivity");
+                updateToTrainingMax();
+                return;
+            }
 
+            WendlerizedLog.d("Already initialized! Start the MainActivity");
             startActivity(new Intent(this, MainActivity.class));
             finish();
             return;
@@ -104,6 +109,19 @@ public class StartupActivity extends BaseActivity
         mSlidingTabLayout.setOnPageChangeListener(this);
     }
 
+    /**
+     * Called when the Activity is destroyed.
+     */
+    @Override
+    protected void onDestroy() {
+        if (mProgressDialog != null) {
+            MigrationRunner.getInstance().setListener(null);
+            mProgressDialog.dismiss();
+            mProgressDialog = null;
+        }
+        super.onDestroy();
+    }
+
     /**
      * Called when our instances need to be saved.
      */
@@ -276,48 +294,42 @@ public class StartupActivity extends BaseActivity
 
     /**
      * Due to the change with using TM instead of real max we need to calculate the tm and update
-     * it properly.
+     * it properly. Done in the background while showing the progress.
      */
-    private void recalculateOneRmIfNeeded() {
+    private void updateToTrainingMax() {
+        mProgressDialog = new ProgressDialog(this);
+        mProgressDialog.setTitle(R.string.update_to_tm_title);
+        mProgressDialog.setMessage(getString(R.string.update_to_tm_message));
+        mProgressDialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        mProgressDialog.setIndeterminate(true);
+        mProgressDialog.setCancelable(false);
+        mProgressDialog.show();
+        MigrationRunner.getInstance().runTrainingMaxUpdate(this, this);
+    }
 
-        if (!PreferenceUtil.getBoolean(this, PreferenceUtil.KEY_UPDATE_TO_TM)) {
-            SqlHandler handler = new SqlHandler(this);
-            try {
-                handler.open();
-                double newPressWeight = WendlerMath.calculateWeight(
-                        this,
-                        handler.getOneRmForExercise(Constants.EXERCISES[0]),
-                        handler.getWorkoutPercentage(Constants.EXERCISES[0]));
-
-                double newDeadliftWeight = WendlerMath.calculateWeight(
-                        this,
-                        handler.getOneRmForExercise(Constants.EXERCISES[1]),
-                        handler.getWorkoutPercentage(Constants.EXERCISES[1]));
-
-                double newBenchWeight = WendlerMath.calculateWeight(
-                        this,
-                        handler.getOneRmForExercise(Constants.EXERCISES[2]),
-                        handler.getWorkoutPercentage(Constants.EXERCISES[2]));
-
-                double newSquatWeight = WendlerMath.calculateWeight(
-                        this,
-                        handler.getOneRmForExercise(Constants.EXERCISES[3]),
-                        handler.getWorkoutPercentage(Constants.EXERCISES[3]));
-
-                handler.updateOneRm(
-                        newPressWeight,
-                        newDeadliftWeight,
-                        newBenchWeight,
-                        newSquatWeight);
-
-                handler.updateOldWorkouts();
-                PreferenceUtil.putBoolean(this, PreferenceUtil.KEY_UPDATE_TO_TM, true);
-            } catch (SQLException e) {
-                WendlerizedLog.e("Failed to update to TM", e);
-            } finally {
-                handler.close();
-            }
+    /**
+     * Called when a batch of workouts has been updated to TM.
+     */
+    @Override
+    public void onMigrationProgress(int done, int total) {
+        if (mProgressDialog != null && total > 0) {
+            mProgressDialog.setIndeterminate(false);
+            mProgressDialog.setMax(total);
+            mProgressDialog.setProgress(done);
+        }
+    }
+
+    /**
+     * Called when the update to TM is done, tried again on next start if it failed.
+     */
+    @Override
+    public void onMigrationFinished(boolean success) {
+        if (mProgressDialog != null) {
+            mProgressDialog.dismiss();
+            mProgressDialog = null;
         }
+        startActivity(new Intent(this, MainActivity.class));
+        finish();
     }
 
     /**
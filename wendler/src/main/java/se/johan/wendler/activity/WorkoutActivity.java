@@ -5,6 +5,8 @@ import android.app.ActionBar.Tab;
 import android.app.ActionBar.TabListener;
 import android.app.Activity;
 import android.app.FragmentTransaction;
+import android.content.Context;
+import android.content.Intent;
 import android.content.res.Resources;
 import android.os.Build;
 import android.os.Bundle;
@@ -13,7 +15,6 @@ import android.support.v4.app.FragmentManager;
 import android.support.v4.view.PagerAdapter;
 import android.support.v4.view.ViewPager;
 import android.support.v4.view.ViewPager.OnPageChangeListener;
-import android.text.format.Time;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -27,23 +28,26 @@ import com.getbase.floatingactionbutton.FloatingActionsMenu;
 import com.nispok.snackbar.Snackbar;
 import com.nispok.snackbar.listeners.EventListener;
 
-import java.sql.SQLException;
+import java.util.TimeZone;
 
 import se.johan.wendler.R;
 import se.johan.wendler.activity.base.BaseActivity;
 import se.johan.wendler.animation.ZoomOutPageTransformer;
+import se.johan.wendler.core.EpochDay;
 import se.johan.wendler.fragment.WorkoutAdditionalFragment;
 import se.johan.wendler.fragment.WorkoutMainFragment;
 import se.johan.wendler.fragment.base.WorkoutFragment;
 import se.johan.wendler.model.Action;
+import se.johan.wendler.model.AdditionalExercise;
 import se.johan.wendler.model.Workout;
 import se.johan.wendler.sql.SqlHandler;
+import se.johan.wendler.sql.WorkoutRepository;
+import se.johan.wendler.sql.WorkoutStore;
 import se.johan.wendler.ui.dialog.ConfirmationDialog;
 import se.johan.wendler.ui.dialog.EditTextDialog;
 import se.johan.wendler.ui.dialog.StopwatchDialog;
-import se.johan.wendler.util.Constants;
+import se.johan.wendler.util.SessionJournal;
 import se.johan.wendler.util.WendlerizedLog;
-import se.johan.wendler.util.WorkoutHolder;
 
 /**
  * Activity for handling the workout fragments
@@ -54,17 +58,24 @@ public class WorkoutActivity extends BaseActivity implements
         EditTextDialog.EditTextListener,
         StopwatchDialog.StopWatchListener,
         ConfirmationDialog.ConfirmationDialogListener,
+        WorkoutFragment.SessionListener,
         EventListener {
 
+    private static final String EXTRA_WORKOUT_ID = "workoutId";
+    private static final String EXTRA_WEEK = "week";
+    private static final String EXTRA_NAME = "name";
+    private static final String EXTRA_WORKOUT_DATE = "workoutDate";
     private static final String EXTRA_ELAPSED_TIME = "elapsedTime";
     private static final String EXTRA_TIMER_IS_RUNNING = "timerIsRunning";
     private static final String EXTRA_CURRENT_PAGE = "mCurrentPage";
 
     private ViewPager mViewPager;
     private Workout mWorkout;
+    private SessionJournal mJournal;
     private int mCurrentPage;
     private long mTimeElapsed = -1;
     private boolean mTimerIsRunning;
+    private boolean mIsStoring;
 
     /**
      * Called when our activity is created.
@@ -76,19 +87,45 @@ public class WorkoutActivity extends BaseActivity implements
 
         overrideElevation(getResources().getDimension(R.dimen.toolbar_elevation));
 
-        if (savedInstanceState != null) {
-            mWorkout = savedInstanceState.getParcelable(Constants.BUNDLE_EXERCISE_ITEM);
-            mTimerIsRunning = savedInstanceState.getBoolean(EXTRA_TIMER_IS_RUNNING);
-            mCurrentPage = savedInstanceState.getInt(EXTRA_CURRENT_PAGE, 0);
-            mTimeElapsed = savedInstanceState.getLong(EXTRA_ELAPSED_TIME, -1);
-        } else {
-            WorkoutHolder.WorkoutItem item = WorkoutHolder.getInstance().getWorkout();
-            mWorkout = item.getWorkout();
-            mTimerIsRunning = item.isTimerRunning();
-            mCurrentPage = item.getCurrentPage();
-            mTimeElapsed = item.getElapsedTime();
+        final Bundle state =
+                savedInstanceState != null ? savedInstanceState : getIntent().getExtras();
+        mTimerIsRunning = state.getBoolean(EXTRA_TIMER_IS_RUNNING);
+        mCurrentPage = state.getInt(EXTRA_CURRENT_PAGE, 0);
+        mTimeElapsed = state.getLong(EXTRA_ELAPSED_TIME, -1);
+        WorkoutStore.getInstance().load(this,
+                state.getInt(EXTRA_WORKOUT_ID, -1),
+                state.getInt(EXTRA_WEEK),
+                state.getString(EXTRA_NAME),
+                new WorkoutRepository.Callback<Workout>() {
+                    @Override
+                    public void onResult(Workout workout) {
+                        if (isFinishing()) {
+                            return;
+                        }
+                        if (workout == null) {
+                            WendlerizedLog.d("The workout to show is gone");
+                            finish();
+                            return;
+                        }
+                        onWorkoutLoaded(workout, state);
+                    }
+                });
+    }
+
+    /**
+     * Show a workout once it is loaded, with the changes made to it before the activity was
+     * recreated or the process was killed.
+     */
+    private void onWorkoutLoaded(Workout workout, Bundle state) {
+        mWorkout = workout;
+        if (state.containsKey(EXTRA_WORKOUT_DATE)) {
+            mWorkout.updateWorkoutDate(state.getInt(EXTRA_WORKOUT_DATE));
         }
 
+        // Put back what was done before the process was killed, before the fragments are made
+        mJournal = SessionJournal.open(this, mWorkout);
+        mJournal.replay(mReplayer);
+
         FragmentManager fragmentManager = initFragmentManagement();
 
         CalendarDatePickerDialog dialog = (CalendarDatePickerDialog)
@@ -109,6 +146,25 @@ public class WorkoutActivity extends BaseActivity implements
         updateHelpMessage(subtitle);
 
         initActionButton();
+        invalidateOptionsMenu();
+    }
+
+    /**
+     * Return an intent showing a workout, which is found in the {@link WorkoutStore}.
+     */
+    public static Intent createIntent(Context context, Workout workout) {
+        return createIntent(context, workout.getWorkoutId(), workout.getWeek(), workout.getName());
+    }
+
+    /**
+     * Return an intent showing a workout, which is loaded by the activity itself.
+     */
+    public static Intent createIntent(Context context, int workoutId, int week, String name) {
+        Intent intent = new Intent(context, WorkoutActivity.class);
+        intent.putExtra(EXTRA_WORKOUT_ID, workoutId);
+        intent.putExtra(EXTRA_WEEK, week);
+        intent.putExtra(EXTRA_NAME, name);
+        return intent;
     }
 
     /**
@@ -117,13 +173,10 @@ public class WorkoutActivity extends BaseActivity implements
     @Override
     protected void onPause() {
         super.onPause();
-        int pos = mViewPager != null ? mViewPager.getCurrentItem() : mCurrentPage;
-        WorkoutHolder.getInstance().putWorkout(
-                new WorkoutHolder.WorkoutItem(
-                        mWorkout,
-                        pos,
-                        mTimerIsRunning,
-                        mTimeElapsed));
+        // The changes are found in the journal by a recreated activity, not in the store
+        if (mJournal != null) {
+            mJournal.flush();
+        }
     }
 
     @Override
@@ -163,11 +216,14 @@ public class WorkoutActivity extends BaseActivity implements
                         .show(getSupportFragmentManager(), StopwatchDialog.TAG);
                 return true;
             case R.id.action_calendar:
-                Time time = mWorkout.getWorkoutTime();
+                int date = mWorkout.getWorkoutDate();
+                if (date == Workout.NO_DATE) {
+                    date = EpochDay.fromMillis(System.currentTimeMillis(), TimeZone.getDefault());
+                }
                 CalendarDatePickerDialog.newInstance(mDateSetListener,
-                        time.year,
-                        time.month,
-                        time.monthDay)
+                        EpochDay.getYear(date),
+                        EpochDay.getMonth(date),
+                        EpochDay.getDayOfMonth(date))
                         .show(getSupportFragmentManager(),
                                 CalendarDatePickerDialog.class.getName());
                 return true;
@@ -191,7 +247,16 @@ public class WorkoutActivity extends BaseActivity implements
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
         int pos = mViewPager != null ? mViewPager.getCurrentItem() : mCurrentPage;
-        outState.putParcelable(Constants.BUNDLE_EXERCISE_ITEM, mWorkout);
+        if (mWorkout != null) {
+            outState.putInt(EXTRA_WORKOUT_ID, mWorkout.getWorkoutId());
+            outState.putInt(EXTRA_WEEK, mWorkout.getWeek());
+            outState.putString(EXTRA_NAME, mWorkout.getName());
+            // The date picked in the calendar isn't journaled
+            outState.putInt(EXTRA_WORKOUT_DATE, mWorkout.getWorkoutDate());
+        } else {
+            // Still loading, keep what was asked for
+            outState.putAll(getIntent().getExtras());
+        }
         outState.putBoolean(EXTRA_TIMER_IS_RUNNING, mTimerIsRunning);
         outState.putInt(EXTRA_CURRENT_PAGE, pos);
         outState.putLong(EXTRA_ELAPSED_TIME, mTimeElapsed);
@@ -275,6 +340,7 @@ public class WorkoutActivity extends BaseActivity implements
     @Override
     public void getTextFromDialog(String text) {
         mWorkout.updateNotes(text);
+        mJournal.recordNotes(text);
     }
 
     /**
@@ -284,44 +350,39 @@ public class WorkoutActivity extends BaseActivity implements
     public void onStopwatchDismissed(long timeElapsed, boolean isRunning) {
         mTimeElapsed = timeElapsed;
         mTimerIsRunning = isRunning;
+        if (mJournal != null) {
+            mJournal.recordStopwatch(timeElapsed, isRunning);
+        }
     }
 
     /**
-     * Called when our confirmation dialog is closed.
+     * Called when the reps of the main exercise are changed.
      */
     @Override
-    public void onDialogConfirmed(boolean confirmed) {
-        FragmentManager fragmentManager = getSupportFragmentManager();
-
-        WorkoutFragment main =
-                (WorkoutMainFragment) fragmentManager.findFragmentByTag(WorkoutMainFragment.TAG);
-        WorkoutFragment extra = (WorkoutAdditionalFragment)
-                fragmentManager.findFragmentByTag(WorkoutAdditionalFragment.TAG);
-
-        SqlHandler handler = new SqlHandler(this);
-        try {
-            handler.open();
-
-            if (!handler.doDeload(mWorkout)) {
-                int workoutId = mWorkout.getWorkoutId() == -1 ?
-                        handler.getNextWorkoutId() : mWorkout.getWorkoutId();
-                mWorkout.setWorkoutId(workoutId);
-                int code = Activity.RESULT_CANCELED;
-                if (main.storeWorkout(true, mWorkout, handler, !confirmed)
-                        && extra.storeWorkout(true, mWorkout, handler, !confirmed)) {
-                    code = Activity.RESULT_OK;
-                }
-                setResult(code);
-                finish();
-            }
+    public void onMainProgressChanged(int reps) {
+        if (mJournal != null) {
+            mJournal.recordMainProgress(reps);
+        }
+    }
 
-        } catch (SQLException e) {
-            WendlerizedLog.e("Failed to store mWorkout on deload", e);
-        } finally {
-            handler.close();
+    /**
+     * Called when the progress of an additional exercise is changed.
+     */
+    @Override
+    public void onExtraProgressChanged(int exerciseId, int progress) {
+        if (mJournal != null) {
+            mJournal.recordExtraProgress(exerciseId, progress);
         }
     }
 
+    /**
+     * Called when our confirmation dialog is closed.
+     */
+    @Override
+    public void onDialogConfirmed(boolean confirmed) {
+        storeWorkout(true, !confirmed, true);
+    }
+
     /**
      * Called when snack bar is shown.
      */
@@ -368,54 +429,144 @@ public class WorkoutActivity extends BaseActivity implements
      * Check if we should deload the workout.
      */
     private void checkWorkoutForDeload(boolean complete) {
-        SqlHandler handler = new SqlHandler(this);
-        try {
-            handler.open();
-
-            if (!handler.doDeload(mWorkout)) {
-                WendlerizedLog.d("No need to deload, store the workout");
-                storeWorkout(handler, complete);
-            } else if (complete) {
-                WendlerizedLog.d("Workout is completed, but we should deload");
-                ConfirmationDialog.newInstance(
-                        getString(R.string.delayed_deload_message),
-                        getString(R.string.delayed_deload_title),
-                        getString(R.string.do_continue),
-                        getString(R.string.do_deload),
-                        null).show(getSupportFragmentManager(), ConfirmationDialog.TAG);
-            }
-        } catch (SQLException e) {
-            WendlerizedLog.e("Failed to store mWorkout", e);
-        } finally {
-            handler.close();
+        if (mWorkout == null) {
+            // Left before the workout was loaded, nothing was changed
+            return;
+        }
+        if (!complete) {
+            // The activity is finishing, the check is done with the store
+            storeWorkout(false, false, true);
+            return;
         }
+
+        final Workout workout = mWorkout;
+        WorkoutRepository.getInstance(this).write(
+                new WorkoutRepository.Query<Boolean>() {
+                    @Override
+                    public Boolean run(SqlHandler handler) {
+                        return handler.doDeload(workout);
+                    }
+                },
+                new WorkoutRepository.Callback<Boolean>() {
+                    @Override
+                    public void onResult(Boolean deload) {
+                        if (deload == null || isFinishing()) {
+                            return;
+                        }
+                        if (!deload) {
+                            WendlerizedLog.d("No need to deload, store the workout");
+                            storeWorkout(true, false, false);
+                        } else {
+                            WendlerizedLog.d("Workout is completed, but we should deload");
+                            ConfirmationDialog.newInstance(
+                                    getString(R.string.delayed_deload_message),
+                                    getString(R.string.delayed_deload_title),
+                                    getString(R.string.do_continue),
+                                    getString(R.string.do_deload),
+                                    null).show(getSupportFragmentManager(),
+                                    ConfirmationDialog.TAG);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Return the result data telling the caller which workout was stored.
+     */
+    private Intent getResultData() {
+        Intent data = new Intent();
+        data.putExtra(MainActivity.EXTRA_WORKOUT_ID, mWorkout.getWorkoutId());
+        return data;
     }
 
     /**
-     * Store our workout in the database.
+     * Store our workout in the database off the main thread, then finish with the result. A
+     * workout which should deload is left as it is when the check is asked for.
      */
-    private void storeWorkout(SqlHandler handler, boolean isComplete) {
+    private void storeWorkout(final boolean isComplete,
+                              boolean delayedDeload,
+                              final boolean checkDeload) {
+        if (mIsStoring) {
+            return;
+        }
+        mIsStoring = true;
+
         FragmentManager fragmentManager = getSupportFragmentManager();
 
         WorkoutFragment main =
                 (WorkoutMainFragment) fragmentManager.findFragmentByTag(WorkoutMainFragment.TAG);
-        WorkoutFragment extra = (WorkoutAdditionalFragment)
+        WorkoutAdditionalFragment extra = (WorkoutAdditionalFragment)
                 fragmentManager.findFragmentByTag(WorkoutAdditionalFragment.TAG);
 
-        int workoutId = mWorkout.getWorkoutId() == -1 ?
-                handler.getNextWorkoutId() : mWorkout.getWorkoutId();
-        mWorkout.setWorkoutId(workoutId);
-        int code = Activity.RESULT_CANCELED;
-        if (main.storeWorkout(isComplete, mWorkout, handler, false)
-                && extra.storeWorkout(isComplete, mWorkout, handler, false)) {
-            code = Activity.RESULT_OK;
-        }
-        WendlerizedLog.d("Stored workout and we were successful: " + (code == Activity.RESULT_OK));
-        setResult(code);
-        WorkoutHolder.getInstance().destroy();
-        finish();
+        final Workout workout = mWorkout;
+        final boolean isNew = isComplete && !workout.isComplete();
+        final boolean isExtraStarted = extra.isStarted();
+        main.prepareWorkout(isComplete, workout, delayedDeload);
+        extra.prepareWorkout(isComplete, workout, delayedDeload);
+
+        WorkoutRepository.getInstance(this).write(
+                new WorkoutRepository.Query<Boolean>() {
+                    @Override
+                    public Boolean run(SqlHandler handler) {
+                        if (checkDeload && handler.doDeload(workout)) {
+                            return false;
+                        }
+                        if (workout.getWorkoutId() == -1) {
+                            workout.setWorkoutId(handler.getNextWorkoutId());
+                        }
+                        return handler.storeWorkout(workout, isComplete, isNew, isExtraStarted);
+                    }
+                },
+                new WorkoutRepository.Callback<Boolean>() {
+                    @Override
+                    public void onResult(Boolean stored) {
+                        mIsStoring = false;
+                        int code = Activity.RESULT_CANCELED;
+                        if (stored != null && stored) {
+                            // The journal is compacted into the stored workout
+                            code = Activity.RESULT_OK;
+                            mJournal.delete();
+                        }
+                        WendlerizedLog.d("Stored workout and we were successful: "
+                                + (code == Activity.RESULT_OK));
+                        setResult(code, getResultData());
+                        finish();
+                    }
+                });
     }
 
+    /**
+     * Applies the session journal to the workout.
+     */
+    private final SessionJournal.Replayer mReplayer = new SessionJournal.Replayer() {
+
+        @Override
+        public void onMainProgress(int reps) {
+            mWorkout.getMainExercise().setLastSetProgress(reps);
+            mWorkout.getMainExercise().recalculateEstOneRm();
+        }
+
+        @Override
+        public void onExtraProgress(int exerciseId, int progress) {
+            for (AdditionalExercise exercise : mWorkout.getAdditionalExercises()) {
+                if (exercise.getExerciseId() == exerciseId) {
+                    exercise.setProgress(0, progress);
+                }
+            }
+        }
+
+        @Override
+        public void onStopwatch(long elapsed, boolean isRunning) {
+            mTimeElapsed = elapsed;
+            mTimerIsRunning = isRunning;
+        }
+
+        @Override
+        public void onNotes(String notes) {
+            mWorkout.updateNotes(notes);
+        }
+    };
+
     /**
      * Listener for the CalenderPicker.
      */
@@ -378,5 +378,10 @@ public class AddExtraExerciseFragment extends Fragment implements
             AdditionalExercise exercise = mExercises.get(position);
             launchAddDialog(exercise, exercise.getExerciseId());
         }
+
+        @Override
+        public void onProgressChanged(int position) {
+            // Not used here
+        }
     };
 }
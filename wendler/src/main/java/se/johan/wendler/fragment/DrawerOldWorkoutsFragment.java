@@ -7,7 +7,6 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.graphics.Color;
 import android.os.Bundle;
-import android.os.Parcelable;
 import android.support.v4.content.LocalBroadcastManager;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -21,21 +20,18 @@ import com.mobeta.android.dslv.SimpleFloatViewManager;
 import com.nispok.snackbar.Snackbar;
 import com.nispok.snackbar.SnackbarManager;
 import com.nispok.snackbar.listeners.ActionClickListener;
+import com.nispok.snackbar.listeners.EventListener;
 
-import java.sql.SQLException;
 import java.util.ArrayList;
 
 import se.johan.wendler.R;
 import se.johan.wendler.activity.MainActivity;
-import se.johan.wendler.activity.WorkoutActivity;
 import se.johan.wendler.fragment.base.DrawerFragment;
-import se.johan.wendler.model.TapToUndoItem;
-import se.johan.wendler.model.Workout;
+import se.johan.wendler.model.WorkoutSummary;
 import se.johan.wendler.sql.SqlHandler;
+import se.johan.wendler.sql.WorkoutRepository;
 import se.johan.wendler.ui.adapter.WorkoutListAdapter;
 import se.johan.wendler.util.CardsOptionHandler;
-import se.johan.wendler.util.Constants;
-import se.johan.wendler.util.WendlerizedLog;
 
 /**
  * Fragment for displaying old workouts.
@@ -48,10 +44,11 @@ public class DrawerOldWorkoutsFragment extends DrawerFragment implements
     public static final String TAG = DrawerOldWorkoutsFragment.class.getName();
 
     private static final String EXTRA_KEY_LIMIT = "keyLimit";
+    private static final int PAGE_SIZE = 10;
 
-    private static final ArrayList<Workout> sWorkouts = new ArrayList<Workout>();
+    private static final ArrayList<WorkoutSummary> sWorkouts = new ArrayList<WorkoutSummary>();
 
-    private int mLimit = 10;
+    private int mLimit = PAGE_SIZE;
     private View mFooterView;
     private WorkoutListAdapter mAdapter;
     private DragSortListView mDragSortListView;
@@ -114,22 +111,10 @@ public class DrawerOldWorkoutsFragment extends DrawerFragment implements
         View view = inflater.inflate(R.layout.list_old_workout, container, false);
 
         if (savedInstanceState != null) {
-            mLimit = savedInstanceState.getInt(EXTRA_KEY_LIMIT, 10);
-        }
-
-        SqlHandler sqlHandler = new SqlHandler(getActivity());
-        int count = 0;
-        try {
-            sqlHandler.open();
-            count = sqlHandler.getOldWorkoutsCount();
-            sWorkouts.clear();
-            sWorkouts.addAll(sqlHandler.getOldWorkouts(mLimit));
-        } catch (SQLException e) {
-            WendlerizedLog.e("Failed to get old workouts", e);
-        } finally {
-            sqlHandler.close();
+            mLimit = Math.max(PAGE_SIZE, savedInstanceState.getInt(EXTRA_KEY_LIMIT, PAGE_SIZE));
         }
 
+        sWorkouts.clear();
         mDragSortListView = (DragSortListView) view.findViewById(R.id.list_drag);
 
         mAdapter = new WorkoutListAdapter(
@@ -138,11 +123,10 @@ public class DrawerOldWorkoutsFragment extends DrawerFragment implements
                 WorkoutListAdapter.TYPE_OLD_WORKOUTS,
                 this);
 
-        if (count > mLimit) {
-            mFooterView = inflater.inflate(R.layout.footer_load_more, null);
-            mFooterView.setOnClickListener(this);
-            mDragSortListView.addFooterView(mFooterView);
-        }
+        mFooterView = inflater.inflate(R.layout.footer_load_more, null);
+        mFooterView.setOnClickListener(this);
+        mFooterView.setVisibility(View.GONE);
+        mDragSortListView.addFooterView(mFooterView);
 
         mDragSortListView.setAdapter(mAdapter);
         mDragSortListView.setOnItemClickListener(this);
@@ -150,19 +134,53 @@ public class DrawerOldWorkoutsFragment extends DrawerFragment implements
 
         mNoItemsView = view.findViewById(R.id.no_items_view);
 
-        setVisibilityOfViews(sWorkouts.isEmpty());
+        // Neither the list nor the hint is shown until the first page has been loaded.
+        mDragSortListView.setVisibility(View.GONE);
+        loadWorkouts(mLimit);
 
         return view;
     }
 
+    /**
+     * Load the given number of the newest workouts, replacing the loaded ones.
+     */
+    private void loadWorkouts(final int limit) {
+        WorkoutRepository.getInstance(getActivity()).read(
+                new WorkoutRepository.Query<Page>() {
+                    @Override
+                    public Page run(SqlHandler handler) {
+                        return new Page(handler.getOldWorkoutSummaries(limit),
+                                handler.getOldWorkoutsCount());
+                    }
+                },
+                new WorkoutRepository.Callback<Page>() {
+                    @Override
+                    public void onResult(Page page) {
+                        if (!isAdded() || page == null) {
+                            return;
+                        }
+                        sWorkouts.clear();
+                        sWorkouts.addAll(page.workouts);
+                        onPageLoaded(page.count);
+                    }
+                });
+    }
+
+    /**
+     * Update the views after workouts have been loaded.
+     */
+    private void onPageLoaded(int count) {
+        mAdapter.notifyDataSetChanged();
+        mFooterView.setVisibility(count > sWorkouts.size() ? View.VISIBLE : View.GONE);
+        setVisibilityOfViews(sWorkouts.isEmpty());
+    }
+
     /**
      * Called when an item in the list is clicked.
      */
     @Override
     public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-        Intent intent = new Intent(getActivity(), WorkoutActivity.class);
-        intent.putExtra(Constants.BUNDLE_EXERCISE_ITEM, sWorkouts.get(position));
-        startActivityForResult(intent, MainActivity.REQUEST_WORKOUT_RESULT);
+        mAdapter.openWorkout(position);
     }
 
     /**
@@ -170,26 +188,39 @@ public class DrawerOldWorkoutsFragment extends DrawerFragment implements
      */
     @Override
     public void onClick(View v) {
-        SqlHandler sqlHandler = new SqlHandler(getActivity());
-        try {
-            sqlHandler.open();
-
-            mLimit += 10;
-            int count = sqlHandler.getOldWorkoutsCount();
-
-            sWorkouts.clear();
-            sWorkouts.addAll(sqlHandler.getOldWorkouts(mLimit));
-
-            mAdapter.notifyDataSetChanged();
-
-            int visibility = count > mLimit ? View.VISIBLE : View.GONE;
-            mFooterView.setVisibility(visibility);
-
-        } catch (SQLException e) {
-            WendlerizedLog.e("Failed to get more old workouts", e);
-        } finally {
-            sqlHandler.close();
+        if (sWorkouts.isEmpty()) {
+            loadWorkouts(PAGE_SIZE);
+            return;
         }
+
+        mFooterView.setEnabled(false);
+        final WorkoutSummary last = sWorkouts.get(sWorkouts.size() - 1);
+        WorkoutRepository.getInstance(getActivity()).read(
+                new WorkoutRepository.Query<Page>() {
+                    @Override
+                    public Page run(SqlHandler handler) {
+                        return new Page(handler.getOldWorkoutSummariesAfter(last, PAGE_SIZE),
+                                handler.getOldWorkoutsCount());
+                    }
+                },
+                new WorkoutRepository.Callback<Page>() {
+                    @Override
+                    public void onResult(Page page) {
+                        if (!isAdded()) {
+                            return;
+                        }
+                        mFooterView.setEnabled(true);
+                        if (page == null) {
+                            return;
+                        }
+                        // The list may have changed while loading, only append after the same row.
+                        if (!sWorkouts.isEmpty() && sWorkouts.get(sWorkouts.size() - 1) == last) {
+                            sWorkouts.addAll(page.workouts);
+                            mLimit = sWorkouts.size();
+                        }
+                        onPageLoaded(page.count);
+                    }
+                });
     }
 
     /**
@@ -198,7 +229,7 @@ public class DrawerOldWorkoutsFragment extends DrawerFragment implements
     @Override
     public void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
-        outState.putInt(EXTRA_KEY_LIMIT, mLimit);
+        outState.putInt(EXTRA_KEY_LIMIT, Math.max(mLimit, sWorkouts.size()));
     }
 
     /**
@@ -210,21 +241,22 @@ public class DrawerOldWorkoutsFragment extends DrawerFragment implements
             return;
         }
 
-        Workout workout = sWorkouts.get(position);
-        sWorkouts.remove(position);
+        WorkoutSummary summary = sWorkouts.remove(position);
+        final DeletedWorkout deleted = new DeletedWorkout(summary, position);
 
-        createSnackBar(workout, new TapToUndoItem(workout, position));
+        createSnackBar(deleted);
         mAdapter.notifyDataSetChanged();
         setVisibilityOfViews(sWorkouts.isEmpty());
-        SqlHandler sql = new SqlHandler(getActivity());
-        try {
-            sql.open();
-            sql.deleteWorkout(workout);
-        } catch (SQLException e) {
-            WendlerizedLog.e("Failed to remove old workout", e);
-        } finally {
-            sql.close();
-        }
+
+        // Only hidden until the snack bar is gone, an undo flips the flag back
+        WorkoutRepository.getInstance(getActivity()).write(
+                new WorkoutRepository.Query<Void>() {
+                    @Override
+                    public Void run(SqlHandler handler) {
+                        handler.setWorkoutDeleted(deleted.summary.getWorkoutId(), true);
+                        return null;
+                    }
+                }, null);
     }
 
     /**
@@ -245,12 +277,13 @@ public class DrawerOldWorkoutsFragment extends DrawerFragment implements
     /**
      * Create a snack bar where the user can undo the deletion.
      */
-    private void createSnackBar(Workout workout, TapToUndoItem item) {
+    private void createSnackBar(DeletedWorkout deleted) {
         SnackbarManager.dismiss();
         Snackbar bar = Snackbar.with(getActivity())
-                .text(getSnackBarText(workout))
+                .text(getSnackBarText(deleted.summary))
                 .actionLabel(getString(R.string.undo))
-                .actionListener(getActionListener(item));
+                .actionListener(getActionListener(deleted))
+                .eventListener(getEventListener(deleted));
         SnackbarManager.show(bar);
     }
 
@@ -266,40 +299,78 @@ public class DrawerOldWorkoutsFragment extends DrawerFragment implements
     /**
      * Returns an ActionListener for undoing the deletion.
      */
-    private ActionClickListener getActionListener(final TapToUndoItem item) {
+    private ActionClickListener getActionListener(final DeletedWorkout deleted) {
         return new ActionClickListener() {
             @Override
             public void onActionClicked(Snackbar snackbar) {
-                onUndo(item);
+                onUndo(deleted);
+            }
+        };
+    }
+
+    /**
+     * Returns an EventListener purging the deleted workout once it can't be undone.
+     */
+    private EventListener getEventListener(final DeletedWorkout deleted) {
+        final Context context = getActivity().getApplicationContext();
+        return new EventListener() {
+            @Override
+            public void onShow(Snackbar snackbar) {
+                // Not used here
+            }
+
+            @Override
+            public void onShown(Snackbar snackbar) {
+                // Not used here
+            }
+
+            @Override
+            public void onDismiss(Snackbar snackbar) {
+                // Not used here
+            }
+
+            @Override
+            public void onDismissed(Snackbar snackbar) {
+                if (deleted.isUndone) {
+                    return;
+                }
+                WorkoutRepository.getInstance(context).write(
+                        new WorkoutRepository.Query<Void>() {
+                            @Override
+                            public Void run(SqlHandler handler) {
+                                handler.purgeDeletedWorkout(deleted.summary.getWorkoutId());
+                                return null;
+                            }
+                        }, null);
             }
         };
     }
+
     /**
      * Returns the text for the snack bar.
      */
-    private String getSnackBarText(Workout workout) {
+    private String getSnackBarText(WorkoutSummary workout) {
         return String.format(getString(R.string.snack_bar_deleted), workout.getName());
     }
 
     /**
      * Called when we undo a deletion of a workout.
      */
-    private void onUndo(Parcelable token) {
-        TapToUndoItem item = (TapToUndoItem) token;
-        Workout workout = (Workout) item.getObject();
-
-        sWorkouts.add(item.getPosition(), workout);
+    private void onUndo(final DeletedWorkout deleted) {
+        deleted.isUndone = true;
+        sWorkouts.add(Math.min(deleted.position, sWorkouts.size()), deleted.summary);
         mAdapter.notifyDataSetChanged();
-
-        SqlHandler sql = new SqlHandler(getActivity());
-        try {
-            sql.open();
-            sql.storeWorkout(workout);
-        } catch (SQLException e) {
-            WendlerizedLog.e("Failed to undo delete of old workout", e);
-        } finally {
-            sql.close();
-        }
+        setVisibilityOfViews(false);
+
+        // Runs after the delete, writes are done in order
+        WorkoutRepository.getInstance(getActivity()).write(
+                new WorkoutRepository.Query<Void>() {
+                    @Override
+                    public Void run(SqlHandler handler) {
+                        handler.setWorkoutDeleted(deleted.summary.getWorkoutId(), false);
+                        return null;
+                    }
+                }, null);
     }
 
     /**
@@ -327,17 +398,104 @@ public class DrawerOldWorkoutsFragment extends DrawerFragment implements
     private final BroadcastReceiver mUpdateReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
-            SqlHandler sqlHandler = new SqlHandler(getActivity());
-            try {
-                sqlHandler.open();
-                sWorkouts.clear();
-                sWorkouts.addAll(sqlHandler.getOldWorkouts(mLimit));
-                mAdapter.notifyDataSetChanged();
-            } catch (SQLException e) {
-                WendlerizedLog.e("Failed to add old workouts", e);
-            } finally {
-                sqlHandler.close();
+            if (mAdapter == null) {
+                return;
+            }
+            final int workoutId = intent.getIntExtra(MainActivity.EXTRA_WORKOUT_ID, -1);
+            if (workoutId == -1) {
+                loadWorkouts(Math.max(PAGE_SIZE, sWorkouts.size()));
+                return;
             }
+            WorkoutRepository.getInstance(getActivity()).read(
+                    new WorkoutRepository.Query<Page>() {
+                        @Override
+                        public Page run(SqlHandler handler) {
+                            ArrayList<WorkoutSummary> workouts = new ArrayList<>();
+                            WorkoutSummary workout = handler.getOldWorkoutSummary(workoutId);
+                            if (workout != null) {
+                                workouts.add(workout);
+                            }
+                            return new Page(workouts, handler.getOldWorkoutsCount());
+                        }
+                    },
+                    new WorkoutRepository.Callback<Page>() {
+                        @Override
+                        public void onResult(Page page) {
+                            if (!isAdded() || page == null) {
+                                return;
+                            }
+                            updateWorkout(workoutId,
+                                    page.workouts.isEmpty() ? null : page.workouts.get(0));
+                            onPageLoaded(page.count);
+                        }
+                    });
         }
     };
+
+    /**
+     * Replace, insert or remove a single workout in the loaded list.
+     */
+    private void updateWorkout(int workoutId, WorkoutSummary workout) {
+        for (int i = 0; i < sWorkouts.size(); i++) {
+            if (sWorkouts.get(i).getWorkoutId() == workoutId) {
+                if (workout == null) {
+                    sWorkouts.remove(i);
+                } else {
+                    sWorkouts.set(i, workout);
+                }
+                return;
+            }
+        }
+
+        if (workout == null) {
+            return;
+        }
+
+        for (int i = 0; i < sWorkouts.size(); i++) {
+            if (sWorkouts.get(i).getInsertTime() < workout.getInsertTime()) {
+                sWorkouts.add(i, workout);
+                return;
+            }
+        }
+
+        // Older than everything loaded, only show it if there is nothing more to load.
+        if (mFooterView == null || mFooterView.getVisibility() != View.VISIBLE) {
+            sWorkouts.add(workout);
+        }
+    }
+
+    /**
+     * A deleted workout and where it was in the list, for an undo.
+     */
+    private static class DeletedWorkout {
+
+        private final WorkoutSummary summary;
+        private final int position;
+        private boolean isUndone;
+
+        /**
+         * Constructor.
+         */
+        DeletedWorkout(WorkoutSummary summary, int position) {
+            this.summary = summary;
+            this.position = position;
+        }
+    }
+
+    /**
+     * A page of loaded workouts together with the total number of old workouts.
+     */
+    private static class Page {
+
+        private final ArrayList<WorkoutSummary> workouts;
+        private final int count;
+
+        /**
+         * Constructor.
+         */
+        Page(ArrayList<WorkoutSummary> workouts, int count) {
+            this.workouts = workouts;
+            this.count = count;
+        }
+    }
 }
@@ -13,15 +13,13 @@ import android.view.ViewGroup;
 
 import com.astuetz.PagerSlidingTabStrip;
 
-import java.sql.SQLException;
-
 import se.johan.wendler.R;
 import se.johan.wendler.activity.MainActivity;
 import se.johan.wendler.ui.adapter.WorkoutNavigationAdapter;
 import se.johan.wendler.animation.ZoomOutPageTransformer;
 import se.johan.wendler.fragment.base.DrawerFragment;
 import se.johan.wendler.sql.SqlHandler;
-import se.johan.wendler.util.WendlerizedLog;
+import se.johan.wendler.sql.WorkoutRepository;
 
 /**
  * Navigation fragment
@@ -63,17 +61,12 @@ public class DrawerWorkoutNavigationFragment extends DrawerFragment {
             LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.view_pager, container, false);
 
-        try {
-            mAdapter = new WorkoutNavigationAdapter(getChildFragmentManager(), getActivity());
-        } catch (SQLException e) {
-            WendlerizedLog.e("Unable to load workouts", e);
-            getActivity().finish();
-        }
+        mAdapter = new WorkoutNavigationAdapter(getChildFragmentManager(), getActivity());
 
         ViewPager mViewPager = (ViewPager) view.findViewById(R.id.pager);
         mViewPager.setPageTransformer(true, new ZoomOutPageTransformer());
         mViewPager.setAdapter(mAdapter);
-        mViewPager.setCurrentItem(getCurrentSelection());
+        loadCurrentSelection(mViewPager);
 
         PagerSlidingTabStrip mSlidingTabLayout =
                 (PagerSlidingTabStrip) view.findViewById(R.id.sliding_tabs);
@@ -102,19 +95,24 @@ public class DrawerWorkoutNavigationFragment extends DrawerFragment {
     }
 
     /**
-     * Return the currently selected week.
+     * Load the currently selected week and show it in the pager.
      */
-    private int getCurrentSelection() {
-        SqlHandler handler = new SqlHandler(getActivity());
-        try {
-            handler.open();
-            return handler.getSelectionForNavigation();
-        } catch (SQLException e) {
-            WendlerizedLog.e("Failed to get current selection", e);
-        } finally {
-            handler.close();
-        }
-        return 0;
+    private void loadCurrentSelection(final ViewPager viewPager) {
+        WorkoutRepository.getInstance(getActivity()).read(
+                new WorkoutRepository.Query<Integer>() {
+                    @Override
+                    public Integer run(SqlHandler handler) {
+                        return handler.getSelectionForNavigation();
+                    }
+                },
+                new WorkoutRepository.Callback<Integer>() {
+                    @Override
+                    public void onResult(Integer selection) {
+                        if (isAdded() && selection != null) {
+                            viewPager.setCurrentItem(selection);
+                        }
+                    }
+                });
     }
 
     /**
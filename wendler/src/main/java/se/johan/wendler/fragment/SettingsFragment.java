@@ -6,6 +6,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.preference.EditTextPreference;
 import android.preference.ListPreference;
 import android.preference.Preference;
 import android.preference.PreferenceManager;
@@ -21,10 +22,10 @@ import se.johan.wendler.R;
 import se.johan.wendler.activity.StartupActivity;
 import se.johan.wendler.ui.dialog.ConfirmationDialog;
 import se.johan.wendler.sql.SqlHandler;
-import se.johan.wendler.util.MathHelper;
 import se.johan.wendler.util.PreferenceUtil;
 import se.johan.wendler.util.Utils;
 import se.johan.wendler.util.WendlerConstants;
+import se.johan.wendler.util.WendlerSettings;
 
 /**
  * Fragment to manage settings.
@@ -97,11 +98,15 @@ public class SettingsFragment extends PreferenceFragment implements
 
         if (key.equals(PreferenceUtil.KEY_ROUND_TO)) {
             preference.setSummary(((ListPreference) preference).getEntry());
-            MathHelper.getInstance().resetRoundToValue();
             updateRoundToPref();
+        } else if (key.equals(PreferenceUtil.KEY_PROGRAM)) {
+            preference.setSummary(((ListPreference) preference).getEntry());
         } else if (key.equals(PreferenceUtil.KEY_DELOAD_TYPE)) {
             preference.setSummary(((ListPreference) preference).getEntry());
             updateNumberPref();
+        } else if (key.equals(PreferenceUtil.KEY_BAR_WEIGHT)
+                || key.equals(PreferenceUtil.KEY_PLATES)) {
+            preference.setSummary(((EditTextPreference) preference).getText());
         }
     }
 
@@ -172,7 +177,6 @@ public class SettingsFragment extends PreferenceFragment implements
                             getActivity(),
                             PreferenceUtil.KEY_ROUND_TO_VALUE,
                             (float) fullNumber);
-                    MathHelper.getInstance().resetRoundToValue();
                     updateRoundToPref();
                 }
                 break;
@@ -196,7 +200,8 @@ public class SettingsFragment extends PreferenceFragment implements
             manager.clearApplicationUserData();
         } else if (confirmed) {
             PreferenceManager.getDefaultSharedPreferences(getActivity()).edit().clear().apply();
-            getActivity().deleteDatabase(SqlHandler.DATABASE_NAME);
+            WendlerSettings.invalidate();
+            SqlHandler.deleteDatabase(getActivity());
             Intent activityIntent = new Intent(getActivity(), StartupActivity.class);
             activityIntent.setFlags(
                     Intent.FLAG_ACTIVITY_CLEAR_TOP |
@@ -245,7 +250,7 @@ public class SettingsFragment extends PreferenceFragment implements
         }
 
         String value = String.format(getString(R.string.custom_round_to_pref_summary),
-                MathHelper.getInstance().getRoundToValue(getActivity()));
+                WendlerSettings.get(getActivity()).getRoundTo());
         roundToPref.setSummary(value);
     }
 
@@ -263,6 +268,16 @@ public class SettingsFragment extends PreferenceFragment implements
             pref.setSummary(entry);
         }
 
+        pref = findPreference(PreferenceUtil.KEY_PROGRAM);
+
+        if (pref != null) {
+            CharSequence entry = ((ListPreference) pref).getEntry();
+            if (entry == null) {
+                entry = getString(R.string.program_five_three_one);
+            }
+            pref.setSummary(entry);
+        }
+
         pref = findPreference(PreferenceUtil.KEY_DELOAD_TYPE);
 
         if (pref != null) {
@@ -275,6 +290,12 @@ public class SettingsFragment extends PreferenceFragment implements
 
         pref = findPreference(PreferenceUtil.KEY_CUSTOM_DELOAD_TYPE);
         updateNumberSummary(pref);
+
+        pref = findPreference(PreferenceUtil.KEY_BAR_WEIGHT);
+        pref.setSummary(((EditTextPreference) pref).getText());
+
+        pref = findPreference(PreferenceUtil.KEY_PLATES);
+        pref.setSummary(((EditTextPreference) pref).getText());
     }
 
     /**
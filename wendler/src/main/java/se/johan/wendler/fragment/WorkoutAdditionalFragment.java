@@ -22,7 +22,6 @@ import se.johan.wendler.model.Action;
 import se.johan.wendler.model.AdditionalExercise;
 import se.johan.wendler.model.TapToUndoItem;
 import se.johan.wendler.model.Workout;
-import se.johan.wendler.sql.SqlHandler;
 import se.johan.wendler.ui.adapter.AdditionalExerciseAdapter;
 import se.johan.wendler.ui.dialog.AdditionalExerciseDialog;
 import se.johan.wendler.util.CardsOptionHandler;
@@ -131,13 +130,17 @@ public class WorkoutAdditionalFragment extends WorkoutFragment implements
      * Called when the workout should be stored.
      */
     @Override
-    public boolean storeWorkout(boolean complete,
-                                Workout workout,
-                                SqlHandler handler,
-                                boolean delayedDeload) {
-        boolean isStarted = mIsModified || isAnyExerciseStarted();
-        return handler.storeAdditionalExercise(
-                workout.getWorkoutId(), sAdditionalExercises, isStarted);
+    public void prepareWorkout(boolean complete,
+                               Workout workout,
+                               boolean delayedDeload) {
+        workout.setAdditionalExercises(new ArrayList<>(sAdditionalExercises));
+    }
+
+    /**
+     * Return if the additional exercises have been started or modified.
+     */
+    public boolean isStarted() {
+        return mIsModified || isAnyExerciseStarted();
     }
 
     /**
@@ -290,5 +293,17 @@ public class WorkoutAdditionalFragment extends WorkoutFragment implements
             AdditionalExercise exercise = sAdditionalExercises.get(position);
             showAdditionalExerciseDialog(exercise, exercise.getExerciseId());
         }
+
+        /**
+         * Called when the progress of an additional exercise has changed.
+         */
+        @Override
+        public void onProgressChanged(int position) {
+            AdditionalExercise exercise = sAdditionalExercises.get(position);
+            if (getSessionListener() != null) {
+                getSessionListener().onExtraProgressChanged(
+                        exercise.getExerciseId(), exercise.getProgress(0));
+            }
+        }
     };
 }
@@ -1,7 +1,6 @@
 package se.johan.wendler.fragment;
 
 import android.os.Bundle;
-import android.text.format.Time;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,12 +10,15 @@ import android.widget.ListView;
 import com.doomonafireball.betterpickers.numberpicker.NumberPickerBuilder;
 import com.doomonafireball.betterpickers.numberpicker.NumberPickerDialogFragment;
 
+import java.util.TimeZone;
+
 import se.johan.wendler.R;
+import se.johan.wendler.core.EpochDay;
 import se.johan.wendler.fragment.base.WorkoutFragment;
 import se.johan.wendler.model.Action;
+import se.johan.wendler.model.ExerciseSet;
 import se.johan.wendler.model.MainExercise;
 import se.johan.wendler.model.Workout;
-import se.johan.wendler.sql.SqlHandler;
 import se.johan.wendler.ui.adapter.MainExerciseAdapter;
 import se.johan.wendler.ui.view.MainExerciseFooterView;
 import se.johan.wendler.util.Utils;
@@ -76,8 +78,7 @@ public class WorkoutMainFragment extends WorkoutFragment implements
         super.onStart();
         mMainExercise = getArguments().getParcelable(EXTRA_EXERCISE_ITEM);
 
-        mAdapter = new MainExerciseAdapter(
-                getActivity(), mMainExercise, getArguments().getInt(EXTRA_WEEK), this);
+        mAdapter = new MainExerciseAdapter(getActivity(), mMainExercise, this);
         updateFooter();
     }
 
@@ -85,28 +86,22 @@ public class WorkoutMainFragment extends WorkoutFragment implements
      * Called when a workout should be stored.
      */
     @Override
-    public boolean storeWorkout(
+    public void prepareWorkout(
             boolean complete,
             Workout workout,
-            SqlHandler handler,
             boolean delayedDeload) {
 
-        boolean newWorkout = false;
         if (complete && !workout.isComplete()) {
-            Time now = new Time();
-            now.setToNow();
-            workout.updateWorkoutTime(now.year, now.month, now.monthDay);
-            workout.updateInsertTime(now.normalize(false));
+            long now = System.currentTimeMillis();
+            workout.updateWorkoutDate(EpochDay.fromMillis(now, TimeZone.getDefault()));
+            workout.updateInsertTime(now);
             workout.setComplete();
-            newWorkout = true;
         }
 
         workout.setMainExercise(mMainExercise);
 
         workout.setIsWon(WendlerMath.isWorkoutWon(
                 getArguments().getInt(EXTRA_WEEK), mMainExercise) && !delayedDeload);
-        handler.updateWorkoutStats(workout, newWorkout);
-        return handler.storeMainExercise(workout, complete);
     }
 
     /**
@@ -124,6 +119,9 @@ public class WorkoutMainFragment extends WorkoutFragment implements
     public void updateProgress(int number) {
         mMainExercise.setLastSetProgress(number);
         mMainExercise.recalculateEstOneRm();
+        if (getSessionListener() != null) {
+            getSessionListener().onMainProgressChanged(number);
+        }
         updateFooter();
         getActivity().invalidateOptionsMenu();
         mAdapter.notifyDataSetChanged();
@@ -145,6 +143,11 @@ public class WorkoutMainFragment extends WorkoutFragment implements
             case SET_REPS:
                 displayNumberPicker();
                 break;
+            case COMPLETE_LAST_SET:
+                // A last set with fixed reps is done for exactly its goal
+                ExerciseSet lastSet = mMainExercise.getLastSet();
+                updateProgress(lastSet.isComplete() ? lastSet.getRepGoal() : -1);
+                break;
         }
     }
 
@@ -1,6 +1,5 @@
 package se.johan.wendler.fragment;
 
-import android.content.Intent;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.view.LayoutInflater;
@@ -9,18 +8,14 @@ import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.ListView;
 
-import java.sql.SQLException;
 import java.util.ArrayList;
 
 import se.johan.wendler.R;
 import se.johan.wendler.R.id;
 import se.johan.wendler.ui.adapter.WorkoutListAdapter;
-import se.johan.wendler.model.Workout;
+import se.johan.wendler.model.WorkoutSummary;
 import se.johan.wendler.sql.SqlHandler;
-import se.johan.wendler.activity.MainActivity;
-import se.johan.wendler.activity.WorkoutActivity;
-import se.johan.wendler.util.WendlerizedLog;
-import se.johan.wendler.util.WorkoutHolder;
+import se.johan.wendler.sql.WorkoutRepository;
 
 /**
  * Fragment which holds workouts for a list.
@@ -28,8 +23,9 @@ import se.johan.wendler.util.WorkoutHolder;
 public class WorkoutNavigationListFragment extends Fragment
         implements AdapterView.OnItemClickListener {
 
-    private static final String EXTRA_WORKOUT_LIST = "workoutList";
-    private ArrayList<Workout> mListOfWorkouts;
+    private static final String EXTRA_WEEK = "week";
+    private final ArrayList<WorkoutSummary> mListOfWorkouts = new ArrayList<>();
+    private WorkoutListAdapter mAdapter;
 
     public WorkoutNavigationListFragment() {
     }
@@ -37,10 +33,10 @@ public class WorkoutNavigationListFragment extends Fragment
     /**
      * Static creation to avoid problems on rotation.
      */
-    public static WorkoutNavigationListFragment newInstance(int week, SqlHandler sqlHandler) {
+    public static WorkoutNavigationListFragment newInstance(int week) {
         WorkoutNavigationListFragment fragment = new WorkoutNavigationListFragment();
         Bundle bundle = new Bundle();
-        bundle.putParcelableArrayList(EXTRA_WORKOUT_LIST, sqlHandler.getWorkoutsForList(week));
+        bundle.putInt(EXTRA_WEEK, week);
         fragment.setArguments(bundle);
         return fragment;
     }
@@ -52,55 +48,55 @@ public class WorkoutNavigationListFragment extends Fragment
     public View onCreateView(
             LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
 
-        mListOfWorkouts = getArguments().getParcelableArrayList(EXTRA_WORKOUT_LIST);
         View view = inflater.inflate(R.layout.list_empty, container, false);
 
         ListView listView = (ListView) view.findViewById(id.listView);
 
-        WorkoutListAdapter mAdapter = new WorkoutListAdapter(
+        mAdapter = new WorkoutListAdapter(
                 getActivity(),
-                getArguments().<Workout>getParcelableArrayList(EXTRA_WORKOUT_LIST),
+                mListOfWorkouts,
                 WorkoutListAdapter.TYPE_WORKOUTS,
                 null);
 
         listView.setAdapter(mAdapter);
         listView.setOnItemClickListener(this);
 
+        if (mListOfWorkouts.isEmpty()) {
+            loadWorkouts();
+        }
         return view;
     }
 
+    /**
+     * Load the workouts of our week, the list stays empty until they arrive.
+     */
+    private void loadWorkouts() {
+        final int week = getArguments().getInt(EXTRA_WEEK);
+        WorkoutRepository.getInstance(getActivity()).read(
+                new WorkoutRepository.Query<ArrayList<WorkoutSummary>>() {
+                    @Override
+                    public ArrayList<WorkoutSummary> run(SqlHandler handler) {
+                        return handler.getWorkoutSummariesForList(week);
+                    }
+                },
+                new WorkoutRepository.Callback<ArrayList<WorkoutSummary>>() {
+                    @Override
+                    public void onResult(ArrayList<WorkoutSummary> workouts) {
+                        if (!isAdded() || workouts == null) {
+                            return;
+                        }
+                        mListOfWorkouts.clear();
+                        mListOfWorkouts.addAll(workouts);
+                        mAdapter.notifyDataSetChanged();
+                    }
+                });
+    }
+
     /**
      * Called when a item is clicked in the list.
      */
     @Override
     public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-        SqlHandler handler = new SqlHandler(getActivity());
-        try {
-            handler.open();
-
-            Workout workout = mListOfWorkouts.get(position);
-
-            // Not initialized so do it!
-            if (workout.getMainExercise() == null) {
-                workout.setMainExercise(handler.getMainExerciseForWorkout(workout));
-            }
-
-            if (workout.getAdditionalExercises() == null
-                    || workout.getAdditionalExercises().isEmpty()) {
-                workout.setAdditionalExercises(handler.getAdditionalExercisesForWorkout(workout));
-            }
-
-            Intent intent = new Intent(getActivity(), WorkoutActivity.class);
-            WorkoutHolder.getInstance().putWorkout(getWorkoutItem(workout));
-            startActivityForResult(intent, MainActivity.REQUEST_WORKOUT_RESULT);
-        } catch (SQLException e) {
-            WendlerizedLog.e("Failed to get main exercise for workout", e);
-        } finally {
-            handler.close();
-        }
-    }
-
-    private WorkoutHolder.WorkoutItem getWorkoutItem(Workout workout) {
-        return new WorkoutHolder.WorkoutItem(workout, 0, false, -1);
+        mAdapter.openWorkout(position);
     }
 }
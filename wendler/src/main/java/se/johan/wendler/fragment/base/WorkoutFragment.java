@@ -3,7 +3,6 @@ package se.johan.wendler.fragment.base;
 import android.support.v4.app.Fragment;
 
 import se.johan.wendler.model.Workout;
-import se.johan.wendler.sql.SqlHandler;
 
 /**
  * Superclass for the workout fragments, used to easily store the data.
@@ -11,10 +10,35 @@ import se.johan.wendler.sql.SqlHandler;
 public abstract class WorkoutFragment extends Fragment {
 
     /**
-     * Called to store the workout.
+     * Listener for progress made in a workout fragment, kept in the session journal.
      */
-    public abstract boolean storeWorkout(boolean complete,
-                                         Workout workout,
-                                         SqlHandler handler,
-                                         boolean delayedDeload);
+    public interface SessionListener {
+
+        /**
+         * Called when the reps of the last set of the main exercise have changed.
+         */
+        public void onMainProgressChanged(int reps);
+
+        /**
+         * Called when the progress of an extra exercise has changed.
+         */
+        public void onExtraProgressChanged(int exerciseId, int progress);
+    }
+
+    /**
+     * Called to copy the state of the fragment into the workout before it is stored.
+     */
+    public abstract void prepareWorkout(boolean complete,
+                                        Workout workout,
+                                        boolean delayedDeload);
+
+    /**
+     * Returns the session listener of the activity, null if it has none.
+     */
+    protected SessionListener getSessionListener() {
+        if (getActivity() instanceof SessionListener) {
+            return (SessionListener) getActivity();
+        }
+        return null;
+    }
 }
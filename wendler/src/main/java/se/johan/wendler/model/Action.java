@@ -5,6 +5,7 @@ package se.johan.wendler.model;
  */
 public enum Action {
     SET_REPS,
+    COMPLETE_LAST_SET,
     ADD_EXERCISE;
 
     /**
@@ -3,106 +3,29 @@ package se.johan.wendler.model;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import se.johan.wendler.core.CycleState;
+
 /**
  * Deload item.
  */
-public class DeloadItem implements Parcelable {
-
-    private int mWeek;
-    private int mCycle;
-    private double mWeight;
-    private boolean mDoDelayedDeload;
-    private int mCycleName;
+public class DeloadItem extends CycleState implements Parcelable {
 
     /**
      * Constructor.
      */
     public DeloadItem(int week, int cycle, double weight, int cycleName) {
-        mWeek = week;
-        mCycle = cycle;
-        mWeight = weight;
-        mCycleName = cycleName;
-    }
-
-    /**
-     * Return the week.
-     */
-    public int getWeek() {
-        return mWeek;
-    }
-
-    /**
-     * Set the current week.
-     */
-    public void setWeek(int week) {
-        mWeek = week;
-    }
-
-    /**
-     * Return the cycle.
-     */
-    public int getCycle() {
-        return mCycle;
-    }
-
-    /**
-     * Set the current cycle.
-     */
-    public void setCycle(int cycle) {
-        mCycle = cycle;
-    }
-
-    /**
-     * Return the cycle name.
-     */
-    public int getCycleName() {
-        return mCycleName;
-    }
-
-    /**
-     * Set the current cycle name.
-     */
-    public void setCycleName(int cycleName) {
-        mCycleName = cycleName;
-    }
-
-    /**
-     * Return if we should do a delayed deload.
-     */
-    public boolean doDelayedDeload() {
-        return mDoDelayedDeload;
-    }
-
-    /**
-     * Set the delayed deload to true.
-     */
-    public void setDoDelayedDeload() {
-        mDoDelayedDeload = true;
-    }
-
-    /**
-     * Return the weight.
-     */
-    public double getWeight() {
-        return mWeight;
-    }
-
-    /**
-     * Set the weight.
-     */
-    public void setWeight(double weight) {
-        mWeight = weight;
+        super(week, cycle, weight, cycleName);
     }
 
     /**
      * Used for parcelable.
      */
     protected DeloadItem(Parcel in) {
-        mWeek = in.readInt();
-        mCycle = in.readInt();
-        mWeight = in.readDouble();
-        mDoDelayedDeload = in.readByte() != 0x00;
-        mCycleName = in.readInt();
+        super(in.readInt(), in.readInt(), in.readDouble(), 0);
+        if (in.readByte() != 0x00) {
+            setDoDelayedDeload();
+        }
+        setCycleName(in.readInt());
     }
 
     /**
@@ -118,11 +41,11 @@ public class DeloadItem implements Parcelable {
      */
     @Override
     public void writeToParcel(Parcel dest, int flags) {
-        dest.writeInt(mWeek);
-        dest.writeInt(mCycle);
-        dest.writeDouble(mWeight);
-        dest.writeByte((byte) (mDoDelayedDeload ? 0x01 : 0x00));
-        dest.writeInt(mCycleName);
+        dest.writeInt(getWeek());
+        dest.writeInt(getCycle());
+        dest.writeDouble(getWeight());
+        dest.writeByte((byte) (doDelayedDeload() ? 0x01 : 0x00));
+        dest.writeInt(getCycleName());
     }
 
     /**
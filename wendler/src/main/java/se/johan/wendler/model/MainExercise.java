@@ -58,6 +58,13 @@ public class MainExercise extends Exercise implements Parcelable {
         return mWorkoutPercentage;
     }
 
+    /**
+     * Return the last main set.
+     */
+    public ExerciseSet getLastSet() {
+        return mExerciseSets.get(mExerciseSets.size() - 1);
+    }
+
     /**
      * Return the progress of the last set.
      */
@@ -2,15 +2,21 @@ package se.johan.wendler.model;
 
 import android.os.Parcel;
 import android.os.Parcelable;
-import android.text.format.Time;
 
 import java.util.ArrayList;
 
+import se.johan.wendler.core.EpochDay;
+
 /**
  * An object representing a workout.
  */
 public class Workout implements Parcelable {
 
+    /**
+     * The workout date of a workout which has not been done.
+     */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
     private final String mName;
     private final String mDisplayName;
     private int mCycle;
@@ -23,9 +29,7 @@ public class Workout implements Parcelable {
     private int mWorkoutId = -1;
     private String mNotes = "";
     private long mInsertTime = 0;
-    private int mWorkoutYear = -1;
-    private int mWorkoutMonth = -1;
-    private int mWorkoutDay = -1;
+    private int mWorkoutDate = NO_DATE;
 
     /**
      * Constructor for a new workout.
@@ -60,7 +64,7 @@ public class Workout implements Parcelable {
                    MainExercise mainExercise,
                    ArrayList<AdditionalExercise> additionalExercises,
                    long insertTime,
-                   Time time,
+                   int workoutDate,
                    String notes) {
         mName = name;
         mIsComplete = isComplete;
@@ -72,9 +76,7 @@ public class Workout implements Parcelable {
         mMainExercise = mainExercise;
         mAdditionalExercises = additionalExercises;
         mInsertTime = insertTime;
-        mWorkoutYear = time.year;
-        mWorkoutMonth = time.month;
-        mWorkoutDay = time.monthDay;
+        mWorkoutDate = workoutDate;
         mDisplayName = displayName;
         mNotes = notes;
     }
@@ -207,21 +209,24 @@ public class Workout implements Parcelable {
     }
 
     /**
-     * Return the time of the workout.
+     * Return the date of the workout as an epoch day, {@link #NO_DATE} if it has not been done.
+     */
+    public int getWorkoutDate() {
+        return mWorkoutDate;
+    }
+
+    /**
+     * Update the date of the workout to an epoch day.
      */
-    public Time getWorkoutTime() {
-        Time time = new Time();
-        time.set(mWorkoutDay, mWorkoutMonth, mWorkoutYear);
-        return time;
+    public void updateWorkoutDate(int workoutDate) {
+        mWorkoutDate = workoutDate;
     }
 
     /**
-     * Update the time of the workout.
+     * Update the date of the workout.
      */
     public void updateWorkoutTime(int year, int month, int day) {
-        mWorkoutYear = year;
-        mWorkoutMonth = month;
-        mWorkoutDay = day;
+        mWorkoutDate = EpochDay.of(year, month, day);
     }
 
     /**
@@ -261,9 +266,7 @@ public class Workout implements Parcelable {
         mWorkoutId = in.readInt();
         mNotes = in.readString();
         mInsertTime = in.readLong();
-        mWorkoutYear = in.readInt();
-        mWorkoutMonth = in.readInt();
-        mWorkoutDay = in.readInt();
+        mWorkoutDate = in.readInt();
         mDisplayName = in.readString();
     }
 
@@ -296,9 +299,7 @@ public class Workout implements Parcelable {
         dest.writeInt(mWorkoutId);
         dest.writeString(mNotes);
         dest.writeLong(mInsertTime);
-        dest.writeInt(mWorkoutYear);
-        dest.writeInt(mWorkoutMonth);
-        dest.writeInt(mWorkoutDay);
+        dest.writeInt(mWorkoutDate);
         dest.writeString(mDisplayName);
     }
 
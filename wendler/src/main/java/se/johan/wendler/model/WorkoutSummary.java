@@ -0,0 +1,163 @@
+package se.johan.wendler.model;
+
+/**
+ * The parts of a workout shown in a list row. Lists keep these instead of whole workouts, the
+ * full workout is only loaded when a row is opened.
+ */
+public class WorkoutSummary {
+
+    private final String mName;
+    private final String mDisplayName;
+    private final int mWorkoutId;
+    private final int mWeek;
+    private final int mCycle;
+    private final int mCycleDisplayName;
+    private final boolean mIsComplete;
+    private final boolean mIsWon;
+    private final int mGoal;
+    private final int mLastSetProgress;
+    private final double mLastSetWeight;
+    private final long mInsertTime;
+    private final int mWorkoutDate;
+
+    /**
+     * Constructor.
+     */
+    public WorkoutSummary(String name,
+                          String displayName,
+                          int workoutId,
+                          int week,
+                          int cycle,
+                          int cycleName,
+                          boolean isComplete,
+                          boolean isWon,
+                          int goal,
+                          int lastSetProgress,
+                          double lastSetWeight,
+                          long insertTime,
+                          int workoutDate) {
+        mName = name;
+        mDisplayName = displayName;
+        mWorkoutId = workoutId;
+        mWeek = week;
+        mCycle = cycle;
+        mCycleDisplayName = cycleName;
+        mIsComplete = isComplete;
+        mIsWon = isWon;
+        mGoal = goal;
+        mLastSetProgress = lastSetProgress;
+        mLastSetWeight = lastSetWeight;
+        mInsertTime = insertTime;
+        mWorkoutDate = workoutDate;
+    }
+
+    /**
+     * Constructor for the summary of a loaded workout with its main exercise.
+     */
+    public WorkoutSummary(Workout workout) {
+        this(workout.getName(),
+                workout.getDisplayName(),
+                workout.getWorkoutId(),
+                workout.getWeek(),
+                workout.getCycle(),
+                workout.getCycleDisplayName(),
+                workout.isComplete(),
+                workout.isWon(),
+                workout.getMainExercise().getGoal(),
+                workout.getMainExercise().getLastSetProgress(),
+                workout.getMainExercise().getLastSetWeight(),
+                workout.getInsertTime(),
+                workout.getWorkoutDate());
+    }
+
+    /**
+     * Return the name of the workout.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Return the display name of the workout.
+     */
+    public String getDisplayName() {
+        return mDisplayName;
+    }
+
+    /**
+     * Return the workout id, -1 if the workout has not been stored.
+     */
+    public int getWorkoutId() {
+        return mWorkoutId;
+    }
+
+    /**
+     * Return the week of the workout.
+     */
+    public int getWeek() {
+        return mWeek;
+    }
+
+    /**
+     * Return the cycle of the workout.
+     */
+    public int getCycle() {
+        return mCycle;
+    }
+
+    /**
+     * Return the display name of the cycle.
+     */
+    public int getCycleDisplayName() {
+        return mCycleDisplayName;
+    }
+
+    /**
+     * Return if the workout is completed.
+     */
+    public boolean isComplete() {
+        return mIsComplete;
+    }
+
+    /**
+     * Return if the workout is won.
+     */
+    public boolean isWon() {
+        return mIsWon;
+    }
+
+    /**
+     * Return the rep goal of the last set, 0 for old workouts where it isn't shown.
+     */
+    public int getGoal() {
+        return mGoal;
+    }
+
+    /**
+     * Return the reps done in the last set, -1 if none.
+     */
+    public int getLastSetProgress() {
+        return mLastSetProgress;
+    }
+
+    /**
+     * Return the weight of the last set.
+     */
+    public double getLastSetWeight() {
+        return mLastSetWeight;
+    }
+
+    /**
+     * Return the milliseconds when the workout was saved the first time.
+     */
+    public long getInsertTime() {
+        return mInsertTime;
+    }
+
+    /**
+     * Return the date of the workout as an epoch day.
+     */
+    public int getWorkoutDate() {
+        return mWorkoutDate;
+    }
+}
@@ -3,10 +3,13 @@ package se.johan.wendler.sql;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
 import android.text.TextUtils;
-import android.text.format.Time;
+import android.util.SparseArray;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -15,8 +18,17 @@ import java.io.IOException;
 import java.nio.channels.FileChannel;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import se.johan.wendler.model.AdditionalExercise;
 import se.johan.wendler.model.DeloadItem;
@@ -25,11 +37,12 @@ import se.johan.wendler.model.MainExercise;
 import se.johan.wendler.model.SetGroup;
 import se.johan.wendler.model.SetType;
 import se.johan.wendler.model.Workout;
+import se.johan.wendler.model.WorkoutSummary;
 import se.johan.wendler.util.Constants;
-import se.johan.wendler.util.PreferenceUtil;
 import se.johan.wendler.util.StringHelper;
 import se.johan.wendler.util.WendlerConstants;
 import se.johan.wendler.util.WendlerMath;
+import se.johan.wendler.util.WendlerSettings;
 import se.johan.wendler.util.WendlerizedLog;
 
 /**
@@ -39,7 +52,8 @@ import se.johan.wendler.util.WendlerizedLog;
 public class SqlHandler {
 
     public static final String DATABASE_NAME = "WendlerizedDb";
-    private static final int DATABASE_VERSION = 13;
+    private static final int DATABASE_VERSION = 20;
+    private static final int WEEKS_IN_CYCLE = 4;
 
     /**
      * Stats table *
@@ -57,7 +71,14 @@ public class SqlHandler {
     private static final String KEY_SHOULD_DELOAD = "should_deload";
 
     /**
-     * Percentage table *
+     * Percentage table, one row per set and week *
+     */
+    private static final String DATABASE_TABLE_SET_PERCENT = "wendler_set_percentages";
+    private static final String KEY_SET_NUMBER = "set_number";
+    private static final String KEY_PERCENTAGE = "percentage";
+
+    /**
+     * Old percentage table with one column per week, only read when upgrading *
      */
     private static final String DATABASE_TABLE_PERCENT = "wendler_percentages";
     private static final String KEY_WEEK_ONE = "percent_week_1";
@@ -74,6 +95,7 @@ public class SqlHandler {
     private static final String KEY_WORKOUT_YEAR = "workout_year";
     private static final String KEY_WORKOUT_MONTH = "workout_month";
     private static final String KEY_WORKOUT_DAY = "workout_day";
+    private static final String KEY_WORKOUT_DATE = "workout_date";
     private static final String KEY_WORKOUT_EXERCISE = "exercise";
     private static final String KEY_WORKOUT_REPS = "reps";
     private static final String KEY_WORKOUT_ONE_RM = "one_rm";
@@ -84,6 +106,41 @@ public class SqlHandler {
     private static final String KEY_WORKOUT_WON = "workout_won";
     private static final String KEY_WORKOUT_COMPLETED = "workout_completed";
     private static final String KEY_WORKOUT_EST_ONE_RM = "est_one_rm";
+    private static final String KEY_WORKOUT_DELETED = "deleted";
+
+    // Deleted workouts are kept until purged so a delete can be undone
+    private static final String NOT_DELETED = KEY_WORKOUT_DELETED + "=0";
+    private static final String OLD_WORKOUTS = KEY_WORKOUT_COMPLETED + "=1 AND " + NOT_DELETED;
+
+    /**
+     * Personal record table, the highest estimated one rm of every exercise. Uses
+     * KEY_WORKOUT_EXERCISE, KEY_WORKOUT_EST_ONE_RM and KEY_WORKOUT_ID.
+     */
+    private static final String DATABASE_TABLE_WENDLER_RECORDS = "wendler_records";
+
+    /**
+     * Plan table, the sets prescribed for every week of the current cycle of an exercise. Uses
+     * KEY_NAME, KEY_CYCLE, KEY_WEEK, KEY_SET_NUMBER and KEY_1RM, the one rm and record the plan
+     * was made from, which together with the settings key tell if it is still valid.
+     */
+    private static final String DATABASE_TABLE_WENDLER_PLAN = "wendler_plan";
+    private static final String KEY_SET_TYPE = "set_type";
+    private static final String KEY_SET_WEIGHT = "set_weight";
+    private static final String KEY_SET_GOAL = "set_goal";
+    private static final String KEY_REP_GOAL = "rep_goal";
+    private static final String KEY_REPS_TO_BEAT = "reps_to_beat";
+    private static final String KEY_PLAN_RECORD = "plan_record";
+    private static final String KEY_PLAN_SETTINGS = "plan_settings";
+
+    /**
+     * Migration table, how far each data migration has come. The progress is the last workout
+     * row converted, the target the last workout row which needs it.
+     */
+    private static final String DATABASE_TABLE_MIGRATIONS = "wendler_migrations";
+    private static final String KEY_MIGRATION_NAME = "migration_name";
+    private static final String KEY_MIGRATION_PROGRESS = "migration_progress";
+    private static final String KEY_MIGRATION_TARGET = "migration_target";
+    private static final String MIGRATION_TRAINING_MAX = "training_max";
 
     /**
      * Extra workout table *
@@ -112,11 +169,80 @@ public class SqlHandler {
             "extra_main_exercise_name";
     private static final String KEY_IS_BBB = "is_bbb";
 
+    /**
+     * The queries behind the week list, the history and its count. Kept here so the test of
+     * their query plans runs exactly what the handler runs.
+     */
+    static final String SQL_WEEK_WORKOUTS = weekWorkoutsQuery(false);
+    static final String SQL_WEEK_WORKOUTS_BY_NAME = weekWorkoutsQuery(true);
+    static final String SQL_WEEK_PLANS = weekPlansQuery(false);
+    static final String SQL_WEEK_PLANS_BY_NAME = weekPlansQuery(true);
+    static final String SQL_OLD_WORKOUT_SUMMARIES = oldWorkoutsQuery(true, OLD_WORKOUTS);
+    static final String SQL_OLD_WORKOUT_SUMMARIES_AFTER = oldWorkoutsQuery(true, OLD_WORKOUTS
+            + " AND " + KEY_INSERT_TIME + "<=? AND (" + KEY_INSERT_TIME + "<? OR "
+            + KEY_WORKOUT_ID + "<?)");
+    static final String SQL_OLD_WORKOUT_SUMMARY =
+            oldWorkoutsQuery(true, OLD_WORKOUTS + " AND " + KEY_WORKOUT_ID + "=?");
+    static final String SQL_OLD_WORKOUT =
+            oldWorkoutsQuery(false, OLD_WORKOUTS + " AND " + KEY_WORKOUT_ID + "=?");
+    static final String SQL_WORKOUT = oldWorkoutsQuery(false, KEY_WORKOUT_ID + "=?");
+    static final String SQL_DELETED_WORKOUT = oldWorkoutsQuery(false,
+            KEY_WORKOUT_DELETED + "=1 AND " + KEY_WORKOUT_ID + "=?");
+    static final String SQL_COUNT_OLD_WORKOUTS = "SELECT COUNT(*) FROM "
+            + DATABASE_TABLE_WENDLER_WORKOUT + " WHERE " + OLD_WORKOUTS;
+
+    /**
+     * Number of completed workouts, shared by all handlers, packed with the generation it was
+     * counted in so both are read and replaced together. The generation is bumped after every
+     * committed change to the count, a count made from an older snapshot is then not used.
+     */
+    private static final AtomicInteger sOldWorkoutsGeneration = new AtomicInteger();
+    private static final AtomicLong sOldWorkoutsCount = new AtomicLong(packCount(-1, 0));
+
+    /**
+     * In-memory mirror of the personal record table, loaded on first use.
+     */
+    private static final Map<String, PersonalRecord> sRecords = new HashMap<>();
+    private static boolean sRecordsLoaded;
+
+    /**
+     * The stats and percentage tables, kept in memory and updated on every write to them.
+     */
+    private static final StatsCache sStatsCache = new StatsCache();
+
+    /**
+     * The connection shared by all handlers. It is opened by the first handler and then kept
+     * for the rest of the process, handlers only hold a reference to it while they are open.
+     */
+    private static final Object sConnectionLock = new Object();
+    private static DbHelper sDbHelper;
+    private static volatile SQLiteDatabase sDatabase;
+    private static int sReferences;
+
+    /**
+     * Held for writing while the database file is replaced, and for reading by the work of the
+     * WorkoutRepository so none of it runs against the database being replaced.
+     */
+    static final ReentrantReadWriteLock sReplaceLock = new ReentrantReadWriteLock();
+
+    /**
+     * Number of handler opens and of actual database opens in this process, for debugging.
+     */
+    private static int sHandlerOpens;
+    private static int sDatabaseOpens;
+
+    /**
+     * Creates the cursors of the shared connection, null for the default. Only set by tests to
+     * count queries, before the connection is opened.
+     */
+    static SQLiteDatabase.CursorFactory sCursorFactory;
+
     private final Context mContext;
-    private DbHelper mDbHelper;
-    private SQLiteDatabase mDatabase;
     private boolean mIsOpen;
 
+    // The stats written in the open transaction of this handler, published once it commits
+    private Map<String, StatsCache.ExerciseStats> mPendingStats;
+
     /**
      * Constructor
      */
@@ -128,24 +254,86 @@ public class SqlHandler {
      * Open the connection to the SQLite database.
      */
     public void open() throws SQLException {
-        if (mIsOpen && mDbHelper != null && mDatabase != null) {
+        if (mIsOpen) {
             return;
         }
-        mDbHelper = new DbHelper(mContext);
-        mDatabase = mDbHelper.getWritableDatabase();
-        mIsOpen = true;
+        synchronized (sConnectionLock) {
+            getSharedDatabase(mContext);
+            sReferences++;
+            sHandlerOpens++;
+            mIsOpen = true;
+            WendlerizedLog.v("Handler opened " + sHandlerOpens + " times, database opened "
+                    + sDatabaseOpens + " times, " + sReferences + " handlers open");
+        }
     }
 
     /**
-     * Close the connection to the database.
+     * Close the connection to the database. The shared connection itself stays open.
      */
     public void close() {
-        if (mIsOpen && mDbHelper != null) {
-            mDbHelper.close();
+        if (!mIsOpen) {
+            return;
+        }
+        synchronized (sConnectionLock) {
+            sReferences--;
             mIsOpen = false;
         }
     }
 
+    /**
+     * Return the shared connection. It is read again on every use, so a handler opened before
+     * the database was restored uses the restored one.
+     */
+    private SQLiteDatabase getDatabase() {
+        return sDatabase;
+    }
+
+    /**
+     * Return the shared connection, opening it if needed. Must hold the sConnectionLock.
+     */
+    private static SQLiteDatabase getSharedDatabase(Context context) {
+        if (sDbHelper == null) {
+            sDbHelper = new DbHelper(context.getApplicationContext(), sCursorFactory);
+        }
+        if (sDatabase == null || !sDatabase.isOpen()) {
+            sDatabase = sDbHelper.getWritableDatabase();
+            sDatabaseOpens++;
+        }
+        return sDatabase;
+    }
+
+    /**
+     * Close the shared connection and delete the database.
+     */
+    public static void deleteDatabase(Context context) {
+        synchronized (sConnectionLock) {
+            if (sReferences > 0) {
+                WendlerizedLog.e("Deleting the database with " + sReferences
+                        + " handlers open", null);
+            }
+            if (sDbHelper != null) {
+                sDbHelper.close();
+                sDbHelper = null;
+            }
+            sDatabase = null;
+            context.deleteDatabase(DATABASE_NAME);
+        }
+        clearCaches();
+    }
+
+    /**
+     * Drop everything cached from the database, used when the database is replaced or deleted.
+     */
+    public static void clearCaches() {
+        invalidateOldWorkoutsCount();
+        sStatsCache.clear();
+        synchronized (sRecords) {
+            sRecords.clear();
+            sRecordsLoaded = false;
+        }
+        WorkoutStore.getInstance().evictAll();
+    }
+
     /**
      * Insert one rm for all exercises as well as the workout percentage.
      */
@@ -154,69 +342,85 @@ public class SqlHandler {
                                                 double benchOneRm,
                                                 double squatOneRm,
                                                 int workoutPercentage) {
-        ContentValues cv = new ContentValues();
-        cv.put(KEY_1RM, pressOneRm);
-        cv.put(KEY_CYCLE, 1);
-        cv.put(KEY_CYCLE_NAME, 1);
-        cv.put(KEY_WEEK, 1);
-        cv.put(KEY_TRAINING_PERCENTAGE, workoutPercentage);
-        cv.put(KEY_NAME, Constants.EXERCISES[0]);
-        mDatabase.insert(DATABASE_TABLE_WENDLER_STATS, null, cv);
-
-        cv.clear();
-        cv.put(KEY_1RM, deadliftOneRm);
-        cv.put(KEY_CYCLE, 1);
-        cv.put(KEY_CYCLE_NAME, 1);
-        cv.put(KEY_WEEK, 1);
-        cv.put(KEY_TRAINING_PERCENTAGE, workoutPercentage);
-        cv.put(KEY_NAME, Constants.EXERCISES[1]);
-        mDatabase.insert(DATABASE_TABLE_WENDLER_STATS, null, cv);
-
-        cv.clear();
-        cv.put(KEY_1RM, benchOneRm);
-        cv.put(KEY_CYCLE, 1);
-        cv.put(KEY_CYCLE_NAME, 1);
-        cv.put(KEY_WEEK, 1);
-        cv.put(KEY_TRAINING_PERCENTAGE, workoutPercentage);
-        cv.put(KEY_NAME, Constants.EXERCISES[2]);
-        mDatabase.insert(DATABASE_TABLE_WENDLER_STATS, null, cv);
-
-        cv.clear();
-        cv.put(KEY_1RM, squatOneRm);
-        cv.put(KEY_CYCLE, 1);
-        cv.put(KEY_CYCLE_NAME, 1);
-        cv.put(KEY_WEEK, 1);
-        cv.put(KEY_TRAINING_PERCENTAGE, workoutPercentage);
-        cv.put(KEY_NAME, Constants.EXERCISES[3]);
-        mDatabase.insert(DATABASE_TABLE_WENDLER_STATS, null, cv);
+        getDatabase().beginTransaction();
+        boolean successful = false;
+        try {
+            ContentValues cv = new ContentValues();
+            cv.put(KEY_1RM, pressOneRm);
+            cv.put(KEY_CYCLE, 1);
+            cv.put(KEY_CYCLE_NAME, 1);
+            cv.put(KEY_WEEK, 1);
+            cv.put(KEY_TRAINING_PERCENTAGE, workoutPercentage);
+            cv.put(KEY_NAME, Constants.EXERCISES[0]);
+            getDatabase().insert(DATABASE_TABLE_WENDLER_STATS, null, cv);
+
+            cv.clear();
+            cv.put(KEY_1RM, deadliftOneRm);
+            cv.put(KEY_CYCLE, 1);
+            cv.put(KEY_CYCLE_NAME, 1);
+            cv.put(KEY_WEEK, 1);
+            cv.put(KEY_TRAINING_PERCENTAGE, workoutPercentage);
+            cv.put(KEY_NAME, Constants.EXERCISES[1]);
+            getDatabase().insert(DATABASE_TABLE_WENDLER_STATS, null, cv);
+
+            cv.clear();
+            cv.put(KEY_1RM, benchOneRm);
+            cv.put(KEY_CYCLE, 1);
+            cv.put(KEY_CYCLE_NAME, 1);
+            cv.put(KEY_WEEK, 1);
+            cv.put(KEY_TRAINING_PERCENTAGE, workoutPercentage);
+            cv.put(KEY_NAME, Constants.EXERCISES[2]);
+            getDatabase().insert(DATABASE_TABLE_WENDLER_STATS, null, cv);
+
+            cv.clear();
+            cv.put(KEY_1RM, squatOneRm);
+            cv.put(KEY_CYCLE, 1);
+            cv.put(KEY_CYCLE_NAME, 1);
+            cv.put(KEY_WEEK, 1);
+            cv.put(KEY_TRAINING_PERCENTAGE, workoutPercentage);
+            cv.put(KEY_NAME, Constants.EXERCISES[3]);
+            getDatabase().insert(DATABASE_TABLE_WENDLER_STATS, null, cv);
+            statsChanged();
+            getDatabase().setTransactionSuccessful();
+            successful = true;
+        } finally {
+            endStatsTransaction(successful);
+        }
     }
 
     /**
      * Insert the order of workouts.
      */
     public void insertExerciseOrder(int pressDay, int deadliftDay, int benchDay, int squatDay) {
+        getDatabase().beginTransaction();
+        boolean successful = false;
+        try {
+            ContentValues cv = new ContentValues();
 
-        ContentValues cv = new ContentValues();
-
-        cv.put(KEY_ORDER, pressDay);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[0]});
-
-        cv.clear();
-        cv.put(KEY_ORDER, deadliftDay);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[1]});
-
-        cv.clear();
-        cv.put(KEY_ORDER, benchDay);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[2]});
-
-        cv.clear();
-        cv.put(KEY_ORDER, squatDay);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[3]});
-
+            cv.put(KEY_ORDER, pressDay);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[0]});
+
+            cv.clear();
+            cv.put(KEY_ORDER, deadliftDay);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[1]});
+
+            cv.clear();
+            cv.put(KEY_ORDER, benchDay);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[2]});
+
+            cv.clear();
+            cv.put(KEY_ORDER, squatDay);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[3]});
+            statsChanged();
+            getDatabase().setTransactionSuccessful();
+            successful = true;
+        } finally {
+            endStatsTransaction(successful);
+        }
     }
 
     /**
@@ -224,60 +428,38 @@ public class SqlHandler {
      */
     public void insertWeekPercentages(
             int[] weekOne, int[] weekTwo, int[] weekThree, int[] weekFour) {
-        ContentValues cv = new ContentValues();
-
-        cv.put(KEY_WEEK_ONE, weekOne[0]);
-        cv.put(KEY_WEEK_TWO, weekTwo[0]);
-        cv.put(KEY_WEEK_THREE, weekThree[0]);
-        cv.put(KEY_WEEK_FOUR, weekFour[0]);
-
-        mDatabase.insert(DATABASE_TABLE_PERCENT, null, cv);
-
-        cv.clear();
-        cv.put(KEY_WEEK_ONE, weekOne[1]);
-        cv.put(KEY_WEEK_TWO, weekTwo[1]);
-        cv.put(KEY_WEEK_THREE, weekThree[1]);
-        cv.put(KEY_WEEK_FOUR, weekFour[1]);
-
-        mDatabase.insert(DATABASE_TABLE_PERCENT, null, cv);
-
-        cv.clear();
-        cv.put(KEY_WEEK_ONE, weekOne[2]);
-        cv.put(KEY_WEEK_TWO, weekTwo[2]);
-        cv.put(KEY_WEEK_THREE, weekThree[2]);
-        cv.put(KEY_WEEK_FOUR, weekFour[2]);
-
-        mDatabase.insert(DATABASE_TABLE_PERCENT, null, cv);
+        storePercentages(weekOne, weekTwo, weekThree, weekFour);
     }
 
     /**
      * Update the percentages of our workouts.
      */
     public void updatePercentages(int[] weekOne, int[] weekTwo, int[] weekThree, int[] weekFour) {
-        ContentValues cv = new ContentValues();
-
-        cv.put(KEY_WEEK_ONE, weekOne[0]);
-        cv.put(KEY_WEEK_TWO, weekTwo[0]);
-        cv.put(KEY_WEEK_THREE, weekThree[0]);
-        cv.put(KEY_WEEK_FOUR, weekFour[0]);
-
-        mDatabase.update(DATABASE_TABLE_PERCENT, cv, KEY_ROW_ID + "=?", new String[]{"1"});
-
-        cv.clear();
-        cv.put(KEY_WEEK_ONE, weekOne[1]);
-        cv.put(KEY_WEEK_TWO, weekTwo[1]);
-        cv.put(KEY_WEEK_THREE, weekThree[1]);
-        cv.put(KEY_WEEK_FOUR, weekFour[1]);
-
-        mDatabase.update(DATABASE_TABLE_PERCENT, cv, KEY_ROW_ID + "=?", new String[]{"2"});
-
-        cv.clear();
-        cv.put(KEY_WEEK_ONE, weekOne[2]);
-        cv.put(KEY_WEEK_TWO, weekTwo[2]);
-        cv.put(KEY_WEEK_THREE, weekThree[2]);
-        cv.put(KEY_WEEK_FOUR, weekFour[2]);
+        storePercentages(weekOne, weekTwo, weekThree, weekFour);
+    }
 
-        mDatabase.update(DATABASE_TABLE_PERCENT, cv, KEY_ROW_ID + "=?", new String[]{"3"});
+    /**
+     * Replace the percentages of every set in every week, the weeks counted from one.
+     */
+    private void storePercentages(int[]... weeks) {
+        getDatabase().beginTransaction();
+        try {
+            getDatabase().delete(DATABASE_TABLE_SET_PERCENT, null, null);
+            ContentValues cv = new ContentValues();
+            for (int week = 0; week < weeks.length; week++) {
+                for (int set = 0; set < weeks[week].length; set++) {
+                    cv.put(KEY_WEEK, week + 1);
+                    cv.put(KEY_SET_NUMBER, set + 1);
+                    cv.put(KEY_PERCENTAGE, weeks[week][set]);
+                    getDatabase().insert(DATABASE_TABLE_SET_PERCENT, null, cv);
+                }
+            }
+            getDatabase().setTransactionSuccessful();
+        } finally {
+            getDatabase().endTransaction();
+        }
+        reloadPercentages();
+        replanCycles();
     }
 
     /**
@@ -287,97 +469,243 @@ public class SqlHandler {
                                  double deadliftIncrement,
                                  double benchIncrement,
                                  double squatIncrement) {
-
-        ContentValues cv = new ContentValues();
-        cv.put(KEY_INCREMENT, pressIncrement);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[0]});
-
-        cv.clear();
-        cv.put(KEY_INCREMENT, deadliftIncrement);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[1]});
-
-        cv.clear();
-        cv.put(KEY_INCREMENT, benchIncrement);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[2]});
-
-        cv.clear();
-        cv.put(KEY_INCREMENT, squatIncrement);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[3]});
+        getDatabase().beginTransaction();
+        boolean successful = false;
+        try {
+            ContentValues cv = new ContentValues();
+            cv.put(KEY_INCREMENT, pressIncrement);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[0]});
+
+            cv.clear();
+            cv.put(KEY_INCREMENT, deadliftIncrement);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[1]});
+
+            cv.clear();
+            cv.put(KEY_INCREMENT, benchIncrement);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[2]});
+
+            cv.clear();
+            cv.put(KEY_INCREMENT, squatIncrement);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[3]});
+            statsChanged();
+            getDatabase().setTransactionSuccessful();
+            successful = true;
+        } finally {
+            endStatsTransaction(successful);
+        }
     }
 
     /**
      * Return if the data base is initialized.
      */
     public boolean isInitialized() {
-        Cursor c = null;
-        try {
-            c = mDatabase.query(DATABASE_TABLE_WENDLER_STATS, new String[]{KEY_ROW_ID},
-                    null, null, null, null, null);
-            return c != null && c.moveToFirst();
-        } finally {
-            if (c != null) {
-                c.close();
+        return !getStats().isEmpty();
+    }
+
+    /**
+     * Return the summaries of the workouts of a given week, the main exercise of a workout which
+     * has not been started comes from its plan.
+     */
+    public ArrayList<WorkoutSummary> getWorkoutSummariesForList(int week) {
+        ArrayList<WorkoutSummary> summaries = new ArrayList<>();
+        for (Workout workout : getWorkoutsForList(week, null)) {
+            if (workout.getMainExercise() == null) {
+                workout.setMainExercise(getMainExerciseForWorkout(workout));
             }
+            summaries.add(new WorkoutSummary(workout));
         }
+        return summaries;
     }
 
     /**
-     * Return a list of workouts for a given week.
+     * Return a full workout by its id, or by its week and name if it has not been stored.
+     * Returns null if it is gone. Use {@link WorkoutStore} to get it from the cache.
      */
-    public ArrayList<Workout> getWorkoutsForList(int week) {
-        ArrayList<Workout> list = new ArrayList<>();
-
-        String[] names = getExerciseNamesInOrder();
-
-        for (String name : names) {
-            int cycle = getCurrentCycle(name);
-            int cycleName = getCurrentCycleName(name);
-            int id = exerciseHasBeenDone(name, week, cycle);
+    public Workout getWorkout(int workoutId, int week, String name) {
+        Workout workout = null;
+        if (workoutId != -1) {
+            ArrayList<Workout> workouts = getOldWorkouts(
+                    SQL_WORKOUT, new String[]{String.valueOf(workoutId), "1"});
+            workout = workouts.isEmpty() ? null : workouts.get(0);
+        }
+        if (workout == null || !workout.isComplete()) {
+            // Started or new workouts get their extras and plan like in the week list
+            ArrayList<Workout> workouts = getWorkoutsForList(week, name);
+            workout = workouts.isEmpty() ? null : workouts.get(0);
+        }
+        if (workout == null) {
+            return null;
+        }
 
-            if (id != -1) {
-                boolean isWorkoutComplete = isWorkoutComplete(id);
-                list.add(new Workout(name, StringHelper.getTranslatableName(mContext, name),
-                        isWorkoutComplete, exerciseWon(id),
-                        week, cycle, cycleName, id, getMainExerciseForWorkout(isWorkoutComplete, id)
-                        , getExtraExerciseForWorkout(name, id, isWorkoutComplete),
-                        getInsertTimeForId(id), getTimeForWorkout(id), getNotesForWorkout(id)));
-            } else {
-                WendlerizedLog.d("Add: " + name + " Week: " + week + " Cycle: " + cycle);
-                list.add(new Workout(name, StringHelper.getTranslatableName(mContext, name),
-                        week, cycle, cycleName, -1, getMainExerciseForWorkout(name, week)));
-            }
+        if (workout.getMainExercise() == null) {
+            workout.setMainExercise(getMainExerciseForWorkout(workout));
         }
-        return list;
+        if (workout.getAdditionalExercises().isEmpty()) {
+            workout.setAdditionalExercises(getAdditionalExercisesForWorkout(workout));
+        }
+        return workout;
     }
 
     /**
-     * Return the names of our exercises in order converted to references a string item
+     * Return the query for the workouts of a week: one row per exercise in the stats table,
+     * joined with the workout for the current cycle of that exercise if it has been started or
+     * done. Takes the week, and the exercise name if byName is set.
+     */
+    private static String weekWorkoutsQuery(boolean byName) {
+        return String.format(Locale.ROOT,
+                "SELECT s.%1$s, s.%2$s, s.%3$s, s.%4$s, s.%5$s, s.%6$s," +
+                        " w.%7$s, w.%8$s, w.%9$s, w.%10$s, w.%3$s, w.%2$s, w.%11$s," +
+                        " w.%12$s, w.%13$s, w.%14$s" +
+                        " FROM %15$s s LEFT JOIN %16$s w" +
+                        " ON w.%17$s = s.%1$s AND w.%5$s = s.%5$s AND w.%18$s = ?" +
+                        " AND w." + NOT_DELETED +
+                        (byName ? " WHERE s.%1$s = ?" : "") +
+                        " ORDER BY s.%19$s ASC, w.%20$s ASC",
+                KEY_NAME, KEY_TRAINING_PERCENTAGE, KEY_1RM, KEY_INCREMENT, KEY_CYCLE,
+                KEY_CYCLE_NAME, KEY_WORKOUT_ID, KEY_WORKOUT_COMPLETED, KEY_WORKOUT_WON,
+                KEY_WORKOUT_REPS, KEY_WORKOUT_EST_ONE_RM, KEY_INSERT_TIME, KEY_WORKOUT_DATE,
+                KEY_WORKOUT_NOTES, DATABASE_TABLE_WENDLER_STATS, DATABASE_TABLE_WENDLER_WORKOUT,
+                KEY_WORKOUT_EXERCISE, KEY_WORKOUT_WEEK, KEY_ORDER, KEY_ROW_ID);
+    }
+
+    /**
+     * Return a list of workouts for a given week, of one exercise or all if the name is null.
      */
-    public String[] getExerciseNamesInOrder() {
-        String[] arr = new String[4];
+    private ArrayList<Workout> getWorkoutsForList(int week, String exerciseName) {
+        ArrayList<Workout> list = new ArrayList<>();
+        ArrayList<Integer> workoutIds = new ArrayList<>();
+        Map<String, Double> oneRms = new HashMap<>();
+
+        int[] setPercentages = getSetPercentages(week);
+        String sql = exerciseName == null ? SQL_WEEK_WORKOUTS : SQL_WEEK_WORKOUTS_BY_NAME;
+
+        Map<String, Integer> highestEstimated1RMs = getHighestEstimated1RMs();
+
+        int planSettings = getPlanSettings();
+        Map<String, MainExercise> plans =
+                getPlannedMainExercises(week, exerciseName, planSettings, highestEstimated1RMs);
 
+        String[] args = exerciseName == null
+                ? new String[]{String.valueOf(week)}
+                : new String[]{String.valueOf(week), exerciseName};
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_STATS, new String[]{KEY_NAME},
-                    null, null, null, null, KEY_ORDER + " ASC ");
-            int i = 0;
-            if (cursor != null && cursor.getCount() > 0) {
-                cursor.moveToFirst();
+            cursor = getDatabase().rawQuery(sql, args);
+            if (cursor != null && cursor.moveToFirst()) {
                 do {
-                    arr[i] = cursor.getString(cursor.getColumnIndex(KEY_NAME));
-                    i++;
-                } while (cursor.moveToNext() && i < arr.length);
+                    String name = cursor.getString(0);
+                    if (oneRms.containsKey(name)) {
+                        // Only the first workout of a given week and cycle is shown
+                        continue;
+                    }
+                    oneRms.put(name, cursor.getDouble(2));
+
+                    int workoutPercentage = cursor.getInt(1);
+                    int cycle = cursor.getInt(4);
+                    int cycleName = cursor.getInt(5);
+
+                    if (cursor.isNull(6)) {
+                        WendlerizedLog.d("Add: " + name + " Week: " + week + " Cycle: " + cycle);
+                        MainExercise mainExercise = plans.get(name);
+                        if (mainExercise == null) {
+                            // Planned again by the next write, until then built in memory
+                            Integer highestEstimated1RM = highestEstimated1RMs.get(name);
+                            mainExercise = buildMainExercise(name, week, cursor.getDouble(2),
+                                    parseIncrement(cursor.getString(3)), workoutPercentage,
+                                    setPercentages,
+                                    highestEstimated1RM == null ? -1 : highestEstimated1RM);
+                        }
+                        list.add(new Workout(name,
+                                StringHelper.getTranslatableName(mContext, name),
+                                week, cycle, cycleName, -1, mainExercise));
+                        continue;
+                    }
+
+                    int id = cursor.getInt(6);
+                    boolean isWorkoutComplete = cursor.getInt(7) == 1;
+                    MainExercise mainExercise = buildStoredMainExercise(name, week,
+                            cursor.getInt(9), parseIncrement(cursor.getString(3)),
+                            cursor.getInt(11), cursor.getFloat(10), cursor.getInt(12),
+                            setPercentages);
+                    if (!isWorkoutComplete && mainExercise.getLastSetProgress() < 0) {
+                        mainExercise = null;
+                    }
+
+                    workoutIds.add(id);
+                    list.add(new Workout(name, StringHelper.getTranslatableName(mContext, name),
+                            isWorkoutComplete, cursor.getInt(8) == 1, week, cycle, cycleName, id,
+                            mainExercise, null, cursor.getLong(13), cursor.getInt(14),
+                            cursor.getString(15)));
+                } while (cursor.moveToNext());
             }
-            return arr;
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
         }
+
+        if (!workoutIds.isEmpty()) {
+            Map<Integer, ArrayList<AdditionalExercise>> extras = new HashMap<>();
+            Map<Integer, Boolean> started = new HashMap<>();
+            getExtraExercisesForWorkouts(workoutIds, oneRms, extras, started);
+
+            Map<String, ArrayList<AdditionalExercise>> templates = null;
+            for (Workout workout : list) {
+                if (workout.getWorkoutId() == -1) {
+                    continue;
+                }
+                Boolean isStarted = started.get(workout.getWorkoutId());
+                if (workout.isComplete() || (isStarted != null && isStarted)) {
+                    workout.setAdditionalExercises(extras.get(workout.getWorkoutId()));
+                } else {
+                    if (templates == null) {
+                        templates = getAdditionalExercisesForWorkouts(oneRms);
+                    }
+                    ArrayList<AdditionalExercise> template = templates.get(workout.getName());
+                    workout.setAdditionalExercises(template == null
+                            ? new ArrayList<AdditionalExercise>() : template);
+                }
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * Return the highest estimated 1rm for every exercise which has one.
+     */
+    private Map<String, Integer> getHighestEstimated1RMs() {
+        Map<String, Integer> map = new HashMap<>();
+        synchronized (sRecords) {
+            loadRecordsIfNeeded();
+            for (Map.Entry<String, PersonalRecord> entry : sRecords.entrySet()) {
+                map.put(entry.getKey(), entry.getValue().estOneRm);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Return the names of our exercises in order converted to references a string item
+     */
+    public String[] getExerciseNamesInOrder() {
+        List<StatsCache.ExerciseStats> stats = new ArrayList<>(getStats().values());
+        Collections.sort(stats, new Comparator<StatsCache.ExerciseStats>() {
+            @Override
+            public int compare(StatsCache.ExerciseStats lhs, StatsCache.ExerciseStats rhs) {
+                return lhs.order < rhs.order ? -1 : (lhs.order == rhs.order ? 0 : 1);
+            }
+        });
+
+        String[] arr = new String[4];
+        for (int i = 0; i < arr.length && i < stats.size(); i++) {
+            arr[i] = stats.get(i).name;
+        }
+        return arr;
     }
 
     /**
@@ -391,81 +719,292 @@ public class SqlHandler {
      * Return main exercise for a given week and name.
      */
     public MainExercise getMainExerciseForWorkout(String name, int week) {
-        String[] columns =
-                new String[]{KEY_TRAINING_PERCENTAGE, KEY_1RM, KEY_INCREMENT, KEY_NAME};
+        StatsCache.ExerciseStats stats = getStats().get(name);
+        if (stats == null) {
+            return null;
+        }
+        int planSettings = getPlanSettings();
+        Map<String, Integer> highestEstimated1RMs = getHighestEstimated1RMs();
+        MainExercise mainExercise = getPlannedMainExercises(
+                week, name, planSettings, highestEstimated1RMs).get(name);
+        if (mainExercise != null) {
+            return mainExercise;
+        }
+        Integer highestEstimated1RM = highestEstimated1RMs.get(name);
+        return buildMainExercise(name, week, stats.oneRm, stats.increment,
+                stats.workoutPercentage, getSetPercentages(week),
+                highestEstimated1RM == null ? -1 : highestEstimated1RM);
+    }
 
+    /**
+     * Return the query for the planned sets of a week in the current cycle of every exercise.
+     * The stats drive the join, so the plans are found by their primary key. Takes the week,
+     * and the exercise name if byName is set.
+     */
+    private static String weekPlansQuery(boolean byName) {
+        return String.format(Locale.ROOT,
+                "SELECT p.%1$s, p.%2$s, p.%3$s, p.%4$s, p.%5$s, p.%6$s, p.%7$s, p.%8$s," +
+                        " p.%9$s, s.%7$s, s.%10$s, s.%11$s" +
+                        " FROM %13$s s CROSS JOIN %12$s p" +
+                        " ON p.%1$s = s.%1$s AND p.%14$s = s.%14$s AND p.%15$s = ?%16$s" +
+                        " ORDER BY p.%1$s ASC, p.%17$s ASC",
+                KEY_NAME, KEY_SET_TYPE, KEY_SET_WEIGHT, KEY_SET_GOAL, KEY_REP_GOAL,
+                KEY_REPS_TO_BEAT, KEY_1RM, KEY_PLAN_RECORD, KEY_PLAN_SETTINGS, KEY_INCREMENT,
+                KEY_TRAINING_PERCENTAGE, DATABASE_TABLE_WENDLER_PLAN, DATABASE_TABLE_WENDLER_STATS,
+                KEY_CYCLE, KEY_WEEK, byName ? " WHERE s." + KEY_NAME + " = ?" : "",
+                KEY_SET_NUMBER);
+    }
+
+    /**
+     * Return the planned main exercises of a week by name, for one exercise or all if the name
+     * is null. Plans made for another cycle, one rm, record or settings are left out.
+     */
+    private Map<String, MainExercise> getPlannedMainExercises(
+            int week, String name, int planSettings, Map<String, Integer> highestEstimated1RMs) {
+        String sql = name == null ? SQL_WEEK_PLANS : SQL_WEEK_PLANS_BY_NAME;
+        String[] args = name == null
+                ? new String[]{String.valueOf(week)}
+                : new String[]{String.valueOf(week), name};
+
+        Map<String, MainExercise> plans = new HashMap<>();
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_STATS, columns,
-                    KEY_NAME + "=?", new String[]{name}, null, null, null);
+            cursor = getDatabase().rawQuery(sql, args);
             if (cursor != null && cursor.moveToFirst()) {
-                double increment = cursor.getFloat(cursor.getColumnIndex(KEY_INCREMENT));
-
-                int workoutPercentage = cursor.getInt(cursor.getColumnIndex
-                        (KEY_TRAINING_PERCENTAGE));
-                double oneRm = cursor.getFloat(cursor.getColumnIndex(KEY_1RM));
-
-                int[] setPercentages = getSetPercentages(week);
-
-                boolean showWarmUp = PreferenceUtil.getBoolean(
-                        mContext, PreferenceUtil.KEY_SHOW_WARM_UP, true);
-
-                List<SetGroup> setGroups = new ArrayList<>();
-
-                if (showWarmUp) {
-                    String serialized = PreferenceUtil.getString(
-                            mContext,
-                            PreferenceUtil.KEY_WARM_UP_SETS,
-                            WendlerConstants.DEFAULT_WARMUP_PERCENTAGES);
-
-                    List<ExerciseSet> set = WendlerMath.getWarmupSets(
-                            mContext, oneRm, serialized.split(","), -1);
-                    setGroups.add(new SetGroup(SetType.WARM_UP, set));
-                }
-                List<ExerciseSet> set = WendlerMath.getWorkoutSets(
-                        mContext, oneRm, setPercentages, week, -1);
-                ArrayList<ExerciseSet> sets = new ArrayList<>();
-                sets.addAll(set);
-                setGroups.add(new SetGroup(SetType.REGULAR, set));
-
-                int highestEstimated1RM = getHighestEstimated1RM(name);
-
-                int repsToBeat = WendlerMath.getRepsToBeat(set, highestEstimated1RM);
+                String current = null;
+                List<SetGroup> setGroups = null;
+                ArrayList<ExerciseSet> mainSets = null;
+                List<ExerciseSet> sets = null;
+                do {
+                    String exercise = cursor.getString(0);
+                    if (!exercise.equals(current)) {
+                        current = exercise;
+                        setGroups = new ArrayList<>();
+                        mainSets = new ArrayList<>();
+                        Integer record = highestEstimated1RMs.get(exercise);
+                        if (cursor.getDouble(6) == cursor.getDouble(9)
+                                && cursor.getInt(7) == (record == null ? -1 : record)
+                                && cursor.getInt(8) == planSettings) {
+                            // The lists are filled in from the rows of the exercise
+                            plans.put(exercise, new MainExercise(exercise, cursor.getDouble(9),
+                                    parseIncrement(cursor.getString(10)), mainSets, setGroups,
+                                    cursor.getInt(11), 0, cursor.getInt(5)));
+                        }
+                    }
 
-                return new MainExercise(
-                        name, oneRm, increment, sets, setGroups, workoutPercentage, 0, repsToBeat);
+                    SetType type = SetType.valueOf(cursor.getString(1));
+                    SetType groupType = type == SetType.PLUS_SET ? SetType.REGULAR : type;
+                    if (setGroups.isEmpty() || setGroups.get(setGroups.size() - 1)
+                            .getSetType() != groupType) {
+                        sets = new ArrayList<>();
+                        setGroups.add(new SetGroup(groupType, sets));
+                    }
+                    ExerciseSet set = new ExerciseSet(type, cursor.getDouble(2),
+                            cursor.getInt(3), cursor.getInt(4), -1, false);
+                    sets.add(set);
+                    if (groupType == SetType.REGULAR) {
+                        mainSets.add(set);
+                    }
+                } while (cursor.moveToNext());
             }
-            return null;
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
         }
+        return plans;
     }
 
     /**
-     * Return the set percentages for a given week.
+     * Plan the current cycle of every exercise again whose stored plan is missing or was made
+     * from another one rm, record or settings. Called by the writes which change any of them,
+     * reads only build a stale plan in memory.
      */
-    public int[] getSetPercentages(int week) {
-        int[] percentages = new int[3];
+    public void replanCycles() {
+        getDatabase().beginTransaction();
+        try {
+            int planSettings = getPlanSettings();
+            Map<String, Integer> highestEstimated1RMs = getHighestEstimated1RMs();
+            // Every week of a cycle is planned at once, so the first week tells for all of them
+            Map<String, MainExercise> plans =
+                    getPlannedMainExercises(1, null, planSettings, highestEstimated1RMs);
+            for (StatsCache.ExerciseStats stats : getStats().values()) {
+                if (plans.containsKey(stats.name)) {
+                    continue;
+                }
+                Integer highestEstimated1RM = highestEstimated1RMs.get(stats.name);
+                planCycle(stats.name, stats.cycle, stats.oneRm, stats.increment,
+                        stats.workoutPercentage,
+                        highestEstimated1RM == null ? -1 : highestEstimated1RM, planSettings);
+            }
+            getDatabase().setTransactionSuccessful();
+        } finally {
+            getDatabase().endTransaction();
+        }
+    }
 
-        String[] columns = new String[]{"percent_week_" + week};
-        Cursor cursor = null;
+    /**
+     * Plan every week of a cycle of an exercise, replacing any earlier plan for it.
+     */
+    private void planCycle(String name,
+                           int cycle,
+                           double oneRm,
+                           double increment,
+                           int workoutPercentage,
+                           int highestEstimated1RM,
+                           int planSettings) {
+        getDatabase().beginTransaction();
+        SQLiteStatement statement = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_PERCENT, columns, null, null, null, null,
-                    null);
-            if (cursor != null && cursor.moveToFirst()) {
-                for (int i = 0; i < percentages.length; i++) {
-                    percentages[i] = cursor.getInt(cursor.getColumnIndex(columns[0]));
-                    cursor.moveToNext();
+            getDatabase().delete(DATABASE_TABLE_WENDLER_PLAN,
+                    KEY_NAME + "=? AND " + KEY_CYCLE + "=?",
+                    new String[]{name, String.valueOf(cycle)});
+
+            statement = getDatabase().compileStatement(String.format(Locale.ROOT,
+                    "INSERT INTO %s (%s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s)"
+                            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                    DATABASE_TABLE_WENDLER_PLAN,
+                    KEY_NAME,
+                    KEY_CYCLE,
+                    KEY_WEEK,
+                    KEY_SET_NUMBER,
+                    KEY_SET_TYPE,
+                    KEY_SET_WEIGHT,
+                    KEY_SET_GOAL,
+                    KEY_REP_GOAL,
+                    KEY_REPS_TO_BEAT,
+                    KEY_1RM,
+                    KEY_PLAN_RECORD,
+                    KEY_PLAN_SETTINGS));
+
+            for (int planWeek = 1; planWeek <= WEEKS_IN_CYCLE; planWeek++) {
+                MainExercise mainExercise = buildMainExercise(name, planWeek, oneRm, increment,
+                        workoutPercentage, getSetPercentages(planWeek), highestEstimated1RM);
+
+                int setNumber = 0;
+                for (SetGroup group : mainExercise.getSetGroups()) {
+                    for (ExerciseSet set : group.getSets()) {
+                        statement.clearBindings();
+                        statement.bindString(1, name);
+                        statement.bindLong(2, cycle);
+                        statement.bindLong(3, planWeek);
+                        statement.bindLong(4, ++setNumber);
+                        statement.bindString(5, set.getType().name());
+                        statement.bindDouble(6, set.getWeight());
+                        statement.bindLong(7, set.getSetGoal());
+                        statement.bindLong(8, set.getRepGoal());
+                        statement.bindLong(9, mainExercise.getRepsToBeat());
+                        statement.bindDouble(10, oneRm);
+                        statement.bindLong(11, highestEstimated1RM);
+                        statement.bindLong(12, planSettings);
+                        statement.executeInsert();
+                    }
                 }
             }
-            return percentages;
+            getDatabase().setTransactionSuccessful();
         } finally {
-            if (cursor != null) {
-                cursor.close();
+            if (statement != null) {
+                statement.close();
             }
+            getDatabase().endTransaction();
+        }
+    }
+
+    /**
+     * Return a key for everything besides the stats the planned sets depend on, the settings
+     * and the set percentages.
+     */
+    private int getPlanSettings() {
+        int key = WendlerSettings.get(mContext).getPlanKey();
+        for (int week = 1; week <= WEEKS_IN_CYCLE; week++) {
+            key = 31 * key + Arrays.hashCode(getSetPercentages(week));
+        }
+        return key;
+    }
+
+    /**
+     * Build the main exercise to perform for a given week from the current stats.
+     */
+    private MainExercise buildMainExercise(String name,
+                                           int week,
+                                           double oneRm,
+                                           double increment,
+                                           int workoutPercentage,
+                                           int[] setPercentages,
+                                           int highestEstimated1RM) {
+        WendlerSettings settings = WendlerSettings.get(mContext);
+
+        List<SetGroup> setGroups = new ArrayList<>();
+
+        if (settings.showWarmUp()) {
+            List<ExerciseSet> set = WendlerMath.getWarmupSets(mContext, oneRm, -1);
+            setGroups.add(new SetGroup(SetType.WARM_UP, set));
+        }
+        List<ExerciseSet> set = WendlerMath.getWorkoutSets(
+                mContext, oneRm, setPercentages, week, -1);
+        ArrayList<ExerciseSet> sets = new ArrayList<>();
+        sets.addAll(set);
+        setGroups.add(new SetGroup(SetType.REGULAR, set));
+
+        List<ExerciseSet> supplemental = WendlerMath.getSupplementalSets(
+                mContext, oneRm, setPercentages, week, -1);
+        if (supplemental != null) {
+            setGroups.add(new SetGroup(SetType.SUPPLEMENTAL, supplemental));
+        }
+
+        int repsToBeat = WendlerMath.getRepsToBeat(set, highestEstimated1RM);
+
+        return new MainExercise(
+                name, oneRm, increment, sets, setGroups, workoutPercentage, 0, repsToBeat);
+    }
+
+    /**
+     * Build the main exercise of a stored workout.
+     */
+    private MainExercise buildStoredMainExercise(String name,
+                                                 int week,
+                                                 int repsPerformed,
+                                                 double increment,
+                                                 int workoutPercentage,
+                                                 double oneRm,
+                                                 int estOneRm,
+                                                 int[] setPercentages) {
+        WendlerSettings settings = WendlerSettings.get(mContext);
+
+        List<SetGroup> setGroups = new ArrayList<>();
+        if (settings.showWarmUp()) {
+            List<ExerciseSet> set = WendlerMath.getWarmupSets(mContext, oneRm, repsPerformed);
+            ArrayList<ExerciseSet> sets = new ArrayList<>();
+            sets.addAll(set);
+            setGroups.add(new SetGroup(SetType.WARM_UP, sets));
+        }
+        List<ExerciseSet> set = WendlerMath.getWorkoutSets(
+                mContext, oneRm, setPercentages, week, repsPerformed);
+        ArrayList<ExerciseSet> sets = new ArrayList<>();
+        sets.addAll(set);
+        setGroups.add(new SetGroup(SetType.REGULAR, sets));
+
+        List<ExerciseSet> supplemental = WendlerMath.getSupplementalSets(
+                mContext, oneRm, setPercentages, week, repsPerformed);
+        if (supplemental != null) {
+            setGroups.add(new SetGroup(SetType.SUPPLEMENTAL, supplemental));
         }
+
+        int repsToBeat = -1; // Workout has been done, so no need to show the reps-to-beat
+
+        return new MainExercise(name, oneRm, increment, sets, setGroups,
+                workoutPercentage, estOneRm, repsToBeat);
+    }
+
+    /**
+     * Return the set percentages for a given week.
+     */
+    public int[] getSetPercentages(int week) {
+        int[][] percentages = sStatsCache.getPercentages();
+        if (percentages == null) {
+            percentages = reloadPercentages();
+        }
+        return percentages[week - 1].clone();
     }
 
     /**
@@ -477,53 +1016,50 @@ public class SqlHandler {
         Cursor cursor = null;
 
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_EXTRA_LIST, null,
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_EXTRA_LIST, null,
                     KEY_WORKOUT_EXERCISE + "=?", new String[]{workout.getName()}, null, null,
                     KEY_EXTRA_ORDER_IN_LIST + " ASC");
 
             if (cursor != null && cursor.moveToFirst()) {
                 do {
-                    String name = cursor.getString(cursor.getColumnIndex(KEY_EXERCISE_NAME));
-
-                    int sets = cursor.getInt(cursor.getColumnIndex
-                            (KEY_NUMBER_OF_SETS_TO_BE_DONE));
-                    int reps = cursor.getInt(cursor.getColumnIndex
-                            (KEY_NUMBER_OF_REPS_TO_BE_DONE));
+                    exercises.add(readAdditionalExercise(
+                            cursor, Collections.<String, Double>emptyMap()));
+                } while (cursor.moveToNext());
+            }
 
+            return exercises;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
 
-                    double weight = cursor.getDouble(cursor.getColumnIndex(KEY_EXTRA_WEIGHT));
-                    int percentage = cursor.getInt(cursor.getColumnIndex
-                            (KEY_EXTRA_PERCENTAGE_OF_MAIN_EXERCISE));
-                    String mainExerciseName = cursor.getString(cursor.getColumnIndex
-                            (KEY_EXTRA_MAIN_EXERCISE_NAME));
+    /**
+     * Return the permanent extra exercises of all workouts, mapped by workout name.
+     */
+    private Map<String, ArrayList<AdditionalExercise>> getAdditionalExercisesForWorkouts(
+            Map<String, Double> oneRms) {
+        Map<String, ArrayList<AdditionalExercise>> map = new HashMap<>();
 
-                    int exerciseId = cursor.getInt(cursor.getColumnIndex(KEY_EXTRA_EXERCISE_ID));
+        Cursor cursor = null;
+        try {
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_EXTRA_LIST, null, null, null, null,
+                    null, KEY_WORKOUT_EXERCISE + " ASC, " + KEY_EXTRA_ORDER_IN_LIST + " ASC");
 
-                    ArrayList<ExerciseSet> exerciseSets = new ArrayList<>();
-                    double mainExerciseWeight = getOneRmForExercise(mainExerciseName);
-                    if (!TextUtils.isEmpty(mainExerciseName)) {
-                        weight = WendlerMath.calculateWeight(
-                                mContext,
-                                getOneRmForExercise(mainExerciseName),
-                                percentage);
+            if (cursor != null && cursor.moveToFirst()) {
+                do {
+                    String workoutName =
+                            cursor.getString(cursor.getColumnIndex(KEY_WORKOUT_EXERCISE));
+                    ArrayList<AdditionalExercise> exercises = map.get(workoutName);
+                    if (exercises == null) {
+                        exercises = new ArrayList<>();
+                        map.put(workoutName, exercises);
                     }
-
-                    ExerciseSet set = new ExerciseSet(SetType.REGULAR, weight, sets, reps, 0, false);
-                    exerciseSets.add(set);
-
-                    AdditionalExercise exercise = new AdditionalExercise(
-                            name,
-                            exerciseSets,
-                            mainExerciseName,
-                            percentage,
-                            mainExerciseWeight,
-                            exerciseId,
-                            false);
-                    exercises.add(exercise);
+                    exercises.add(readAdditionalExercise(cursor, oneRms));
                 } while (cursor.moveToNext());
             }
-
-            return exercises;
+            return map;
         } finally {
             if (cursor != null) {
                 cursor.close();
@@ -531,19 +1067,94 @@ public class SqlHandler {
         }
     }
 
+    /**
+     * Read a permanent extra exercise from the current row of a cursor.
+     */
+    private AdditionalExercise readAdditionalExercise(Cursor cursor, Map<String, Double> oneRms) {
+        String name = cursor.getString(cursor.getColumnIndex(KEY_EXERCISE_NAME));
+
+        int sets = cursor.getInt(cursor.getColumnIndex
+                (KEY_NUMBER_OF_SETS_TO_BE_DONE));
+        int reps = cursor.getInt(cursor.getColumnIndex
+                (KEY_NUMBER_OF_REPS_TO_BE_DONE));
+
+
+        double weight = cursor.getDouble(cursor.getColumnIndex(KEY_EXTRA_WEIGHT));
+        int percentage = cursor.getInt(cursor.getColumnIndex
+                (KEY_EXTRA_PERCENTAGE_OF_MAIN_EXERCISE));
+        String mainExerciseName = cursor.getString(cursor.getColumnIndex
+                (KEY_EXTRA_MAIN_EXERCISE_NAME));
+
+        int exerciseId = cursor.getInt(cursor.getColumnIndex(KEY_EXTRA_EXERCISE_ID));
+
+        ArrayList<ExerciseSet> exerciseSets = new ArrayList<>();
+        double mainExerciseWeight = getOneRmForExercise(mainExerciseName, oneRms);
+        if (!TextUtils.isEmpty(mainExerciseName)) {
+            weight = WendlerMath.calculateWeight(
+                    mContext,
+                    mainExerciseWeight,
+                    percentage);
+        }
+
+        ExerciseSet set = new ExerciseSet(SetType.REGULAR, weight, sets, reps, 0, false);
+        exerciseSets.add(set);
+
+        return new AdditionalExercise(
+                name,
+                exerciseSets,
+                mainExerciseName,
+                percentage,
+                mainExerciseWeight,
+                exerciseId,
+                false);
+    }
+
     /**
      * Get the current one rm for a given exercise.
      */
     public double getOneRmForExercise(String name) {
-        double weight = 100;
+        StatsCache.ExerciseStats stats = getStats().get(name);
+        return stats != null ? stats.oneRm : 100;
+    }
+
+    /**
+     * Get the current one rm for a given exercise, using already loaded values if available.
+     */
+    private double getOneRmForExercise(String name, Map<String, Double> oneRms) {
+        Double oneRm = oneRms.get(name);
+        return oneRm != null ? oneRm : getOneRmForExercise(name);
+    }
+
+    /**
+     * Get the highest estimated 1rm for a given exercise, -1 if there is none.
+     */
+    public int getHighestEstimated1RM(String name) {
+        synchronized (sRecords) {
+            loadRecordsIfNeeded();
+            PersonalRecord record = sRecords.get(name);
+            return record == null ? -1 : record.estOneRm;
+        }
+    }
+
+    /**
+     * Load the personal records into memory unless already done. Must hold the sRecords lock.
+     */
+    private void loadRecordsIfNeeded() {
+        if (sRecordsLoaded) {
+            return;
+        }
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_STATS, new String[]{KEY_1RM},
-                    KEY_NAME + "=?", new String[]{name}, null, null, null);
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_RECORDS,
+                    new String[]{KEY_WORKOUT_EXERCISE, KEY_WORKOUT_EST_ONE_RM, KEY_WORKOUT_ID},
+                    null, null, null, null, null);
             if (cursor != null && cursor.moveToFirst()) {
-                weight = cursor.getDouble(cursor.getColumnIndex(KEY_1RM));
+                do {
+                    sRecords.put(cursor.getString(0),
+                            new PersonalRecord(cursor.getInt(1), cursor.getInt(2)));
+                } while (cursor.moveToNext());
             }
-            return weight;
+            sRecordsLoaded = true;
         } finally {
             if (cursor != null) {
                 cursor.close();
@@ -552,39 +1163,80 @@ public class SqlHandler {
     }
 
     /**
-     * Get the highest estimated 1rm for a given exercise
+     * Update the personal record of an exercise after a workout has been stored.
      */
-    public int getHighestEstimated1RM(String name) {
-        // TODO this is pretty inefficient, maybe add some caching?
-        String[] cols = new String[]{
-                KEY_WORKOUT_LAST_SET,
-                KEY_WORKOUT_REPS,
-                KEY_WORKOUT_EST_ONE_RM};
+    private void updateRecord(String name, int workoutId, int estOneRm) {
+        synchronized (sRecords) {
+            loadRecordsIfNeeded();
+            PersonalRecord record = sRecords.get(name);
+            if (estOneRm > 0 && (record == null || estOneRm > record.estOneRm)) {
+                storeRecord(name, new PersonalRecord(estOneRm, workoutId));
+            } else if (record != null
+                    && record.workoutId == workoutId
+                    && estOneRm < record.estOneRm) {
+                recalculateRecord(name);
+            }
+        }
+    }
+
+    /**
+     * Update the personal record of an exercise after a workout has been deleted.
+     */
+    private void removeRecord(String name, int workoutId) {
+        synchronized (sRecords) {
+            loadRecordsIfNeeded();
+            PersonalRecord record = sRecords.get(name);
+            if (record != null && record.workoutId == workoutId) {
+                recalculateRecord(name);
+            }
+        }
+    }
+
+    /**
+     * Find the best workout of an exercise and store it as the personal record. Must hold the
+     * sRecords lock.
+     */
+    private void recalculateRecord(String name) {
+        String[] cols = new String[]{KEY_WORKOUT_EST_ONE_RM, KEY_WORKOUT_ID};
         String selection = KEY_WORKOUT_EXERCISE + "=?" + " AND " + KEY_WORKOUT_EST_ONE_RM + ">0";
         String[] selectionArguments = new String[]{name};
         String orderBy = KEY_WORKOUT_EST_ONE_RM + " DESC";
         String limit = "1";
-        int estOneRm = -1;
 
         Cursor cursor = null;
         try {
-            WendlerizedLog.v("Trying to get highest 1RM for exercise " + name);
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT, cols, selection,
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_WORKOUT, cols, selection,
                     selectionArguments, null /** Group by **/, null /** Having **/, orderBy, limit);
             if (cursor != null && cursor.moveToFirst()) {
-                estOneRm = cursor.getInt(cursor.getColumnIndex(KEY_WORKOUT_EST_ONE_RM));
-                WendlerizedLog.v("Found highest 1RM for exercise " + name + ": " + estOneRm);
+                PersonalRecord record = new PersonalRecord(cursor.getInt(0), cursor.getInt(1));
+                WendlerizedLog.v("Found highest 1RM for exercise " + name + ": "
+                        + record.estOneRm);
+                storeRecord(name, record);
             } else {
                 WendlerizedLog.v("Could not find highest 1RM for exercise " + name + "!");
+                getDatabase().delete(DATABASE_TABLE_WENDLER_RECORDS, KEY_WORKOUT_EXERCISE + "=?",
+                        new String[]{name});
+                sRecords.remove(name);
             }
-        } catch (Exception e) {
-            WendlerizedLog.v("Error while trying to find highest 1RM for exercise " + name + "!");
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
         }
-        return estOneRm;
+    }
+
+    /**
+     * Write a personal record to the database and the in-memory mirror. Must hold the sRecords
+     * lock.
+     */
+    private void storeRecord(String name, PersonalRecord record) {
+        ContentValues cv = new ContentValues();
+        cv.put(KEY_WORKOUT_EXERCISE, name);
+        cv.put(KEY_WORKOUT_EST_ONE_RM, record.estOneRm);
+        cv.put(KEY_WORKOUT_ID, record.workoutId);
+        getDatabase().insertWithOnConflict(
+                DATABASE_TABLE_WENDLER_RECORDS, null, cv, SQLiteDatabase.CONFLICT_REPLACE);
+        sRecords.put(name, record);
     }
 
     /**
@@ -595,7 +1247,7 @@ public class SqlHandler {
         ArrayList<String> names = new ArrayList<>();
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_EXTRA_LIST, column, null, null,
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_EXTRA_LIST, column, null, null,
                     null, null, null);
             if (cursor != null && cursor.moveToFirst()) {
                 do {
@@ -617,7 +1269,7 @@ public class SqlHandler {
         int nextWorkoutId = 1;
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT, new String[]{KEY_ROW_ID},
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_WORKOUT, new String[]{KEY_ROW_ID},
                     null, null, null, null, KEY_ROW_ID + " ASC");
             if (cursor != null && cursor.moveToLast()) {
                 nextWorkoutId = cursor.getInt(cursor.getColumnIndex(KEY_ROW_ID));
@@ -634,9 +1286,10 @@ public class SqlHandler {
 
 
     /**
-     * Store the main exercise and return if it was successful.
+     * Store the main exercise and return if it was successful. Part of the transaction of
+     * {@link #storeWorkout(Workout, boolean, boolean, boolean)}.
      */
-    public boolean storeMainExercise(Workout workout, boolean complete) {
+    private boolean storeMainExercise(Workout workout, boolean complete) {
         ContentValues cv = new ContentValues();
 
         double oneRm = workout.getMainExercise().getWeight();
@@ -655,9 +1308,7 @@ public class SqlHandler {
         cv.put(KEY_WORKOUT_NOTES, workout.getNotes());
         cv.put(KEY_WORKOUT_WON, workout.isWon() ? 1 : 0);
         cv.put(KEY_INSERT_TIME, workout.getInsertTime());
-        cv.put(KEY_WORKOUT_YEAR, workout.getWorkoutTime().year);
-        cv.put(KEY_WORKOUT_MONTH, workout.getWorkoutTime().month);
-        cv.put(KEY_WORKOUT_DAY, workout.getWorkoutTime().monthDay);
+        cv.put(KEY_WORKOUT_DATE, workout.getWorkoutDate());
 
         cv.put(KEY_TRAINING_PERCENTAGE, workout.getMainExercise().getWorkoutPercentage());
 
@@ -668,12 +1319,18 @@ public class SqlHandler {
         } else {
             cv.put(KEY_WORKOUT_COMPLETED, 1);
         }
+        boolean stored;
         if (isWorkoutNew(workout.getWorkoutId())) {
-            return mDatabase.insert(DATABASE_TABLE_WENDLER_WORKOUT, null, cv) != -1;
+            stored = getDatabase().insert(DATABASE_TABLE_WENDLER_WORKOUT, null, cv) != -1;
+        } else {
+            WendlerizedLog.d("Update! " + workout.getMainExercise().getLastSetProgress());
+            stored = getDatabase().update(DATABASE_TABLE_WENDLER_WORKOUT, cv, KEY_WORKOUT_ID + "=?",
+                    new String[]{String.valueOf(workout.getWorkoutId())}) != -1;
         }
-        WendlerizedLog.d("Update! " + workout.getMainExercise().getLastSetProgress());
-        return mDatabase.update(DATABASE_TABLE_WENDLER_WORKOUT, cv, KEY_WORKOUT_ID + "=?",
-                new String[]{String.valueOf(workout.getWorkoutId())}) != -1;
+        if (stored) {
+            updateRecord(workout.getName(), workout.getWorkoutId(), estOneRm);
+        }
+        return stored;
     }
 
     /**
@@ -682,7 +1339,7 @@ public class SqlHandler {
     private boolean isWorkoutNew(int workoutId) {
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT, null,
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_WORKOUT, null,
                     KEY_WORKOUT_ID + "=?", new String[]{String.valueOf(workoutId)},
                     null, null, null);
             return cursor != null && cursor.getCount() != 1;
@@ -698,32 +1355,68 @@ public class SqlHandler {
      */
     public boolean storeAdditionalExercise(
             int workoutId, ArrayList<AdditionalExercise> exercises, boolean isStarted) {
-        mDatabase.delete(
-                DATABASE_TABLE_WENDLER_EXTRA, KEY_WORKOUT_ID + "=?",
-                new String[]{String.valueOf(workoutId)});
-
-        for (AdditionalExercise exercise : exercises) {
-            ContentValues cv = new ContentValues();
-            cv.put(KEY_WORKOUT_ID, workoutId);
-            cv.put(KEY_EXERCISE_NAME, exercise.getName());
-            cv.put(KEY_NUMBER_OF_SETS_TO_BE_DONE, exercise.getExerciseSet(0).getSetGoal());
-            cv.put(KEY_NUMBER_OF_REPS_TO_BE_DONE, exercise.getExerciseSet(0).getRepGoal());
-            cv.put(KEY_EXTRA_REPS_OR_SETS_COMPLETED, exercise.getExerciseSet(0).getProgress());
-            cv.put(KEY_EXTRA_WEIGHT, exercise.getExerciseSet(0).getWeight());
-            cv.put(KEY_EXTRA_MAIN_EXERCISE_NAME, exercise.getMainExerciseName());
-            cv.put(KEY_EXTRA_PERCENTAGE_OF_MAIN_EXERCISE, exercise.getMainExercisePercentage());
-            cv.put(KEY_EXTRA_EXERCISE_ID, exercise.getExerciseId());
-            cv.put(KEY_MAIN_EXERCISE_WEIGHT, exercise.getMainExerciseWeight());
-            cv.put(KEY_IS_STARTED, isStarted ? 1 : 0);
-            mDatabase.insert(DATABASE_TABLE_WENDLER_EXTRA, null, cv);
-        }
-
-        if (exercises.isEmpty()) {
-            mDatabase.delete(DATABASE_TABLE_WENDLER_EXTRA, KEY_WORKOUT_ID + "=?",
+        getDatabase().beginTransaction();
+        SQLiteStatement statement = null;
+        try {
+            getDatabase().delete(
+                    DATABASE_TABLE_WENDLER_EXTRA, KEY_WORKOUT_ID + "=?",
                     new String[]{String.valueOf(workoutId)});
+
+            if (!exercises.isEmpty()) {
+                statement = getDatabase().compileStatement(String.format(Locale.ROOT,
+                        "INSERT INTO %s (%s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s)"
+                                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                        DATABASE_TABLE_WENDLER_EXTRA,
+                        KEY_WORKOUT_ID,
+                        KEY_EXERCISE_NAME,
+                        KEY_NUMBER_OF_SETS_TO_BE_DONE,
+                        KEY_NUMBER_OF_REPS_TO_BE_DONE,
+                        KEY_EXTRA_REPS_OR_SETS_COMPLETED,
+                        KEY_EXTRA_WEIGHT,
+                        KEY_EXTRA_MAIN_EXERCISE_NAME,
+                        KEY_EXTRA_PERCENTAGE_OF_MAIN_EXERCISE,
+                        KEY_EXTRA_EXERCISE_ID,
+                        KEY_MAIN_EXERCISE_WEIGHT,
+                        KEY_IS_STARTED));
+            }
+
+            for (AdditionalExercise exercise : exercises) {
+                ExerciseSet set = exercise.getExerciseSet(0);
+                statement.clearBindings();
+                statement.bindLong(1, workoutId);
+                bindString(statement, 2, exercise.getName());
+                statement.bindLong(3, set.getSetGoal());
+                statement.bindLong(4, set.getRepGoal());
+                statement.bindLong(5, set.getProgress());
+                statement.bindDouble(6, set.getWeight());
+                bindString(statement, 7, exercise.getMainExerciseName());
+                statement.bindLong(8, exercise.getMainExercisePercentage());
+                statement.bindLong(9, exercise.getExerciseId());
+                statement.bindDouble(10, exercise.getMainExerciseWeight());
+                statement.bindLong(11, isStarted ? 1 : 0);
+                if (statement.executeInsert() == -1) {
+                    return false;
+                }
+            }
+            getDatabase().setTransactionSuccessful();
+            return true;
+        } finally {
+            if (statement != null) {
+                statement.close();
+            }
+            getDatabase().endTransaction();
         }
+    }
 
-        return true;
+    /**
+     * Bind a string which may be null to a statement.
+     */
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
     }
 
     /**
@@ -744,43 +1437,32 @@ public class SqlHandler {
      * Return the increment for an exercise.
      */
     public double getIncrement(String exercise) {
-        Cursor cursor = null;
-        try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_STATS, new String[]{KEY_INCREMENT},
-                    KEY_NAME + "=?", new String[]{exercise}, null, null, null);
+        StatsCache.ExerciseStats stats = getStats().get(exercise);
+        return stats != null ? stats.increment : parseIncrement(null);
+    }
 
-            if (cursor != null && cursor.moveToFirst()) {
-                String increment = cursor.getString(cursor.getColumnIndex(KEY_INCREMENT));
-                if (increment == null) {
-                    return 2.5;
-                }
-                return Double.parseDouble(increment);
-            }
+    /**
+     * Parse a stored increment, falling back to the default increment.
+     */
+    private static double parseIncrement(String increment) {
+        if (increment == null) {
             return 2.5;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
         }
+        return Double.parseDouble(increment);
     }
 
     /**
-     * Return the selection for the navigation.
+     * Return the selection for the navigation, the week of the exercise which is furthest behind.
      */
     public int getSelectionForNavigation() {
-        Cursor cursor = null;
-        try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_STATS, null,
-                    null, null, null, null, KEY_CYCLE + " ASC, " + KEY_WEEK + " ASC");
-            if (cursor != null && cursor.moveToFirst()) {
-                return Integer.parseInt(cursor.getString(cursor.getColumnIndex(KEY_WEEK))) - 1;
-            }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
+        StatsCache.ExerciseStats first = null;
+        for (StatsCache.ExerciseStats stats : getStats().values()) {
+            if (first == null || stats.cycle < first.cycle
+                    || (stats.cycle == first.cycle && stats.week < first.week)) {
+                first = stats;
             }
         }
-        return 0;
+        return first != null ? first.week - 1 : 0;
     }
 
     /**
@@ -804,13 +1486,14 @@ public class SqlHandler {
         cv.put(KEY_MAIN_EXERCISE_WEIGHT, exercise.getMainExerciseWeight());
 
         if (isNew) {
-            mDatabase.insert(DATABASE_TABLE_WENDLER_EXTRA_LIST, null, cv);
+            getDatabase().insert(DATABASE_TABLE_WENDLER_EXTRA_LIST, null, cv);
         } else {
-            mDatabase.update(DATABASE_TABLE_WENDLER_EXTRA_LIST, cv,
+            getDatabase().update(DATABASE_TABLE_WENDLER_EXTRA_LIST, cv,
                     KEY_EXTRA_EXERCISE_ID + "=? " + "AND " + KEY_WORKOUT_EXERCISE + "=?",
                     new String[]{String.valueOf(exercise.getExerciseId()), workoutExercise}
             );
         }
+        WorkoutStore.getInstance().evictAll();
     }
 
     /**
@@ -819,7 +1502,7 @@ public class SqlHandler {
     public boolean extraExerciseIsNew(String workoutName, int exerciseId) {
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_EXTRA_LIST, null,
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_EXTRA_LIST, null,
                     KEY_WORKOUT_EXERCISE + "=? AND " + KEY_EXTRA_EXERCISE_ID + "=?",
                     new String[]{workoutName, String.valueOf(exerciseId)}, null, null, null);
             return cursor != null && cursor.getCount() == 0;
@@ -834,10 +1517,11 @@ public class SqlHandler {
      * Delete an additional exercise for a given workout.
      */
     public void deleteAdditionalExercise(String workoutName, AdditionalExercise exercise) {
-        mDatabase.delete(DATABASE_TABLE_WENDLER_EXTRA_LIST, KEY_WORKOUT_EXERCISE + "=? AND " +
+        getDatabase().delete(DATABASE_TABLE_WENDLER_EXTRA_LIST, KEY_WORKOUT_EXERCISE + "=? AND " +
                         KEY_EXTRA_EXERCISE_ID + "=?",
                 new String[]{workoutName, String.valueOf(exercise.getExerciseId())}
         );
+        WorkoutStore.getInstance().evictAll();
     }
 
     /**
@@ -848,23 +1532,121 @@ public class SqlHandler {
         for (int i = 0; i < exercises.size(); i++) {
             ContentValues values = new ContentValues();
             values.put(KEY_EXTRA_ORDER_IN_LIST, i);
-            mDatabase.update(DATABASE_TABLE_WENDLER_EXTRA_LIST, values,
+            getDatabase().update(DATABASE_TABLE_WENDLER_EXTRA_LIST, values,
                     KEY_EXTRA_EXERCISE_ID + "=? AND " + KEY_WORKOUT_EXERCISE + "=?",
                     new String[]{String.valueOf(exercises.get(i).getExerciseId()), workoutName});
         }
+        WorkoutStore.getInstance().evictAll();
+    }
+
+    /**
+     * Return the summaries of the latest old workouts.
+     */
+    public ArrayList<WorkoutSummary> getOldWorkoutSummaries(int limit) {
+        return getOldWorkoutSummaries(
+                SQL_OLD_WORKOUT_SUMMARIES, new String[]{String.valueOf(limit)});
+    }
+
+    /**
+     * Return the summaries of the old workouts following a given one in the history, used to
+     * load the next page without reading the previous pages again.
+     */
+    public ArrayList<WorkoutSummary> getOldWorkoutSummariesAfter(WorkoutSummary summary,
+                                                                 int limit) {
+        // The bound on the insert time alone lets the index skip the pages already loaded
+        String insertTime = String.valueOf(summary.getInsertTime());
+        return getOldWorkoutSummaries(SQL_OLD_WORKOUT_SUMMARIES_AFTER,
+                new String[]{insertTime, insertTime, String.valueOf(summary.getWorkoutId()),
+                        String.valueOf(limit)});
+    }
+
+    /**
+     * Return the summary of a single old workout, or null if there is no completed workout with
+     * the given id.
+     */
+    public WorkoutSummary getOldWorkoutSummary(int workoutId) {
+        ArrayList<WorkoutSummary> summaries = getOldWorkoutSummaries(
+                SQL_OLD_WORKOUT_SUMMARY, new String[]{String.valueOf(workoutId), "1"});
+        return summaries.isEmpty() ? null : summaries.get(0);
+    }
+
+    /**
+     * Return the query for the workouts matching a given selection, latest first. A summary
+     * only reads the columns shown in a list row. The selection arguments are followed by the
+     * limit.
+     */
+    private static String oldWorkoutsQuery(boolean summary, String selection) {
+        String columns = !summary ? "*" : TextUtils.join(", ", new String[]{
+                KEY_WORKOUT_EXERCISE, KEY_WORKOUT_ID, KEY_WORKOUT_WEEK, KEY_WORKOUT_CYCLE,
+                KEY_CYCLE_NAME, KEY_WORKOUT_WON, KEY_WORKOUT_REPS, KEY_WORKOUT_LAST_SET,
+                KEY_INSERT_TIME, KEY_WORKOUT_DATE});
+        return String.format(Locale.ROOT,
+                "SELECT %1$s FROM %2$s WHERE %3$s ORDER BY %4$s DESC, %5$s DESC LIMIT ?",
+                columns, DATABASE_TABLE_WENDLER_WORKOUT, selection, KEY_INSERT_TIME,
+                KEY_WORKOUT_ID);
+    }
+
+    /**
+     * Return the summaries of the old workouts of a summary query, latest first. Only the
+     * columns shown in a list row are read, the sets are not built.
+     */
+    private ArrayList<WorkoutSummary> getOldWorkoutSummaries(String sql, String[] args) {
+        ArrayList<WorkoutSummary> summaries = new ArrayList<>();
+
+        Cursor cursor = null;
+        try {
+            cursor = getDatabase().rawQuery(sql, args);
+            if (cursor.moveToFirst()) {
+                do {
+                    String name = cursor.getString(0);
+                    summaries.add(new WorkoutSummary(
+                            name,
+                            StringHelper.getTranslatableName(mContext, name),
+                            cursor.getInt(1),
+                            cursor.getInt(2),
+                            cursor.getInt(3),
+                            cursor.getInt(4),
+                            true,
+                            cursor.getInt(5) == 1,
+                            0,
+                            cursor.getInt(6),
+                            cursor.getDouble(7),
+                            cursor.getLong(8),
+                            cursor.getInt(9)));
+                } while (cursor.moveToNext());
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return summaries;
     }
 
     /**
-     * Return a list of old workouts.
+     * Return a single old workout, or null if there is no completed workout with the given id.
      */
-    public ArrayList<Workout> getOldWorkouts(int limit) {
+    public Workout getOldWorkout(int workoutId) {
+        ArrayList<Workout> workouts = getOldWorkouts(
+                SQL_OLD_WORKOUT, new String[]{String.valueOf(workoutId), "1"});
+        return workouts.isEmpty() ? null : workouts.get(0);
+    }
+
+    /**
+     * Return the old workouts of a workout query, latest first.
+     */
+    private ArrayList<Workout> getOldWorkouts(String sql, String[] args) {
         ArrayList<Workout> workouts = new ArrayList<>();
+        ArrayList<Integer> workoutIds = new ArrayList<>();
+
+        Map<String, Double> oneRms = new HashMap<>();
+        Map<String, Double> increments = new HashMap<>();
+        getStatsForExercises(oneRms, increments);
+        SparseArray<int[]> setPercentages = new SparseArray<>();
 
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT, null,
-                    KEY_WORKOUT_COMPLETED + "=?", new String[]{"1"}, null, null,
-                    KEY_INSERT_TIME + " DESC", String.valueOf(limit));
+            cursor = getDatabase().rawQuery(sql, args);
             if (cursor.moveToFirst()) {
                 do {
                     String name = cursor.getString(cursor.getColumnIndex(KEY_WORKOUT_EXERCISE));
@@ -874,44 +1656,131 @@ public class SqlHandler {
                     int cycle = cursor.getInt(cursor.getColumnIndex(KEY_WORKOUT_CYCLE));
                     int cycleName = cursor.getInt(cursor.getColumnIndex(KEY_CYCLE_NAME));
                     int id = cursor.getInt(cursor.getColumnIndex(KEY_WORKOUT_ID));
-                    MainExercise mainExercise = getMainExerciseForWorkout(true, id);
 
-                    ArrayList<AdditionalExercise> additionalExercises =
-                            getExtraExerciseForWorkout(name, id, true);
+                    int[] percentages = setPercentages.get(week);
+                    if (percentages == null) {
+                        percentages = getSetPercentages(week);
+                        setPercentages.put(week, percentages);
+                    }
+                    Double increment = increments.get(name);
 
-                    long insertTime = Long.parseLong(
-                            cursor.getString(cursor.getColumnIndex(KEY_INSERT_TIME)));
+                    MainExercise mainExercise = buildStoredMainExercise(
+                            name,
+                            week,
+                            cursor.getInt(cursor.getColumnIndex(KEY_WORKOUT_REPS)),
+                            increment == null ? parseIncrement(null) : increment,
+                            cursor.getInt(cursor.getColumnIndex(KEY_TRAINING_PERCENTAGE)),
+                            cursor.getFloat(cursor.getColumnIndex(KEY_1RM)),
+                            cursor.getInt(cursor.getColumnIndex(KEY_WORKOUT_EST_ONE_RM)),
+                            percentages);
 
-                    Time time = new Time();
-                    time.year = Integer.parseInt(
-                            cursor.getString(cursor.getColumnIndex(KEY_WORKOUT_YEAR)));
-                    time.month = Integer.parseInt(
-                            cursor.getString(cursor.getColumnIndex(KEY_WORKOUT_MONTH)));
-                    time.monthDay = Integer.parseInt(
-                            cursor.getString(cursor.getColumnIndex(KEY_WORKOUT_DAY)));
+                    long insertTime = cursor.getLong(cursor.getColumnIndex(KEY_INSERT_TIME));
+                    int workoutDate = cursor.getInt(cursor.getColumnIndex(KEY_WORKOUT_DATE));
 
                     String notes = cursor.getString(cursor.getColumnIndex(KEY_WORKOUT_NOTES));
 
                     Workout workout = new Workout(name, StringHelper.getTranslatableName(mContext,
                             name), true, isWon, week, cycle, cycleName, id,
-                            mainExercise, additionalExercises, insertTime, time, notes
+                            mainExercise, null, insertTime, workoutDate, notes
                     );
 
+                    workoutIds.add(id);
                     workouts.add(workout);
                 } while (cursor.moveToNext());
             }
-            return workouts;
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
         }
+
+        if (!workoutIds.isEmpty()) {
+            Map<Integer, ArrayList<AdditionalExercise>> extras = new HashMap<>();
+            getExtraExercisesForWorkouts(
+                    workoutIds, oneRms, extras, new HashMap<Integer, Boolean>());
+            for (Workout workout : workouts) {
+                workout.setAdditionalExercises(extras.get(workout.getWorkoutId()));
+            }
+        }
+        return workouts;
+    }
+
+    /**
+     * Fill in the one rm and increment of every exercise.
+     */
+    private void getStatsForExercises(Map<String, Double> oneRms, Map<String, Double> increments) {
+        for (StatsCache.ExerciseStats stats : getStats().values()) {
+            oneRms.put(stats.name, stats.oneRm);
+            increments.put(stats.name, stats.increment);
+        }
     }
 
     /**
-     * Delete an old workout.
+     * Mark an old workout as deleted, or bring it back. A deleted workout is hidden from the
+     * history but keeps its rows and its part of the stats until it is purged, so undoing a
+     * delete only flips the flag back.
      */
-    public void deleteWorkout(Workout workout) {
+    public void setWorkoutDeleted(int workoutId, boolean deleted) {
+        ContentValues cv = new ContentValues();
+        cv.put(KEY_WORKOUT_DELETED, deleted ? 1 : 0);
+        getDatabase().update(DATABASE_TABLE_WENDLER_WORKOUT, cv, KEY_WORKOUT_ID + "=?",
+                new String[]{String.valueOf(workoutId)});
+        invalidateOldWorkoutsCount();
+        WorkoutStore.getInstance().evictAll();
+    }
+
+    /**
+     * Delete a workout marked as deleted for good and reconcile the stats, does nothing if the
+     * delete has been undone.
+     */
+    public void purgeDeletedWorkout(int workoutId) {
+        getDatabase().beginTransaction();
+        boolean successful = false;
+        try {
+            ArrayList<Workout> workouts = getOldWorkouts(
+                    SQL_DELETED_WORKOUT, new String[]{String.valueOf(workoutId), "1"});
+            if (!workouts.isEmpty()) {
+                deleteWorkout(workouts.get(0));
+            }
+            getDatabase().setTransactionSuccessful();
+            successful = true;
+        } finally {
+            endWorkoutTransaction(successful);
+        }
+    }
+
+    /**
+     * Purge every workout still marked as deleted, left behind when the undo was never
+     * dismissed. Returns the number of purged workouts.
+     */
+    public int purgeDeletedWorkouts() {
+        ArrayList<Integer> workoutIds = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_WORKOUT,
+                    new String[]{KEY_WORKOUT_ID},
+                    KEY_WORKOUT_DELETED + "=1", null, null, null, KEY_WORKOUT_ID + " ASC");
+            if (cursor.moveToFirst()) {
+                do {
+                    workoutIds.add(cursor.getInt(0));
+                } while (cursor.moveToNext());
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        for (int workoutId : workoutIds) {
+            purgeDeletedWorkout(workoutId);
+        }
+        return workoutIds.size();
+    }
+
+    /**
+     * Delete an old workout, moving the stats back if it was the latest.
+     */
+    private void deleteWorkout(Workout workout) {
         if (isWorkoutLatest(workout)) {
 
             int week = workout.getWeek();
@@ -927,39 +1796,79 @@ public class SqlHandler {
             setWorkoutShouldDeload(workout.getName(), getWorkoutShouldDeload(workout));
         }
 
-        mDatabase.delete(DATABASE_TABLE_WENDLER_WORKOUT, KEY_WORKOUT_ID + "=?",
+        getDatabase().delete(DATABASE_TABLE_WENDLER_WORKOUT, KEY_WORKOUT_ID + "=?",
                 new String[]{String.valueOf(workout.getWorkoutId())});
-        mDatabase.delete(DATABASE_TABLE_WENDLER_EXTRA, KEY_WORKOUT_ID + "=?",
+        getDatabase().delete(DATABASE_TABLE_WENDLER_EXTRA, KEY_WORKOUT_ID + "=?",
                 new String[]{String.valueOf(workout.getWorkoutId())});
+        removeRecord(workout.getName(), workout.getWorkoutId());
+        WorkoutStore.getInstance().evictAll();
     }
 
     /**
-     * Return the number of old workouts.
+     * Return the number of old workouts. The count is kept in memory until a workout is stored or
+     * deleted.
      */
     public int getOldWorkoutsCount() {
-        Cursor cursor = null;
-        try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT, null,
-                    KEY_WORKOUT_COMPLETED + "=?", new String[]{"1"}, null,
-                    null, null);
-            return cursor == null ? 0 : cursor.getCount();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
+        long cached = sOldWorkoutsCount.get();
+        // Read before counting, a change committed while counting bumps it past this count
+        int generation = sOldWorkoutsGeneration.get();
+        if ((int) (cached >>> 32) == generation && (int) cached != -1) {
+            return (int) cached;
         }
+        int count = (int) DatabaseUtils.longForQuery(getDatabase(), SQL_COUNT_OLD_WORKOUTS, null);
+        sOldWorkoutsCount.compareAndSet(cached, packCount(count, generation));
+        return count;
+    }
 
+    /**
+     * Pack a number of old workouts with the generation it was counted in.
+     */
+    private static long packCount(int count, int generation) {
+        return ((long) generation << 32) | (count & 0xffffffffL);
     }
 
     /**
-     * Store a workout.
+     * Drop the cached number of old workouts, called once a change to it is committed.
      */
-    public void storeWorkout(Workout workout) {
-        storeMainExercise(workout, workout.isComplete());
-        storeAdditionalExercise(workout.getWorkoutId(), workout.getAdditionalExercises(), true);
+    private static void invalidateOldWorkoutsCount() {
+        sOldWorkoutsGeneration.incrementAndGet();
+    }
 
-        if (isWorkoutLatest(workout)) {
-            updateWorkoutStats(workout, true);
+    /**
+     * Store a workout from the workout screen: the stats, the main exercise and the additional
+     * exercises are written in one transaction, so either all of it is stored or nothing is.
+     */
+    public boolean storeWorkout(
+            Workout workout, boolean complete, boolean isNew, boolean isExtraStarted) {
+        getDatabase().beginTransaction();
+        boolean successful = false;
+        try {
+            updateWorkoutStats(workout, isNew);
+            if (storeMainExercise(workout, complete)
+                    && storeAdditionalExercise(workout.getWorkoutId(),
+                    workout.getAdditionalExercises(), isExtraStarted)) {
+                // A new cycle, one rm or record is planned with the workout
+                replanCycles();
+                getDatabase().setTransactionSuccessful();
+                successful = true;
+            }
+        } finally {
+            endWorkoutTransaction(successful);
+        }
+        return successful;
+    }
+
+    /**
+     * End a workout transaction, dropping the caches it may have touched if it was rolled back
+     * and the count of old workouts once it is committed.
+     */
+    private void endWorkoutTransaction(boolean successful) {
+        endStatsTransaction(successful);
+        if (!successful) {
+            clearCaches();
+        } else {
+            invalidateOldWorkoutsCount();
+            WorkoutStore.getInstance().evictAll();
         }
     }
 
@@ -968,140 +1877,278 @@ public class SqlHandler {
      */
     public void updateOneRm(
             double pressOneRm, double deadliftOneRm, double benchOneRm, double squatOneRm) {
+        getDatabase().beginTransaction();
+        boolean successful = false;
+        try {
+            ContentValues cv = new ContentValues();
+            cv.put(KEY_1RM, pressOneRm);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[0]});
+
+            cv.clear();
+            cv.put(KEY_1RM, deadliftOneRm);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[1]});
+
+            cv.clear();
+            cv.put(KEY_1RM, benchOneRm);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[2]});
+
+            cv.clear();
+            cv.put(KEY_1RM, squatOneRm);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[3]});
+            statsChanged();
+            replanCycles();
+            getDatabase().setTransactionSuccessful();
+            successful = true;
+        } finally {
+            endStatsTransaction(successful);
+        }
+    }
 
-        ContentValues cv = new ContentValues();
-        cv.put(KEY_1RM, pressOneRm);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[0]});
+    /**
+     * Delete all extra exercises.
+     */
+    public void purgeExtraExercises() {
+        getDatabase().delete(DATABASE_TABLE_WENDLER_EXTRA_LIST, null, null);
+        WorkoutStore.getInstance().evictAll();
+    }
 
-        cv.clear();
-        cv.put(KEY_1RM, deadliftOneRm);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[1]});
+    /**
+     * Return if the workout should deload.
+     */
+    public boolean doDeload(Workout workout) {
 
-        cv.clear();
-        cv.put(KEY_1RM, benchOneRm);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[2]});
+        if (workout.getWeek() < 4) {
+            return false;
+        }
+        StatsCache.ExerciseStats stats = getStats().get(workout.getName());
+        boolean bool = stats != null && stats.shouldDeload;
 
-        cv.clear();
-        cv.put(KEY_1RM, squatOneRm);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[3]});
+        if (bool) {
+            setWorkoutShouldDeload(workout.getName(), false);
+        }
+
+        return bool;
     }
 
     /**
-     * Delete all extra exercises.
+     * Update the cycle name for all workouts.
      */
-    public void purgeExtraExercises() {
-        mDatabase.delete(DATABASE_TABLE_WENDLER_EXTRA_LIST, null, null);
+    public void updateCycleName() {
+        getDatabase().beginTransaction();
+        boolean successful = false;
+        try {
+            ContentValues cv = new ContentValues();
+
+            int cycle = getCurrentCycle(Constants.EXERCISES[0]);
+            cv.put(KEY_CYCLE_NAME, cycle);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[0]});
+
+            cv.clear();
+            cycle = getCurrentCycle(Constants.EXERCISES[1]);
+            cv.put(KEY_CYCLE_NAME, cycle);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[1]});
+
+            cv.clear();
+            cycle = getCurrentCycle(Constants.EXERCISES[2]);
+            cv.put(KEY_CYCLE_NAME, cycle);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[2]});
+
+            cv.clear();
+            cycle = getCurrentCycle(Constants.EXERCISES[3]);
+            cv.put(KEY_CYCLE_NAME, cycle);
+            getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+                    new String[]{Constants.EXERCISES[3]});
+            statsChanged();
+            getDatabase().setTransactionSuccessful();
+            successful = true;
+        } finally {
+            endStatsTransaction(successful);
+        }
+    }
+
+    /**
+     * Restore the database from a save file.
+     */
+    public void restoreDbFromFile(File file) {
+        sReplaceLock.writeLock().lock();
+        try {
+            synchronized (sConnectionLock) {
+                sDbHelper.restoreDatabase(file);
+                sDatabase = null;
+                getSharedDatabase(mContext);
+            }
+            clearCaches();
+        } finally {
+            sReplaceLock.writeLock().unlock();
+        }
     }
 
     /**
-     * Return if the workout should deload.
+     * Copy the database to a save file, return true if successful. The write lock is held while
+     * the database and its write-ahead log are copied, so no commit or checkpoint can touch them
+     * mid-copy, and the copied log is then folded into the save file.
      */
-    public boolean doDeload(Workout workout) {
+    public boolean backupDbToFile(File file) {
+        File database = mContext.getDatabasePath(DATABASE_NAME);
+        File log = new File(database.getPath() + "-wal");
+        File copiedLog = new File(file.getPath() + "-wal");
+        new File(file.getPath() + "-shm").delete();
 
-        if (workout.getWeek() < 4) {
+        // SQLite refuses to checkpoint inside a transaction, so the log is copied along instead
+        getDatabase().beginTransactionNonExclusive();
+        try {
+            DbHelper.copyFile(new FileInputStream(database), new FileOutputStream(file));
+            if (log.exists()) {
+                DbHelper.copyFile(new FileInputStream(log), new FileOutputStream(copiedLog));
+            } else {
+                copiedLog.delete();
+            }
+        } catch (IOException e) {
+            WendlerizedLog.e("Error backing up workouts", e);
             return false;
+        } finally {
+            getDatabase().endTransaction();
         }
-        Cursor cursor = null;
-        try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_STATS, null,
-                    KEY_NAME + "=? AND " + KEY_SHOULD_DELOAD + "=?",
-                    new String[]{workout.getName(), "1"}, null, null, null);
-            boolean bool = cursor != null && cursor.getCount() == 1;
 
-            if (bool) {
-                setWorkoutShouldDeload(workout.getName(), false);
-            }
+        if (!foldLog(file)) {
+            WendlerizedLog.e("Could not checkpoint the backup of the workouts", null);
+            return false;
+        }
+        return true;
+    }
 
-            return bool;
+    /**
+     * Move every frame of the write-ahead log copied next to a save file into it and leave
+     * the rollback journal on, return true if the save file now holds every commit.
+     */
+    private static boolean foldLog(File file) {
+        SQLiteDatabase copy = null;
+        Cursor cursor = null;
+        try {
+            copy = SQLiteDatabase.openDatabase(file.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+            // Leaving write-ahead logging checkpoints the whole log, or fails if it is busy
+            cursor = copy.rawQuery("PRAGMA journal_mode=DELETE", null);
+            return cursor.moveToFirst() && "delete".equalsIgnoreCase(cursor.getString(0));
+        } catch (android.database.SQLException e) {
+            WendlerizedLog.e("Error opening the backup of the workouts", e);
+            return false;
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
+            if (copy != null) {
+                copy.close();
+            }
         }
-
     }
 
     /**
-     * Update the cycle name for all workouts.
+     * Return the workout percentage for a given exercise.
      */
-    public void updateCycleName() {
-        ContentValues cv = new ContentValues();
-
-        int cycle = getCurrentCycle(Constants.EXERCISES[0]);
-        cv.put(KEY_CYCLE_NAME, cycle);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[0]});
-
-        cv.clear();
-        cycle = getCurrentCycle(Constants.EXERCISES[1]);
-        cv.put(KEY_CYCLE_NAME, cycle);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[1]});
-
-        cv.clear();
-        cycle = getCurrentCycle(Constants.EXERCISES[2]);
-        cv.put(KEY_CYCLE_NAME, cycle);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[2]});
-
-        cv.clear();
-        cycle = getCurrentCycle(Constants.EXERCISES[3]);
-        cv.put(KEY_CYCLE_NAME, cycle);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
-                new String[]{Constants.EXERCISES[3]});
-
+    public int getWorkoutPercentage(String workoutName) {
+        StatsCache.ExerciseStats stats = getStats().get(workoutName);
+        return stats != null
+                ? stats.workoutPercentage : WendlerConstants.DEFAULT_WORKOUT_PERCENTAGE;
     }
 
     /**
-     * Restore the database from a save file.
+     * Return the number of completed workouts left to convert to Training Max.
      */
-    public void restoreDbFromFile(File file) {
-        mDbHelper.restoreDatabase(file);
+    public int countOldWorkoutsToUpdate() {
+        long[] state = getMigrationState(MIGRATION_TRAINING_MAX);
+        String sql = String.format(Locale.ROOT,
+                "SELECT COUNT(*) FROM %1$s WHERE %2$s = 1 AND %3$s > ? AND %3$s <= ?",
+                DATABASE_TABLE_WENDLER_WORKOUT, KEY_WORKOUT_COMPLETED, KEY_ROW_ID);
+        return (int) DatabaseUtils.longForQuery(getDatabase(), sql, new String[]{
+                String.valueOf(state == null ? 0 : state[0]),
+                String.valueOf(state == null ? Long.MAX_VALUE : state[1])});
     }
 
     /**
-     * Return the workout percentage for a given exercise.
+     * Update the old workouts to reflect using Training Max, a batch of completed workouts at a
+     * time in row order, and return how many are left. The first batch also converts the stats
+     * and records the last workout row, anything stored after it already uses Training Max.
+     * Every batch records its progress in the same transaction, so an interrupted update
+     * continues where it stopped instead of converting a workout twice.
      */
-    public int getWorkoutPercentage(String workoutName) {
-        Cursor c = null;
+    public int updateOldWorkouts(int batchSize) {
+        double roundTo = WendlerSettings.get(mContext).getRoundTo();
+        String[] round = new String[]{String.valueOf(roundTo), String.valueOf(roundTo)};
+        int left;
+
+        getDatabase().beginTransaction();
+        boolean successful = false;
         try {
-            c = mDatabase.query(DATABASE_TABLE_WENDLER_STATS, new String[]{KEY_TRAINING_PERCENTAGE},
-                    KEY_NAME + "=?", new String[]{workoutName}, null, null, null);
-            if (c != null && c.moveToFirst()) {
-                return c.getInt(c.getColumnIndex(KEY_TRAINING_PERCENTAGE));
-            }
+            long[] state = getMigrationState(MIGRATION_TRAINING_MAX);
+            if (state == null) {
+                getDatabase().execSQL(String.format(Locale.ROOT,
+                        "UPDATE %1$s SET %2$s = ROUND(%2$s * (%3$s / 100.0) / ?) * ?",
+                        DATABASE_TABLE_WENDLER_STATS, KEY_1RM, KEY_TRAINING_PERCENTAGE), round);
+                long target = DatabaseUtils.longForQuery(getDatabase(), String.format(Locale.ROOT,
+                        "SELECT IFNULL(MAX(%1$s), 0) FROM %2$s",
+                        KEY_ROW_ID, DATABASE_TABLE_WENDLER_WORKOUT), null);
+                state = new long[]{0, target};
+                statsChanged();
+
+                ContentValues cv = new ContentValues();
+                cv.put(KEY_MIGRATION_NAME, MIGRATION_TRAINING_MAX);
+                cv.put(KEY_MIGRATION_PROGRESS, state[0]);
+                cv.put(KEY_MIGRATION_TARGET, state[1]);
+                getDatabase().insert(DATABASE_TABLE_MIGRATIONS, null, cv);
+            }
+
+            long upper = DatabaseUtils.longForQuery(getDatabase(), String.format(Locale.ROOT,
+                    "SELECT IFNULL(MAX(%1$s), ?) FROM (SELECT %1$s FROM %2$s" +
+                            " WHERE %3$s = 1 AND %1$s > ? AND %1$s <= ? ORDER BY %1$s LIMIT ?)",
+                    KEY_ROW_ID, DATABASE_TABLE_WENDLER_WORKOUT, KEY_WORKOUT_COMPLETED),
+                    new String[]{String.valueOf(state[1]), String.valueOf(state[0]),
+                            String.valueOf(state[1]), String.valueOf(batchSize)});
+
+            // The percentage of the exercise is joined in, the same for every workout of it
+            getDatabase().execSQL(String.format(Locale.ROOT,
+                    "UPDATE %1$s SET %2$s = ROUND(%2$s * (IFNULL((SELECT s.%3$s FROM %4$s s" +
+                            " WHERE s.%5$s = %1$s.%6$s), %7$d) / 100.0) / ?) * ?" +
+                            " WHERE %8$s = 1 AND %9$s > ? AND %9$s <= ?",
+                    DATABASE_TABLE_WENDLER_WORKOUT, KEY_WORKOUT_ONE_RM, KEY_TRAINING_PERCENTAGE,
+                    DATABASE_TABLE_WENDLER_STATS, KEY_NAME, KEY_WORKOUT_EXERCISE,
+                    WendlerConstants.DEFAULT_WORKOUT_PERCENTAGE, KEY_WORKOUT_COMPLETED,
+                    KEY_ROW_ID),
+                    new Object[]{roundTo, roundTo, state[0], upper});
+
+            ContentValues cv = new ContentValues();
+            cv.put(KEY_MIGRATION_PROGRESS, upper);
+            getDatabase().update(DATABASE_TABLE_MIGRATIONS, cv, KEY_MIGRATION_NAME + "=?",
+                    new String[]{MIGRATION_TRAINING_MAX});
+
+            left = countOldWorkoutsToUpdate();
+            getDatabase().setTransactionSuccessful();
+            successful = true;
         } finally {
-            if (c != null) {
-                c.close();
-            }
+            endStatsTransaction(successful);
         }
-        return WendlerConstants.DEFAULT_WORKOUT_PERCENTAGE;
+        return left;
     }
 
     /**
-     * Update the old workouts to reflect using Training Max.
+     * Return the progress and target of a migration, null if it has not been started.
      */
-    public void updateOldWorkouts() {
-
+    private long[] getMigrationState(String name) {
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT,
-                    new String[]{KEY_WORKOUT_EXERCISE, KEY_1RM, KEY_WORKOUT_ID},
-                    KEY_WORKOUT_COMPLETED + "=?", new String[]{String.valueOf(1)}, null, null,
-                    null, null);
-            if (cursor.moveToFirst()) {
-                do {
-                    String name = cursor.getString(cursor.getColumnIndex(KEY_WORKOUT_EXERCISE));
-
-                    double oneRm = cursor.getFloat(cursor.getColumnIndex(KEY_1RM));
-                    int workoutId = cursor.getInt(cursor.getColumnIndex(KEY_WORKOUT_ID));
-                    updateOneRm(name, oneRm, workoutId);
-                } while (cursor.moveToNext());
+            cursor = getDatabase().query(DATABASE_TABLE_MIGRATIONS,
+                    new String[]{KEY_MIGRATION_PROGRESS, KEY_MIGRATION_TARGET},
+                    KEY_MIGRATION_NAME + "=?", new String[]{name}, null, null, null);
+            if (cursor != null && cursor.moveToFirst()) {
+                return new long[]{cursor.getLong(0), cursor.getLong(1)};
             }
+            return null;
         } finally {
             if (cursor != null) {
                 cursor.close();
@@ -1109,26 +2156,13 @@ public class SqlHandler {
         }
     }
 
-    /**
-     * Update the old workouts with the new TM
-     */
-    private void updateOneRm(String workoutName, double oneRm, int workoutId) {
-        ContentValues value = new ContentValues();
-        value.put(KEY_1RM, WendlerMath.calculateWeight(
-                mContext,
-                oneRm,
-                getWorkoutPercentage(workoutName)));
-        mDatabase.update(DATABASE_TABLE_WENDLER_WORKOUT, value, KEY_WORKOUT_ID + "=?",
-                new String[]{String.valueOf(workoutId)});
-    }
-
     /**
      * Return if the next workout should deload.
      */
     private boolean getWorkoutShouldDeload(Workout workout) {
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT, null,
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_WORKOUT, null,
                     KEY_WORKOUT_EXERCISE + "=? AND " + KEY_WORKOUT_COMPLETED + "=?",
                     new String[]{workout.getName(), "1"}, null,
                     null, KEY_CYCLE + " DESC, " + KEY_WEEK + " DESC");
@@ -1143,233 +2177,176 @@ public class SqlHandler {
     }
 
     /**
-     * Return if a given workout is complete.
+     * Return the current cycle for a given exercise.
      */
-    private boolean isWorkoutComplete(int id) {
-        Cursor c = null;
-        try {
-            c = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT, null,
-                    KEY_WORKOUT_ID + "=?", new String[]{String.valueOf(id)}, null, null, null);
-            return c != null
-                    && c.moveToFirst()
-                    && c.getInt(c.getColumnIndex(KEY_WORKOUT_COMPLETED)) == 1;
-        } finally {
-            if (c != null) {
-                c.close();
-            }
-        }
-
+    private int getCurrentCycle(String sqlExerciseName) {
+        StatsCache.ExerciseStats stats = getStats().get(sqlExerciseName);
+        return stats != null ? stats.cycle : 1;
     }
 
-
     /**
-     * Return if a given workout was won.
+     * Return the stats of every exercise, loading them into memory if needed.
      */
-    private boolean exerciseWon(int id) {
-        Cursor c = null;
-        try {
-            c = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT, null,
-                    KEY_WORKOUT_ID + "=?", new String[]{String.valueOf(id)}, null, null, null);
-            return c != null
-                    && c.moveToFirst()
-                    && c.getInt(c.getColumnIndex(KEY_WORKOUT_WON)) == 1;
-        } finally {
-            if (c != null) {
-                c.close();
-            }
+    private Map<String, StatsCache.ExerciseStats> getStats() {
+        if (mPendingStats != null) {
+            return mPendingStats;
         }
+        Map<String, StatsCache.ExerciseStats> stats = sStatsCache.getStats();
+        return stats != null ? stats : reloadStats();
     }
 
     /**
-     * Return if a given workout for a specific cycle and week has been done.
+     * Read the stats table into memory. Inside a transaction they are only returned, they may
+     * hold changes which are not committed yet.
      */
-    private int exerciseHasBeenDone(String sqlExerciseName, int week, int cycle) {
-        Cursor c = null;
-        try {
-            c = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT, new String[]{KEY_WORKOUT_ID},
-                    KEY_WORKOUT_EXERCISE + "=? AND " + KEY_CYCLE + "=? AND " + KEY_WEEK + "=?",
-                    new String[]{sqlExerciseName, String.valueOf(cycle), String.valueOf(week)},
-                    null, null, null);
-            if (c != null && c.moveToFirst()) {
-                return c.getInt(c.getColumnIndex(KEY_WORKOUT_ID));
-            }
-        } finally {
-            if (c != null) {
-                c.close();
+    private Map<String, StatsCache.ExerciseStats> reloadStats() {
+        Map<String, StatsCache.ExerciseStats> stats;
+        // Read and replaced together, so a slow reader can't replace newer stats with older
+        synchronized (sStatsCache) {
+            stats = readStats();
+            if (getDatabase().inTransaction()) {
+                return stats;
             }
+            sStatsCache.setStats(stats);
         }
-        return -1;
+        // The cached workouts were built from the old stats
+        WorkoutStore.getInstance().evictAll();
+        return stats;
     }
 
     /**
-     * Return the current cycle for a given exercise.
+     * Called after every write to the stats table. Inside a transaction the new stats are kept
+     * by this handler until it is committed, other handlers keep the old ones until then.
      */
-    private int getCurrentCycle(String sqlExerciseName) {
-        Cursor c = null;
-        try {
-            c = mDatabase.query(DATABASE_TABLE_WENDLER_STATS, new String[]{KEY_CYCLE},
-                    KEY_NAME + "=?", new String[]{sqlExerciseName}, null, null, null);
-            if (c != null && c.moveToFirst()) {
-                return c.getInt(c.getColumnIndex(KEY_CYCLE));
-            }
-        } finally {
-            if (c != null) {
-                c.close();
-            }
+    private void statsChanged() {
+        if (getDatabase().inTransaction()) {
+            mPendingStats = readStats();
+        } else {
+            reloadStats();
         }
-        return 1;
     }
 
     /**
-     * Return the current cycle name for a given exercise.
+     * End a transaction which may have written the stats. Once the outermost transaction is
+     * done, the stats changed in it are published if it was committed and dropped otherwise.
      */
-    private int getCurrentCycleName(String sqlExerciseName) {
-        Cursor c = null;
-        try {
-            c = mDatabase.query(DATABASE_TABLE_WENDLER_STATS, new String[]{KEY_CYCLE_NAME},
-                    KEY_NAME + "=?", new String[]{sqlExerciseName}, null, null, null);
-            if (c != null && c.moveToFirst()) {
-                return c.getInt(c.getColumnIndex(KEY_CYCLE_NAME));
-            }
-        } finally {
-            if (c != null) {
-                c.close();
-            }
+    private void endStatsTransaction(boolean successful) {
+        getDatabase().endTransaction();
+        if (getDatabase().inTransaction()) {
+            return;
+        }
+        boolean changed = mPendingStats != null;
+        mPendingStats = null;
+        if (changed && successful) {
+            reloadStats();
         }
-        return 1;
     }
 
-
     /**
-     * Return the insert time for a given workout id.
+     * Return the stats table as read now.
      */
-    private long getInsertTimeForId(int workoutId) {
+    private Map<String, StatsCache.ExerciseStats> readStats() {
+        String[] columns = new String[]{KEY_NAME, KEY_TRAINING_PERCENTAGE, KEY_1RM,
+                KEY_INCREMENT, KEY_WEEK, KEY_CYCLE, KEY_CYCLE_NAME, KEY_ORDER, KEY_SHOULD_DELOAD};
+        Map<String, StatsCache.ExerciseStats> stats = new LinkedHashMap<>();
+
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT,
-                    new String[]{KEY_INSERT_TIME}, KEY_WORKOUT_ID + "=?",
-                    new String[]{String.valueOf(workoutId)}, null, null, null);
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_STATS, columns,
+                    null, null, null, null, KEY_ROW_ID + " ASC");
             if (cursor != null && cursor.moveToFirst()) {
-                return Long.parseLong(cursor.getString(cursor.getColumnIndex(KEY_INSERT_TIME)));
+                do {
+                    String name = cursor.getString(0);
+                    stats.put(name, new StatsCache.ExerciseStats(
+                            name,
+                            cursor.getInt(1),
+                            cursor.getDouble(2),
+                            parseIncrement(cursor.getString(3)),
+                            cursor.getInt(4),
+                            cursor.getInt(5),
+                            cursor.getInt(6),
+                            cursor.getInt(7),
+                            cursor.getInt(8) == 1));
+                } while (cursor.moveToNext());
             }
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
         }
-        return System.currentTimeMillis();
+        return Collections.unmodifiableMap(stats);
     }
 
     /**
-     * Return the time the workout was completed for a given workout id.
+     * Read the percentage table into memory, called after every write to it.
      */
-    private Time getTimeForWorkout(int workoutId) {
-        Cursor cursor = null;
-        try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT,
-                    new String[]{KEY_WORKOUT_YEAR, KEY_WORKOUT_MONTH, KEY_WORKOUT_DAY},
-                    KEY_WORKOUT_ID + "=?", new String[]{String.valueOf(workoutId)}, null, null,
-                    null);
+    private int[][] reloadPercentages() {
+        String[] columns = new String[]{KEY_WEEK, KEY_PERCENTAGE};
+        List<List<Integer>> weeks = new ArrayList<>();
 
-            Time time = new Time();
-            time.setToNow();
-            if (cursor != null && cursor.moveToFirst()) {
-                time.year =
-                        Integer.parseInt(cursor.getString(cursor.getColumnIndex(KEY_WORKOUT_YEAR)));
-                time.month = Integer.parseInt(
-                        cursor.getString(cursor.getColumnIndex(KEY_WORKOUT_MONTH)));
-                time.monthDay =
-                        Integer.parseInt(cursor.getString(cursor.getColumnIndex(KEY_WORKOUT_DAY)));
-            }
-            return time;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
+        synchronized (sStatsCache) {
+            Cursor cursor = null;
+            try {
+                cursor = getDatabase().query(DATABASE_TABLE_SET_PERCENT, columns, null, null, null,
+                        null, KEY_WEEK + " ASC, " + KEY_SET_NUMBER + " ASC");
+                if (cursor != null && cursor.moveToFirst()) {
+                    do {
+                        int week = cursor.getInt(0);
+                        while (weeks.size() < week) {
+                            weeks.add(new ArrayList<Integer>());
+                        }
+                        weeks.get(week - 1).add(cursor.getInt(1));
+                    } while (cursor.moveToNext());
+                }
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
             }
-        }
-    }
 
-    /**
-     * Return the notes for a given workout id.
-     */
-    private String getNotesForWorkout(int workoutId) {
-        Cursor cursor = null;
-        try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT,
-                    new String[]{KEY_WORKOUT_NOTES}, KEY_WORKOUT_ID + "=?",
-                    new String[]{String.valueOf(workoutId)}, null, null, null);
-            if (cursor != null && cursor.moveToFirst()) {
-                return cursor.getString(cursor.getColumnIndex(KEY_WORKOUT_NOTES));
-            }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
+            int[][] percentages = new int[Math.max(weeks.size(), WEEKS_IN_CYCLE)][];
+            for (int week = 0; week < percentages.length; week++) {
+                List<Integer> sets = week < weeks.size() ? weeks.get(week) : null;
+                percentages[week] = new int[sets == null ? 0 : sets.size()];
+                for (int set = 0; set < percentages[week].length; set++) {
+                    percentages[week][set] = sets.get(set);
+                }
             }
+            sStatsCache.setPercentages(percentages);
+            WorkoutStore.getInstance().evictAll();
+            return percentages;
         }
-
-        return "";
     }
 
     /**
-     * Return the main exercise for a given workout id.
+     * Load the stored extra exercises for several workouts with a single query. The exercises are
+     * put in extras mapped by workout id, and started holds if each workout's extras are started.
      */
-    private MainExercise getMainExerciseForWorkout(boolean isComplete, int workoutId) {
-        MainExercise mainExercise = null;
+    private void getExtraExercisesForWorkouts(List<Integer> workoutIds,
+                                              Map<String, Double> oneRms,
+                                              Map<Integer, ArrayList<AdditionalExercise>> extras,
+                                              Map<Integer, Boolean> started) {
+        String[] args = new String[workoutIds.size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = String.valueOf(workoutIds.get(i));
+            extras.put(workoutIds.get(i), new ArrayList<AdditionalExercise>());
+            started.put(workoutIds.get(i), false);
+        }
+
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT, null,
-                    KEY_WORKOUT_ID + "=?", new String[]{String.valueOf(workoutId)},
-                    null, null, null);
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_EXTRA, null,
+                    KEY_WORKOUT_ID + " IN (" + makePlaceholders(args.length) + ")", args,
+                    null, null, KEY_ROW_ID + " ASC");
 
             if (cursor != null && cursor.moveToFirst()) {
-
-                int week = cursor.getInt(cursor.getColumnIndex(KEY_WORKOUT_WEEK));
-                String name = cursor.getString(cursor.getColumnIndex(KEY_WORKOUT_EXERCISE));
-                int repsPerformed = cursor.getInt(cursor.getColumnIndex(KEY_WORKOUT_REPS));
-
-                double increment = getIncrement(name);
-                int workoutPercentage =
-                        cursor.getInt(cursor.getColumnIndex(KEY_TRAINING_PERCENTAGE));
-                double oneRm = cursor.getFloat(cursor.getColumnIndex(KEY_1RM));
-                int[] setPercentages = getSetPercentages(week);
-
-                boolean showWarmUp = PreferenceUtil.getBoolean(
-                        mContext, PreferenceUtil.KEY_SHOW_WARM_UP, true);
-
-                List<SetGroup> setGroups = new ArrayList<>();
-                if (showWarmUp) {
-                    String serialized = PreferenceUtil.getString(
-                            mContext,
-                            PreferenceUtil.KEY_WARM_UP_SETS,
-                            WendlerConstants.DEFAULT_WARMUP_PERCENTAGES);
-                    List<ExerciseSet> set = WendlerMath.getWarmupSets(
-                            mContext,
-                            oneRm,
-                            serialized.split(","),
-                            repsPerformed);
-                    ArrayList<ExerciseSet> sets = new ArrayList<>();
-                    sets.addAll(set);
-                    setGroups.add(new SetGroup(SetType.WARM_UP, sets));
-                }
-                List<ExerciseSet> set = WendlerMath.getWorkoutSets(
-                        mContext, oneRm, setPercentages, week, repsPerformed);
-                ArrayList<ExerciseSet> sets = new ArrayList<>();
-                sets.addAll(set);
-                setGroups.add(new SetGroup(SetType.REGULAR, sets));
-
-                int estOneRm = cursor.getInt(cursor.getColumnIndex(KEY_WORKOUT_EST_ONE_RM));
-
-                int repsToBeat = -1; // Workout has been done, so no need to show the reps-to-beat
-
-                mainExercise = new MainExercise(name, oneRm, increment, sets, setGroups,
-                        workoutPercentage, estOneRm, repsToBeat);
-            }
-
-            if (!isComplete && mainExercise != null && mainExercise.getLastSetProgress() < 0) {
-                return null;
+                do {
+                    int workoutId = cursor.getInt(cursor.getColumnIndex(KEY_WORKOUT_ID));
+                    boolean isStarted = isExtraExerciseStarted(cursor);
+                    started.put(workoutId, isStarted);
+                    extras.get(workoutId).add(readStoredExtraExercise(cursor, isStarted, oneRms));
+                } while (cursor.moveToNext());
             }
-
-            return mainExercise;
         } finally {
             if (cursor != null) {
                 cursor.close();
@@ -1378,81 +2355,69 @@ public class SqlHandler {
     }
 
     /**
-     * Return a list of additional exercises for a given workout id.
+     * Return if the stored extra exercise at the current row of a cursor is started.
      */
-    private ArrayList<AdditionalExercise> getExtraExerciseForWorkout(
-            String workoutName, int workoutId, boolean isComplete) {
-
-        ArrayList<AdditionalExercise> exercises = new ArrayList<>();
-        boolean isStarted = false;
-        Cursor cursor = null;
-        try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_EXTRA, null,
-                    KEY_WORKOUT_ID + "=?", new String[]{String.valueOf(workoutId)},
-                    null, null, null);
-
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    String name = cursor.getString(cursor.getColumnIndex(KEY_EXERCISE_NAME));
-
-                    int sets = cursor.getInt(cursor.getColumnIndex
-                            (KEY_NUMBER_OF_SETS_TO_BE_DONE));
-                    int reps = cursor.getInt(cursor.getColumnIndex
-                            (KEY_NUMBER_OF_REPS_TO_BE_DONE));
-                    double weight = cursor.getDouble(cursor.getColumnIndex(KEY_EXTRA_WEIGHT));
-                    int repsPerformed = cursor.getInt(cursor.getColumnIndex
-                            (KEY_EXTRA_REPS_OR_SETS_COMPLETED));
-                    isStarted = cursor.getInt(cursor.getColumnIndex(KEY_IS_STARTED))  == 1;
-                    if (!isStarted && repsPerformed > 0) {
-                        isStarted = true;
-                    }
-                    int exerciseId = cursor.getInt(cursor.getColumnIndex(KEY_EXTRA_EXERCISE_ID));
-                    String mainExerciseName = cursor.getString(cursor.getColumnIndex
-                            (KEY_EXTRA_MAIN_EXERCISE_NAME));
-                    int percentage = cursor.getInt(cursor.getColumnIndex
-                            (KEY_EXTRA_PERCENTAGE_OF_MAIN_EXERCISE));
-
-                    ArrayList<ExerciseSet> exerciseSets = new ArrayList<>();
-                    double mainExerciseWeight = cursor.getDouble(
-                            cursor.getColumnIndex(KEY_MAIN_EXERCISE_WEIGHT));
-                    if (!TextUtils.isEmpty(mainExerciseName)) {
-                        weight = WendlerMath.calculateWeight(
-                                mContext,
-                                getOneRmForExercise(mainExerciseName),
-                                percentage);
-                    }
-
-                    ExerciseSet set = new ExerciseSet(SetType.REGULAR, weight, sets, reps, repsPerformed);
-                    exerciseSets.add(set);
-
-                    AdditionalExercise exercise = new AdditionalExercise(
-                            name,
-                            exerciseSets,
-                            mainExerciseName,
-                            percentage,
-                            mainExerciseWeight,
-                            exerciseId,
-                            isStarted);
-                    exercises.add(exercise);
+    private static boolean isExtraExerciseStarted(Cursor cursor) {
+        int repsPerformed = cursor.getInt(cursor.getColumnIndex(KEY_EXTRA_REPS_OR_SETS_COMPLETED));
+        return cursor.getInt(cursor.getColumnIndex(KEY_IS_STARTED)) == 1 || repsPerformed > 0;
+    }
 
-                } while (cursor.moveToNext());
-            }
+    /**
+     * Read a stored extra exercise from the current row of a cursor.
+     */
+    private AdditionalExercise readStoredExtraExercise(Cursor cursor,
+                                                       boolean isStarted,
+                                                       Map<String, Double> oneRms) {
+        String name = cursor.getString(cursor.getColumnIndex(KEY_EXERCISE_NAME));
+
+        int sets = cursor.getInt(cursor.getColumnIndex
+                (KEY_NUMBER_OF_SETS_TO_BE_DONE));
+        int reps = cursor.getInt(cursor.getColumnIndex
+                (KEY_NUMBER_OF_REPS_TO_BE_DONE));
+        double weight = cursor.getDouble(cursor.getColumnIndex(KEY_EXTRA_WEIGHT));
+        int repsPerformed = cursor.getInt(cursor.getColumnIndex
+                (KEY_EXTRA_REPS_OR_SETS_COMPLETED));
+        int exerciseId = cursor.getInt(cursor.getColumnIndex(KEY_EXTRA_EXERCISE_ID));
+        String mainExerciseName = cursor.getString(cursor.getColumnIndex
+                (KEY_EXTRA_MAIN_EXERCISE_NAME));
+        int percentage = cursor.getInt(cursor.getColumnIndex
+                (KEY_EXTRA_PERCENTAGE_OF_MAIN_EXERCISE));
+
+        ArrayList<ExerciseSet> exerciseSets = new ArrayList<>();
+        double mainExerciseWeight = cursor.getDouble(
+                cursor.getColumnIndex(KEY_MAIN_EXERCISE_WEIGHT));
+        if (!TextUtils.isEmpty(mainExerciseName)) {
+            weight = WendlerMath.calculateWeight(
+                    mContext,
+                    getOneRmForExercise(mainExerciseName, oneRms),
+                    percentage);
+        }
 
-            ArrayList<AdditionalExercise> original = getAdditionalExercisesForWorkout(
-                    new Workout(
-                            workoutName,
-                            StringHelper.getTranslatableName(mContext, workoutName)));
+        ExerciseSet set = new ExerciseSet(SetType.REGULAR, weight, sets, reps, repsPerformed);
+        exerciseSets.add(set);
+
+        return new AdditionalExercise(
+                name,
+                exerciseSets,
+                mainExerciseName,
+                percentage,
+                mainExerciseWeight,
+                exerciseId,
+                isStarted);
+    }
 
-            if (isComplete || isStarted) {
-                return exercises;
-            } else {
-                return original;
-            }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
+    /**
+     * Return a comma separated list of count placeholders for an IN clause.
+     */
+    private static String makePlaceholders(int count) {
+        StringBuilder builder = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
             }
+            builder.append('?');
         }
+        return builder.toString();
     }
 
     /**
@@ -1529,8 +2494,9 @@ public class SqlHandler {
         ContentValues cv = new ContentValues();
 
         cv.put(KEY_SHOULD_DELOAD, value ? 1 : 0);
-        mDatabase.update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
+        getDatabase().update(DATABASE_TABLE_WENDLER_STATS, cv, KEY_NAME + "=?",
                 new String[]{workoutName});
+        statsChanged();
     }
 
     /**
@@ -1539,7 +2505,7 @@ public class SqlHandler {
     private boolean hasWorkoutOutComeChanged(Workout workout) {
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT, null,
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_WORKOUT, null,
                     KEY_WORKOUT_ID + "=?", new String[]{String.valueOf(workout.getWorkoutId())},
                     null, null, null);
 
@@ -1566,8 +2532,9 @@ public class SqlHandler {
         contentValues.put(KEY_WEEK, String.valueOf(week));
         contentValues.put(KEY_CYCLE, String.valueOf(cycle));
         contentValues.put(KEY_CYCLE_NAME, String.valueOf(cycleName));
-        mDatabase.update(
+        getDatabase().update(
                 DATABASE_TABLE_WENDLER_STATS, contentValues, KEY_NAME + "=?", new String[]{name});
+        statsChanged();
     }
 
     /**
@@ -1576,7 +2543,7 @@ public class SqlHandler {
     private boolean isWorkoutLatest(Workout workout) {
         Cursor cursor = null;
         try {
-            cursor = mDatabase.query(DATABASE_TABLE_WENDLER_WORKOUT, null,
+            cursor = getDatabase().query(DATABASE_TABLE_WENDLER_WORKOUT, null,
                     KEY_WORKOUT_EXERCISE + "=? AND " + KEY_WORKOUT_COMPLETED + "=?",
                     new String[]{workout.getName(), "1"}, null,
                     null, KEY_CYCLE + " DESC, " + KEY_WEEK + " DESC");
@@ -1591,19 +2558,45 @@ public class SqlHandler {
         }
     }
 
+    /**
+     * The highest estimated one rm of an exercise and the workout it was set in.
+     */
+    private static class PersonalRecord {
+
+        private final int estOneRm;
+        private final int workoutId;
+
+        /**
+         * Constructor.
+         */
+        PersonalRecord(int estOneRm, int workoutId) {
+            this.estOneRm = estOneRm;
+            this.workoutId = workoutId;
+        }
+    }
+
     /**
      * Inner class for handling the connection to the SQLiteDatabase.
      */
     private static class DbHelper extends SQLiteOpenHelper {
 
+        /**
+         * Page cache size in KiB, negative as SQLite expects for a size instead of a page count.
+         */
+        private static final int CACHE_SIZE_KIB = -1024;
+
+        /**
+         * The julian day of 1970-01-01, subtracted from a julian day to get an epoch day.
+         */
+        private static final double JULIAN_DAY_OF_EPOCH = 2440587.5;
 
         private final Context mContext;
 
         /**
          * Constructor.
          */
-        public DbHelper(Context context) {
-            super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        public DbHelper(Context context, SQLiteDatabase.CursorFactory factory) {
+            super(context, DATABASE_NAME, factory, DATABASE_VERSION);
             mContext = context;
         }
 
@@ -1614,14 +2607,9 @@ public class SqlHandler {
         public void onCreate(SQLiteDatabase db) {
 
             /**
-             * Table for managing all the percentages for the 4 weeks.
+             * Table for managing the percentages of every set in every week.
              */
-            db.execSQL("CREATE TABLE " + DATABASE_TABLE_PERCENT + " ("
-                    + KEY_ROW_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
-                    + KEY_WEEK_ONE + " INTEGER NOT NULL, "
-                    + KEY_WEEK_TWO + " INTEGER NOT NULL, "
-                    + KEY_WEEK_THREE + " INTEGER NOT NULL, "
-                    + KEY_WEEK_FOUR + " INTEGER NOT NULL);");
+            createSetPercentagesTable(db);
 
             /**
              * Table for managing the stats for each workout.
@@ -1638,28 +2626,7 @@ public class SqlHandler {
                     KEY_SHOULD_DELOAD + " INTEGER, " +
                     KEY_NAME + " TEXT);");
 
-            /**
-             * Table for saving the main exercise of a workout.
-             */
-            db.execSQL("CREATE TABLE " + DATABASE_TABLE_WENDLER_WORKOUT + " (" +
-                    KEY_ROW_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    KEY_INSERT_TIME + " TEXT NOT NULL, " +
-                    KEY_WORKOUT_YEAR + " INTEGER NOT NULL, " +
-                    KEY_WORKOUT_MONTH + " INTEGER NOT NULL, " +
-                    KEY_WORKOUT_DAY + " INTEGER NOT NULL, " +
-                    KEY_WORKOUT_EXERCISE + " TEXT NOT NULL, " +
-                    KEY_WORKOUT_REPS + " TEXT NOT NULL, " +
-                    KEY_WORKOUT_ONE_RM + " TEXT NOT NULL, " +
-                    KEY_WORKOUT_LAST_SET + " TEXT NOT NULL, " +
-                    KEY_WORKOUT_WEEK + " TEXT NOT NULL, " +
-                    KEY_WORKOUT_CYCLE + " TEXT NOT NULL, " +
-                    KEY_CYCLE_NAME + " TEXT NOT NULL, " +
-                    KEY_WORKOUT_ID + " INTEGER NOT NULL, " +
-                    KEY_WORKOUT_NOTES + " TEXT NOT NULL, " +
-                    KEY_WORKOUT_COMPLETED + " INTEGER NOT NULL, " +
-                    KEY_TRAINING_PERCENTAGE + " INTEGER NOT NULL, " +
-                    KEY_WORKOUT_WON + " INTEGER, " +
-                    KEY_WORKOUT_EST_ONE_RM + " INTEGER) ;");
+            createWorkoutTable(db, DATABASE_TABLE_WENDLER_WORKOUT);
 
             /**
              * Table for managing extra exercises for a specific workout.
@@ -1695,6 +2662,159 @@ public class SqlHandler {
                     KEY_MAIN_EXERCISE_WEIGHT + " TEXT, " +
                     KEY_IS_BBB + " INTEGER, " +
                     KEY_EXTRA_ORDER_IN_LIST + " TEXT NOT NULL);");
+
+            createRecordsTable(db);
+            createIndexes(db);
+            createWorkoutDateIndex(db);
+            createPlanTable(db);
+            createMigrationsTable(db);
+        }
+
+        /**
+         * Create a table for saving the main exercise of a workout.
+         */
+        private void createWorkoutTable(SQLiteDatabase db, String table) {
+            db.execSQL("CREATE TABLE " + table + " (" +
+                    KEY_ROW_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    KEY_INSERT_TIME + " INTEGER NOT NULL, " +
+                    KEY_WORKOUT_DATE + " INTEGER NOT NULL, " +
+                    KEY_WORKOUT_EXERCISE + " TEXT NOT NULL, " +
+                    KEY_WORKOUT_REPS + " INTEGER NOT NULL, " +
+                    KEY_WORKOUT_ONE_RM + " REAL NOT NULL, " +
+                    KEY_WORKOUT_LAST_SET + " REAL NOT NULL, " +
+                    KEY_WORKOUT_WEEK + " INTEGER NOT NULL, " +
+                    KEY_WORKOUT_CYCLE + " INTEGER NOT NULL, " +
+                    KEY_CYCLE_NAME + " INTEGER NOT NULL, " +
+                    KEY_WORKOUT_ID + " INTEGER NOT NULL, " +
+                    KEY_WORKOUT_NOTES + " TEXT NOT NULL, " +
+                    KEY_WORKOUT_COMPLETED + " INTEGER NOT NULL, " +
+                    KEY_WORKOUT_DELETED + " INTEGER NOT NULL DEFAULT 0, " +
+                    KEY_TRAINING_PERCENTAGE + " INTEGER NOT NULL, " +
+                    KEY_WORKOUT_WON + " INTEGER, " +
+                    KEY_WORKOUT_EST_ONE_RM + " INTEGER);");
+        }
+
+        /**
+         * Rebuild the workout table with typed columns, the numbers were stored as text and the
+         * date as separate year, month and day columns. SQLite can't change the type of a
+         * column, so the rows are copied to a new table which replaces the old one.
+         */
+        private void migrateWorkoutColumns(SQLiteDatabase db) {
+            String table = DATABASE_TABLE_WENDLER_WORKOUT + "_typed";
+            createWorkoutTable(db, table);
+
+            // The date is built as YYYY-MM-DD for julianday, printf is missing in older SQLite.
+            // A date which can't be parsed, like the -1 of a workout not done yet, gets no date.
+            String date = String.format(Locale.ROOT,
+                    "IFNULL(CAST(julianday(%1$s || '-' || substr('0' || (%2$s + 1), -2)" +
+                            " || '-' || substr('0' || %3$s, -2)) - %4$s AS INTEGER), %5$d)",
+                    KEY_WORKOUT_YEAR, KEY_WORKOUT_MONTH, KEY_WORKOUT_DAY, JULIAN_DAY_OF_EPOCH,
+                    Workout.NO_DATE);
+            db.execSQL(String.format(Locale.ROOT,
+                    "INSERT INTO %1$s (%2$s, %3$s, %4$s, %5$s, %6$s, %7$s, %8$s, %9$s, %10$s," +
+                            " %11$s, %12$s, %13$s, %14$s, %15$s, %16$s, %17$s)" +
+                            " SELECT %2$s, CAST(%3$s AS INTEGER), %18$s, %5$s," +
+                            " CAST(%6$s AS INTEGER), CAST(%7$s AS REAL), CAST(%8$s AS REAL)," +
+                            " CAST(%9$s AS INTEGER), CAST(%10$s AS INTEGER)," +
+                            " CAST(%11$s AS INTEGER), %12$s, %13$s, %14$s, %15$s, %16$s, %17$s" +
+                            " FROM %19$s",
+                    table, KEY_ROW_ID, KEY_INSERT_TIME, KEY_WORKOUT_DATE, KEY_WORKOUT_EXERCISE,
+                    KEY_WORKOUT_REPS, KEY_WORKOUT_ONE_RM, KEY_WORKOUT_LAST_SET, KEY_WORKOUT_WEEK,
+                    KEY_WORKOUT_CYCLE, KEY_CYCLE_NAME, KEY_WORKOUT_ID, KEY_WORKOUT_NOTES,
+                    KEY_WORKOUT_COMPLETED, KEY_TRAINING_PERCENTAGE, KEY_WORKOUT_WON,
+                    KEY_WORKOUT_EST_ONE_RM, date, DATABASE_TABLE_WENDLER_WORKOUT));
+            db.execSQL("DROP TABLE " + DATABASE_TABLE_WENDLER_WORKOUT);
+            db.execSQL("ALTER TABLE " + table + " RENAME TO " + DATABASE_TABLE_WENDLER_WORKOUT);
+
+            // The indexes went with the old table
+            createIndexes(db);
+            createWorkoutDateIndex(db);
+        }
+
+        /**
+         * Create the index used to find the workouts done between two dates.
+         */
+        private void createWorkoutDateIndex(SQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_workout_completed_date ON "
+                    + DATABASE_TABLE_WENDLER_WORKOUT + " (" + KEY_WORKOUT_COMPLETED + ", "
+                    + KEY_WORKOUT_DATE + ");");
+        }
+
+        /**
+         * Create the personal record table and fill it from the stored workouts.
+         */
+        private void createRecordsTable(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS " + DATABASE_TABLE_WENDLER_RECORDS + " (" +
+                    KEY_WORKOUT_EXERCISE + " TEXT PRIMARY KEY, " +
+                    KEY_WORKOUT_EST_ONE_RM + " INTEGER NOT NULL, " +
+                    KEY_WORKOUT_ID + " INTEGER NOT NULL);");
+
+            String format =
+                    "INSERT OR REPLACE INTO %1$s (%2$s, %3$s, %4$s)" +
+                            " SELECT %2$s, MAX(%3$s), %4$s FROM %5$s" +
+                            " WHERE %3$s > 0 GROUP BY %2$s";
+            Object[] args = {DATABASE_TABLE_WENDLER_RECORDS, KEY_WORKOUT_EXERCISE,
+                    KEY_WORKOUT_EST_ONE_RM, KEY_WORKOUT_ID, DATABASE_TABLE_WENDLER_WORKOUT};
+            db.execSQL(String.format(Locale.ROOT, format, args));
+        }
+
+        /**
+         * Create the indexes used by our queries.
+         */
+        private void createIndexes(SQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_workout_completed ON "
+                    + DATABASE_TABLE_WENDLER_WORKOUT + " (" + KEY_WORKOUT_COMPLETED + ", "
+                    + KEY_INSERT_TIME + ", " + KEY_WORKOUT_ID + ");");
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_workout_id ON "
+                    + DATABASE_TABLE_WENDLER_WORKOUT + " (" + KEY_WORKOUT_ID + ");");
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_workout_exercise_cycle_week ON "
+                    + DATABASE_TABLE_WENDLER_WORKOUT + " (" + KEY_WORKOUT_EXERCISE + ", "
+                    + KEY_WORKOUT_CYCLE + ", " + KEY_WORKOUT_WEEK + ");");
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_workout_exercise_est_one_rm ON "
+                    + DATABASE_TABLE_WENDLER_WORKOUT + " (" + KEY_WORKOUT_EXERCISE + ", "
+                    + KEY_WORKOUT_EST_ONE_RM + ");");
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_stats_name ON "
+                    + DATABASE_TABLE_WENDLER_STATS + " (" + KEY_NAME + ");");
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_extra_workout_id ON "
+                    + DATABASE_TABLE_WENDLER_EXTRA + " (" + KEY_WORKOUT_ID + ");");
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_extra_list_exercise_order ON "
+                    + DATABASE_TABLE_WENDLER_EXTRA_LIST + " (" + KEY_WORKOUT_EXERCISE + ", "
+                    + KEY_EXTRA_ORDER_IN_LIST + ");");
+        }
+
+        /**
+         * Called when the connection is being configured, before the database is created or
+         * upgraded. Only called on Jelly Bean and later.
+         */
+        @Override
+        public void onConfigure(SQLiteDatabase db) {
+            super.onConfigure(db);
+            configure(db);
+        }
+
+        /**
+         * Called when the database has been opened.
+         */
+        @Override
+        public void onOpen(SQLiteDatabase db) {
+            super.onOpen(db);
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+                configure(db);
+            }
+        }
+
+        /**
+         * Use write-ahead logging so reads don't wait for writes, and tune the connection for it.
+         */
+        private static void configure(SQLiteDatabase db) {
+            if (!db.enableWriteAheadLogging()) {
+                WendlerizedLog.e("Could not enable write-ahead logging", null);
+                return;
+            }
+            // With a write-ahead log NORMAL is still safe against corruption, a power loss
+            // can only roll back the last commits.
+            db.execSQL("PRAGMA synchronous=NORMAL");
+            db.execSQL(String.format(Locale.ROOT, "PRAGMA cache_size=%d", CACHE_SIZE_KIB));
         }
 
         private void addColumn(SQLiteDatabase db, String table, String column, String statement) {
@@ -1729,6 +2849,103 @@ public class SqlHandler {
                 addColumn(db, DATABASE_TABLE_WENDLER_EXTRA, KEY_NUMBER_OF_REPS_TO_BE_DONE, "INTEGER DEFAULT 0");
                 addColumn(db, DATABASE_TABLE_WENDLER_EXTRA_LIST, KEY_NUMBER_OF_REPS_TO_BE_DONE, "INTEGER DEFAULT 0");
             }
+
+            if (oldVersion < 14 && newVersion >= 14) {
+                createRecordsTable(db);
+                createIndexes(db);
+            }
+
+            if (oldVersion < 15 && newVersion >= 15) {
+                createSetPercentagesTable(db);
+                migratePercentages(db);
+            }
+
+            if (oldVersion < 16 && newVersion >= 16) {
+                createPlanTable(db);
+            }
+
+            if (oldVersion < 17 && newVersion >= 17) {
+                createMigrationsTable(db);
+            }
+
+            if (oldVersion < 18 && newVersion >= 18) {
+                migrateWorkoutColumns(db);
+            }
+
+            if (oldVersion < 19 && newVersion >= 19) {
+                // Already there when the table was rebuilt by the previous step
+                addColumn(db, DATABASE_TABLE_WENDLER_WORKOUT, KEY_WORKOUT_DELETED,
+                        "INTEGER NOT NULL DEFAULT 0");
+            }
+
+            if (oldVersion < 20 && newVersion >= 20) {
+                // The last set of weeks with fixed reps was planned as a plus set, the next
+                // write plans the current cycles again. Earlier cycles are kept as they were.
+                db.execSQL(String.format(Locale.ROOT,
+                        "DELETE FROM %1$s WHERE EXISTS (SELECT 1 FROM %2$s s"
+                                + " WHERE s.%3$s = %1$s.%3$s AND s.%4$s = %1$s.%4$s)",
+                        DATABASE_TABLE_WENDLER_PLAN, DATABASE_TABLE_WENDLER_STATS,
+                        KEY_NAME, KEY_CYCLE));
+            }
+        }
+
+        /**
+         * Create the table keeping track of data migrations.
+         */
+        private void createMigrationsTable(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + DATABASE_TABLE_MIGRATIONS + " ("
+                    + KEY_MIGRATION_NAME + " TEXT PRIMARY KEY, "
+                    + KEY_MIGRATION_PROGRESS + " INTEGER NOT NULL, "
+                    + KEY_MIGRATION_TARGET + " INTEGER NOT NULL);");
+        }
+
+        /**
+         * Create the table holding the planned sets of every exercise, week and cycle.
+         */
+        private void createPlanTable(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + DATABASE_TABLE_WENDLER_PLAN + " ("
+                    + KEY_NAME + " TEXT NOT NULL, "
+                    + KEY_CYCLE + " INTEGER NOT NULL, "
+                    + KEY_WEEK + " INTEGER NOT NULL, "
+                    + KEY_SET_NUMBER + " INTEGER NOT NULL, "
+                    + KEY_SET_TYPE + " TEXT NOT NULL, "
+                    + KEY_SET_WEIGHT + " REAL NOT NULL, "
+                    + KEY_SET_GOAL + " INTEGER NOT NULL, "
+                    + KEY_REP_GOAL + " INTEGER NOT NULL, "
+                    + KEY_REPS_TO_BEAT + " INTEGER NOT NULL, "
+                    + KEY_1RM + " REAL NOT NULL, "
+                    + KEY_PLAN_RECORD + " INTEGER NOT NULL, "
+                    + KEY_PLAN_SETTINGS + " INTEGER NOT NULL, "
+                    + "PRIMARY KEY (" + KEY_NAME + ", " + KEY_CYCLE + ", " + KEY_WEEK + ", "
+                    + KEY_SET_NUMBER + "));");
+        }
+
+        /**
+         * Create the table holding one percentage per set and week.
+         */
+        private void createSetPercentagesTable(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + DATABASE_TABLE_SET_PERCENT + " ("
+                    + KEY_WEEK + " INTEGER NOT NULL, "
+                    + KEY_SET_NUMBER + " INTEGER NOT NULL, "
+                    + KEY_PERCENTAGE + " INTEGER NOT NULL, "
+                    + "PRIMARY KEY (" + KEY_WEEK + ", " + KEY_SET_NUMBER + "));");
+        }
+
+        /**
+         * Move the percentages from the table with one column per week, numbering the sets by
+         * the order the rows were inserted in.
+         */
+        private void migratePercentages(SQLiteDatabase db) {
+            String[] weeks = {KEY_WEEK_ONE, KEY_WEEK_TWO, KEY_WEEK_THREE, KEY_WEEK_FOUR};
+            for (int week = 0; week < weeks.length; week++) {
+                db.execSQL(String.format(Locale.ROOT,
+                        "INSERT INTO %1$s (%2$s, %3$s, %4$s) "
+                                + "SELECT %5$d, (SELECT COUNT(*) FROM %6$s o "
+                                + "WHERE o.%7$s <= p.%7$s), p.%8$s FROM %6$s p",
+                        DATABASE_TABLE_SET_PERCENT, KEY_WEEK, KEY_SET_NUMBER, KEY_PERCENTAGE,
+                        week + 1, DATABASE_TABLE_PERCENT, KEY_ROW_ID, weeks[week]));
+            }
+            db.execSQL("DROP TABLE IF EXISTS " + DATABASE_TABLE_PERCENT);
         }
 
         /**
@@ -1739,6 +2956,9 @@ public class SqlHandler {
             close();
             File oldDb = new File(String.valueOf(mContext.getDatabasePath(getDatabaseName())));
             if (file.exists()) {
+                // A log left behind by the old database would be replayed onto the restored one.
+                new File(oldDb.getPath() + "-wal").delete();
+                new File(oldDb.getPath() + "-shm").delete();
                 try {
                     copyFile(new FileInputStream(file), new FileOutputStream(oldDb));
                 } catch (IOException e) {
@@ -0,0 +1,88 @@
+package se.johan.wendler.sql;
+
+import java.util.Map;
+
+/**
+ * In-memory copy of the stats and percentage tables, which are tiny but read all the time.
+ * Every snapshot is immutable and replaced as a whole, so readers never see half an update.
+ */
+class StatsCache {
+
+    private volatile Map<String, ExerciseStats> mStats;
+    private volatile int[][] mPercentages;
+
+    /**
+     * Return the stats of every exercise by name, null if not loaded.
+     */
+    Map<String, ExerciseStats> getStats() {
+        return mStats;
+    }
+
+    /**
+     * Replace the stats of every exercise.
+     */
+    void setStats(Map<String, ExerciseStats> stats) {
+        mStats = stats;
+    }
+
+    /**
+     * Return the set percentages indexed by week and set, null if not loaded.
+     */
+    int[][] getPercentages() {
+        return mPercentages;
+    }
+
+    /**
+     * Replace the set percentages.
+     */
+    void setPercentages(int[][] percentages) {
+        mPercentages = percentages;
+    }
+
+    /**
+     * Drop everything, it is loaded again on the next read.
+     */
+    void clear() {
+        mStats = null;
+        mPercentages = null;
+    }
+
+    /**
+     * The stats of a single exercise.
+     */
+    static class ExerciseStats {
+
+        final String name;
+        final int workoutPercentage;
+        final double oneRm;
+        final double increment;
+        final int week;
+        final int cycle;
+        final int cycleName;
+        final int order;
+        final boolean shouldDeload;
+
+        /**
+         * Constructor.
+         */
+        ExerciseStats(String name,
+                      int workoutPercentage,
+                      double oneRm,
+                      double increment,
+                      int week,
+                      int cycle,
+                      int cycleName,
+                      int order,
+                      boolean shouldDeload) {
+            this.name = name;
+            this.workoutPercentage = workoutPercentage;
+            this.oneRm = oneRm;
+            this.increment = increment;
+            this.week = week;
+            this.cycle = cycle;
+            this.cycleName = cycleName;
+            this.order = order;
+            this.shouldDeload = shouldDeload;
+        }
+    }
+}
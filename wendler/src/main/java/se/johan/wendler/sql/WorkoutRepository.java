@@ -0,0 +1,190 @@
+package se.johan.wendler.sql;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.sql.SQLException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import se.johan.wendler.util.WendlerizedLog;
+
+/**
+ * Runs database work off the UI thread. Writes are run one at a time on a single thread, reads
+ * run on a small pool next to them, and results are delivered on the main thread.
+ */
+public class WorkoutRepository {
+
+    private static final int READER_THREADS = 2;
+
+    private static WorkoutRepository sInstance;
+
+    private final Context mContext;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mWriteExecutor =
+            Executors.newSingleThreadExecutor(new DbThreadFactory("writer"));
+    private final ExecutorService mReadExecutor =
+            Executors.newFixedThreadPool(READER_THREADS, new DbThreadFactory("reader"));
+
+    private Future<?> mLastWrite;
+
+    /**
+     * Work to run against the database.
+     */
+    public interface Query<T> {
+
+        /**
+         * Called on a database thread with an open handler.
+         */
+        public T run(SqlHandler handler);
+    }
+
+    /**
+     * Receives the result of a query on the main thread.
+     */
+    public interface Callback<T> {
+
+        /**
+         * Called with the result of the query, null if the database could not be opened or the
+         * query failed. It is called once for every query.
+         */
+        public void onResult(T result);
+    }
+
+    /**
+     * Private constructor.
+     */
+    private WorkoutRepository(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * Return an instance of the WorkoutRepository.
+     */
+    public static synchronized WorkoutRepository getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WorkoutRepository(context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Run a query which only reads. It sees every write submitted before it.
+     */
+    public <T> void read(final Query<T> query, final Callback<T> callback) {
+        final Future<?> pendingWrite;
+        synchronized (this) {
+            pendingWrite = mLastWrite;
+        }
+        mReadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                awaitWrite(pendingWrite);
+                deliver(callback, runQuery(query));
+            }
+        });
+    }
+
+    /**
+     * Run a query which writes, after every write submitted before it.
+     */
+    public <T> void write(final Query<T> query, final Callback<T> callback) {
+        synchronized (this) {
+            mLastWrite = mWriteExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    deliver(callback, runQuery(query));
+                }
+            });
+        }
+    }
+
+    /**
+     * Run a query with its own handler, return null if the database could not be opened or the
+     * query failed. It waits for a restore of the database to finish, and holds off the next one
+     * while it runs.
+     */
+    private <T> T runQuery(Query<T> query) {
+        SqlHandler handler = new SqlHandler(mContext);
+        SqlHandler.sReplaceLock.readLock().lock();
+        try {
+            handler.open();
+            return query.run(handler);
+        } catch (SQLException e) {
+            WendlerizedLog.e("Failed to open the database", e);
+            return null;
+        } catch (RuntimeException e) {
+            WendlerizedLog.e("Failed to run query", e);
+            return null;
+        } finally {
+            handler.close();
+            SqlHandler.sReplaceLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Post a result to the callback on the main thread.
+     */
+    private <T> void deliver(final Callback<T> callback, final T result) {
+        if (callback == null) {
+            return;
+        }
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onResult(result);
+            }
+        });
+    }
+
+    /**
+     * Wait for a write to finish, its failure is reported by the write itself.
+     */
+    private static void awaitWrite(Future<?> write) {
+        if (write == null) {
+            return;
+        }
+        try {
+            write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            WendlerizedLog.e("Write before read failed", e);
+        }
+    }
+
+    /**
+     * Creates named background priority threads for the database work.
+     */
+    private static class DbThreadFactory implements ThreadFactory {
+
+        private final String mName;
+        private int mCount;
+
+        /**
+         * Constructor.
+         */
+        DbThreadFactory(String name) {
+            mName = name;
+        }
+
+        /**
+         * Create a new thread.
+         */
+        @Override
+        public synchronized Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "db-" + mName + "-" + ++mCount);
+        }
+    }
+}
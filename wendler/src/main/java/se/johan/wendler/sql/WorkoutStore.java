@@ -0,0 +1,132 @@
+package se.johan.wendler.sql;
+
+import android.content.Context;
+import android.os.Parcel;
+import android.util.LruCache;
+
+import java.util.Locale;
+
+import se.johan.wendler.model.Workout;
+
+/**
+ * The full workouts opened lately, shared by the lists and the workout screen so only an id has
+ * to be handed between them. A stored workout is found by its id, one which has not been
+ * stored yet by its week and name. Workouts missing from the cache are read from the database.
+ * Every write to the database which changes workouts drops the cached ones.
+ * <p/>
+ * Only workouts as read from the database are cached, and every caller gets its own copy, so
+ * the changes made to a workout on the workout screen stay out of the cache until stored.
+ */
+public class WorkoutStore {
+
+    private static final int MAX_WORKOUTS = 16;
+
+    private static WorkoutStore sInstance;
+
+    private final LruCache<String, Workout> mCache = new LruCache<>(MAX_WORKOUTS);
+
+    // Bumped by every eviction, so a load racing with a write doesn't cache what it read
+    private int mGeneration;
+
+    /**
+     * Private constructor.
+     */
+    private WorkoutStore() {
+    }
+
+    /**
+     * Return an instance of the WorkoutStore.
+     */
+    public static synchronized WorkoutStore getInstance() {
+        if (sInstance == null) {
+            sInstance = new WorkoutStore();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return a workout from the cache, or read it with the handler on the calling thread.
+     * Returns null if it is gone.
+     */
+    public Workout get(SqlHandler handler, int workoutId, int week, String name) {
+        String key = getKey(workoutId, week, name);
+        Workout workout = mCache.get(key);
+        if (workout != null) {
+            return copy(workout);
+        }
+
+        int generation = getGeneration();
+        workout = handler.getWorkout(workoutId, week, name);
+        if (workout != null) {
+            synchronized (this) {
+                if (generation == mGeneration) {
+                    mCache.put(key, workout);
+                }
+            }
+            return copy(workout);
+        }
+        return null;
+    }
+
+    /**
+     * Deliver a workout on the main thread, right away if it is cached and otherwise after
+     * reading it from the database. The callback gets null if it is gone.
+     */
+    public void load(Context context,
+                     final int workoutId,
+                     final int week,
+                     final String name,
+                     WorkoutRepository.Callback<Workout> callback) {
+        Workout workout = mCache.get(getKey(workoutId, week, name));
+        if (workout != null) {
+            callback.onResult(copy(workout));
+            return;
+        }
+        WorkoutRepository.getInstance(context).read(
+                new WorkoutRepository.Query<Workout>() {
+                    @Override
+                    public Workout run(SqlHandler handler) {
+                        return get(handler, workoutId, week, name);
+                    }
+                }, callback);
+    }
+
+    /**
+     * Drop every workout.
+     */
+    public synchronized void evictAll() {
+        mGeneration++;
+        mCache.evictAll();
+    }
+
+    /**
+     * Return the current generation.
+     */
+    private synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Return a deep copy of a workout, made by writing it to a parcel and reading it back.
+     */
+    private static Workout copy(Workout workout) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            workout.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return Workout.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Return the cache key of a workout.
+     */
+    private static String getKey(int workoutId, int week, String name) {
+        if (workoutId != -1) {
+            return String.valueOf(workoutId);
+        }
+        return String.format(Locale.ROOT, "%d:%s", week, name);
+    }
+}
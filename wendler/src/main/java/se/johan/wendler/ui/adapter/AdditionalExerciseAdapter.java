@@ -180,6 +180,7 @@ public class AdditionalExerciseAdapter extends BaseAdapter {
                     return;
                 }
                 exercise.setProgress(0, exercise.getProgress(0) + 1);
+                mHandler.onProgressChanged(position);
                 notifyDataSetChanged();
             }
         });
@@ -192,6 +193,7 @@ public class AdditionalExerciseAdapter extends BaseAdapter {
                 }
 
                 exercise.setProgress(0, exercise.getProgress(0) - 1);
+                mHandler.onProgressChanged(position);
                 notifyDataSetChanged();
             }
         });
@@ -218,6 +220,7 @@ public class AdditionalExerciseAdapter extends BaseAdapter {
                         return true;
                     case R.id.complete:
                         exercise.setProgress(0, exercise.getExerciseSet(0).getSetGoal());
+                        mHandler.onProgressChanged(position);
                         notifyDataSetChanged();
                         return true;
                 }
@@ -2,18 +2,16 @@ package se.johan.wendler.ui.adapter;
 
 import android.content.Context;
 import android.graphics.Paint;
-import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 import android.widget.ImageView;
+import android.widget.LinearLayout;
 import android.widget.TextView;
 
-import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 import se.johan.wendler.R;
 import se.johan.wendler.model.Action;
@@ -22,14 +20,14 @@ import se.johan.wendler.model.MainExercise;
 import se.johan.wendler.model.SetType;
 import se.johan.wendler.ui.view.TextDrawable;
 import se.johan.wendler.util.ColorGenerator;
-import se.johan.wendler.util.PreferenceUtil;
+import se.johan.wendler.util.PlateFormatter;
+import se.johan.wendler.util.WendlerSettings;
 
 /**
  * Adapter used in the list for displaying the main exercise during a workout.
  */
 public class MainExerciseAdapter extends BaseAdapter {
     private final MainExercise mMainExercise;
-    private final int mWeek;
     private final LayoutInflater mInflater;
     private final Context mContext;
     private final Action.ActionListener mActionListener;
@@ -40,10 +38,8 @@ public class MainExerciseAdapter extends BaseAdapter {
     public MainExerciseAdapter(
             Context context,
             MainExercise exercise,
-            int week,
             Action.ActionListener actionListener) {
         mMainExercise = exercise;
-        mWeek = week;
         mInflater = LayoutInflater.from(context);
         mContext = context;
         mActionListener = actionListener;
@@ -96,60 +92,28 @@ public class MainExerciseAdapter extends BaseAdapter {
             convertView = mInflater.inflate(R.layout.card_main_exercise, parent, false);
             holder = new ViewHolder();
             holder.title = (TextView) convertView.findViewById(R.id.title);
-            holder.setOne = (TextView) convertView.findViewById(R.id.set_one);
-            holder.setTwo = (TextView) convertView.findViewById(R.id.set_two);
-            holder.setThree = (TextView) convertView.findViewById(R.id.set_three);
-            holder.setOnePlates = (TextView) convertView.findViewById(R.id.set_one_plates);
-            holder.setTwoPlates = (TextView) convertView.findViewById(R.id.set_two_plates);
-            holder.setThreePlates = (TextView) convertView.findViewById(R.id.set_three_plates);
+            holder.sets = (LinearLayout) convertView.findViewById(R.id.sets);
             holder.repsToBeat = (TextView) convertView.findViewById(R.id.reps_to_beat);
             holder.imageView = (ImageView) convertView.findViewById(R.id.image_view);
-            String text = getSetTypeString(setType, true);
-            int color = ColorGenerator.DEFAULT.getColor(text);
-            holder.textDrawable = TextDrawable.builder().buildRound(text, color);
             convertView.setTag(holder);
         } else {
             holder = (ViewHolder) convertView.getTag();
         }
-        holder.imageView.setImageDrawable(holder.textDrawable);
-
-        // TODO MAKE sets dynamic
+        String text = getSetTypeString(setType, true);
+        int color = ColorGenerator.DEFAULT.getColor(text);
+        if (holder.textDrawable == null
+                || !text.equals(holder.drawableText) || color != holder.drawableColor) {
+            // A recycled card keeps its drawable while it shows the same kind of sets
+            holder.textDrawable = TextDrawable.builder().buildRound(text, color);
+            holder.drawableText = text;
+            holder.drawableColor = color;
+            holder.imageView.setImageDrawable(holder.textDrawable);
+        }
 
-        final ExerciseSet setOne = sets.get(0);
-        final ExerciseSet setTwo = sets.get(1);
-        final ExerciseSet setThree = sets.get(2);
         final int repsToBeat = getRepsToBeat();
+        boolean showPlates = WendlerSettings.get(mContext).showPlates();
 
-        String plusSet = setThree.getType().equals(SetType.PLUS_SET) && mWeek != 4
-                ? "+" : "";
-
-        holder.setOne.setText(
-                String.format(mContext.getString(R.string.exercise_set_one),
-                        String.valueOf(setOne.getWeight()),
-                        String.valueOf(setOne.getRepGoal())));
-
-        holder.setTwo.setText(
-                String.format(mContext.getString(R.string.exercise_set_two),
-                        String.valueOf(setTwo.getWeight()),
-                        String.valueOf(setTwo.getRepGoal())));
-
-        holder.setThree.setText(
-                String.format(mContext.getString(R.string.exercise_set_three),
-                        String.valueOf(setThree.getWeight()),
-                        String.valueOf(setThree.getRepGoal()) + plusSet));
-
-        if (PreferenceUtil.getBoolean(mContext, PreferenceUtil.KEY_SHOW_PLATE_RECOMMENDATIONS, true)) {
-            holder.setOnePlates.setVisibility(View.VISIBLE);
-            holder.setTwoPlates.setVisibility(View.VISIBLE);
-            holder.setThreePlates.setVisibility(View.VISIBLE);
-            holder.setOnePlates.setText(getPlateRecommendations(setOne.getWeight()));
-            holder.setTwoPlates.setText(getPlateRecommendations(setTwo.getWeight()));
-            holder.setThreePlates.setText(getPlateRecommendations(setThree.getWeight()));
-        } else {
-            holder.setOnePlates.setVisibility(View.GONE);
-            holder.setTwoPlates.setVisibility(View.GONE);
-            holder.setThreePlates.setVisibility(View.GONE);
-        }
+        bindSets(holder, sets, showPlates);
 
         if (shouldShowRepsToBeat) {
             holder.repsToBeat.setText(
@@ -160,10 +124,6 @@ public class MainExerciseAdapter extends BaseAdapter {
             holder.repsToBeat.setVisibility(View.GONE);
         }
 
-        setOnClick(holder.setOne, setOne);
-        setOnClick(holder.setTwo, setTwo);
-        setOnClick(holder.setThree, setThree);
-
         holder.title.setText(getSetTypeString(setType, false));
 
         if (allSetsComplete(sets)) {
@@ -176,13 +136,61 @@ public class MainExerciseAdapter extends BaseAdapter {
             holder.title.setCompoundDrawablesWithIntrinsicBounds(null, null, null, null);
         }
 
-        setPaint(holder.setOne, setOne);
-        setPaint(holder.setTwo, setTwo);
-        setPaint(holder.setThree, setThree);
-
         return convertView;
     }
 
+    /**
+     * Show every set of the group in a row of its own. A recycled card gets more rows when the
+     * group has more sets than it has rows, and hides the rows it doesn't need.
+     */
+    private void bindSets(ViewHolder holder, List<ExerciseSet> sets, boolean showPlates) {
+        while (holder.rows.size() < sets.size()) {
+            View view = mInflater.inflate(R.layout.row_main_exercise_set, holder.sets, false);
+            holder.sets.addView(view);
+            holder.rows.add(new SetRow(view));
+        }
+        for (int i = 0; i < holder.rows.size(); i++) {
+            bindSet(holder.rows.get(i), sets, i, showPlates);
+        }
+    }
+
+    /**
+     * Show a set of the group in a row of the card, hiding the row if the group has fewer sets.
+     */
+    private void bindSet(SetRow row, List<ExerciseSet> sets, int index, boolean showPlates) {
+        if (index >= sets.size()) {
+            row.view.setVisibility(View.GONE);
+            return;
+        }
+        row.view.setVisibility(View.VISIBLE);
+
+        TextView textView = row.text;
+        TextView platesView = row.plates;
+        ExerciseSet set = sets.get(index);
+        if (set.getType().equals(SetType.SUPPLEMENTAL)) {
+            textView.setText(String.format(mContext.getString(R.string.exercise_set_supplemental),
+                    String.valueOf(set.getSetGoal()),
+                    String.valueOf(set.getWeight()),
+                    String.valueOf(set.getRepGoal())));
+        } else {
+            textView.setText(String.format(mContext.getString(R.string.exercise_set),
+                    index + 1,
+                    String.valueOf(set.getWeight()),
+                    String.valueOf(set.getRepGoal())
+                            + (set.getType().equals(SetType.PLUS_SET) ? "+" : "")));
+        }
+
+        if (showPlates) {
+            platesView.setText(PlateFormatter.getPlates(mContext, set.getWeight()));
+            platesView.setVisibility(View.VISIBLE);
+        } else {
+            platesView.setVisibility(View.GONE);
+        }
+
+        setOnClick(textView, set);
+        setPaint(textView, set);
+    }
+
     /**
      * Returns true if the 'reps to beat' label should be shown
      */
@@ -220,11 +228,15 @@ public class MainExerciseAdapter extends BaseAdapter {
     }
 
     /**
-     * Toggles the completion of the set.
+     * Toggles the completion of the set. Completing the last set of a week with fixed reps is
+     * what finishes the main exercise.
      */
     private void toggleCompletion(TextView text, ExerciseSet set) {
         set.toggleCompletion();
         setPaint(text, set);
+        if (set == mMainExercise.getLastSet()) {
+            mActionListener.onActionTaken(Action.COMPLETE_LAST_SET);
+        }
     }
 
     /**
@@ -271,6 +283,10 @@ public class MainExerciseAdapter extends BaseAdapter {
                 return shortType
                         ? mContext.getString(R.string.set_type_warmup_short)
                         : mContext.getString(R.string.set_type_warmup);
+            case SUPPLEMENTAL:
+                return shortType
+                        ? mContext.getString(R.string.set_type_supplemental_short)
+                        : mContext.getString(R.string.set_type_supplemental);
             case PLUS_SET:
             case REGULAR:
             default:
@@ -280,50 +296,35 @@ public class MainExerciseAdapter extends BaseAdapter {
         }
     }
 
-    /**
-     * Returns the plate break down.
-     */
-    private String getPlateRecommendations(double weight) {
-        DecimalFormat plateFormat = new DecimalFormat("0.#");
-        double[] plates = {45, 25, 10, 5, 2.5, 1.25};
-        double side = (weight-45)/2;
-        List<List<Double>> recommendation = new ArrayList<>();
-        List<Double> lastList = null;
-        for (double p : plates){
-            while (side >= p) {
-                if (lastList == null || lastList.get(0) != p) {
-                    lastList = new ArrayList<>();
-                    recommendation.add(lastList);
-                }
-                lastList.add(p);
-                side -= p;
-            }
-        }
-
-        List<String> plateStrings = new ArrayList<>();
-        for(List<Double> list : recommendation) {
-            plateStrings.add(String.format(Locale.US, "%1$dx%2$s", list.size(), plateFormat.format(list.get(0))));
-        }
-        if (plateStrings.size() == 0) {
-            plateStrings.add(mContext.getString(R.string.empty_bar));
-        }
-
-        return mContext.getResources().getString(R.string.plates_label) + ": " + TextUtils.join(", ", plateStrings) + "";
-    }
-
     /**
      * ViewHolder to increase performance.
      */
     private static class ViewHolder {
         public TextView title;
-        public TextView setOne;
-        public TextView setTwo;
-        public TextView setThree;
-        public TextView setOnePlates;
-        public TextView setTwoPlates;
-        public TextView setThreePlates;
+        public LinearLayout sets;
+        public final List<SetRow> rows = new ArrayList<>();
         public ImageView imageView;
         public TextDrawable textDrawable;
+        public String drawableText;
+        public int drawableColor;
         public TextView repsToBeat;
     }
+
+    /**
+     * The views of a set in the card.
+     */
+    private static class SetRow {
+        public final View view;
+        public final TextView text;
+        public final TextView plates;
+
+        /**
+         * Find the views of a set row.
+         */
+        public SetRow(View view) {
+            this.view = view;
+            text = (TextView) view.findViewById(R.id.set);
+            plates = (TextView) view.findViewById(R.id.set_plates);
+        }
+    }
 }
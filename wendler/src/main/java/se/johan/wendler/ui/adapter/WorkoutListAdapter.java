@@ -3,11 +3,9 @@ package se.johan.wendler.ui.adapter;
 import android.annotation.TargetApi;
 import android.app.Activity;
 import android.content.Context;
-import android.content.Intent;
 import android.graphics.Paint;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
-import android.text.format.Time;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
 import android.view.View;
@@ -18,23 +16,20 @@ import android.widget.ImageView;
 import android.widget.PopupMenu;
 import android.widget.TextView;
 
-import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.TimeZone;
 
 import se.johan.wendler.R;
-import se.johan.wendler.model.MainExercise;
-import se.johan.wendler.model.Workout;
-import se.johan.wendler.sql.SqlHandler;
+import se.johan.wendler.core.EpochDay;
+import se.johan.wendler.model.WorkoutSummary;
 import se.johan.wendler.activity.MainActivity;
 import se.johan.wendler.activity.WorkoutActivity;
 import se.johan.wendler.ui.view.TextDrawable;
 import se.johan.wendler.util.CardsOptionHandler;
 import se.johan.wendler.util.ColorGenerator;
 import se.johan.wendler.util.Utils;
-import se.johan.wendler.util.WendlerizedLog;
-import se.johan.wendler.util.WorkoutHolder;
 
 /**
  * Adapter for the workouts.
@@ -43,11 +38,16 @@ public class WorkoutListAdapter extends BaseAdapter {
 
     private static final SimpleDateFormat FORMAT = new SimpleDateFormat("d LLLL yyyy");
 
+    static {
+        // Workout dates are epoch days, which start at midnight UTC
+        FORMAT.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
     public static final int TYPE_WORKOUTS = 0;
     public static final int TYPE_OLD_WORKOUTS = 1;
 
     private final LayoutInflater mInflater;
-    private final ArrayList<Workout> mListOfWorkouts;
+    private final ArrayList<WorkoutSummary> mListOfWorkouts;
     private final Context mContext;
     private int mType;
     private CardsOptionHandler mHandler;
@@ -57,7 +57,7 @@ public class WorkoutListAdapter extends BaseAdapter {
      */
     public WorkoutListAdapter(
             Context context,
-            ArrayList<Workout> listOfWorkouts,
+            ArrayList<WorkoutSummary> listOfWorkouts,
             int type,
             CardsOptionHandler handler) {
         mListOfWorkouts = listOfWorkouts;
@@ -98,7 +98,7 @@ public class WorkoutListAdapter extends BaseAdapter {
     public View getView(final int position, View convertView, ViewGroup parent) {
 
         ViewHolder holder;
-        Workout workout = mListOfWorkouts.get(position);
+        WorkoutSummary workout = mListOfWorkouts.get(position);
         if (convertView == null) {
             convertView = mInflater.inflate(getResource(), parent, false);
             holder = new ViewHolder();
@@ -116,10 +116,6 @@ public class WorkoutListAdapter extends BaseAdapter {
 
         setCardClickListener(position, convertView);
 
-        if (workout.getMainExercise() == null) {
-            workout.setMainExercise(getMainExercise(workout));
-        }
-
         holder.exercise.setText(workout.getDisplayName());
 
         setWeekCycleText(holder, workout);
@@ -146,13 +142,13 @@ public class WorkoutListAdapter extends BaseAdapter {
     /**
      * Display the date label if needed.
      */
-    private void setWorkoutDate(ViewHolder holder, Workout workout) {
+    private void setWorkoutDate(ViewHolder holder, WorkoutSummary workout) {
         if (mType != TYPE_OLD_WORKOUTS) {
             return;
         }
 
-        Time time = workout.getWorkoutTime();
-        holder.date.setText(FORMAT.format(new Date(time.normalize(false))));
+        holder.date.setText(FORMAT.format(
+                new Date(EpochDay.toMillis(workout.getWorkoutDate()))));
         holder.date.setVisibility(View.VISIBLE);
     }
 
@@ -201,7 +197,7 @@ public class WorkoutListAdapter extends BaseAdapter {
     /**
      * Sets the completion status of the view.
      */
-    private void setCompletionStatus(ViewHolder holder, Workout workout) {
+    private void setCompletionStatus(ViewHolder holder, WorkoutSummary workout) {
         if (workout.isComplete()) {
             if (holder.imageView != null) {
                 int imageResource = workout.isWon()
@@ -242,18 +238,18 @@ public class WorkoutListAdapter extends BaseAdapter {
     /**
      * Set the text of the goal label.
      */
-    private void setGoalText(ViewHolder holder, Workout workout) {
+    private void setGoalText(ViewHolder holder, WorkoutSummary workout) {
         String text;
 
         if (mType == TYPE_WORKOUTS && !workout.isComplete()) {
             text = mContext.getString(
                     R.string.main_exercise_goal,
-                    workout.getMainExercise().getGoal(),
-                    workout.getMainExercise().getLastSetWeight());
+                    workout.getGoal(),
+                    workout.getLastSetWeight());
         } else {
-            int reps = workout.getMainExercise().getLastSetProgress();
+            int reps = workout.getLastSetProgress();
             reps = reps == -1 ? 0 : reps;
-            double lastSetWeight = workout.getMainExercise().getLastSetWeight();
+            double lastSetWeight = workout.getLastSetWeight();
 
             String quantity = mContext
                     .getResources()
@@ -271,7 +267,7 @@ public class WorkoutListAdapter extends BaseAdapter {
     /**
      * Set the cycle text and possibly week as well.
      */
-    private void setWeekCycleText(ViewHolder holder, Workout workout) {
+    private void setWeekCycleText(ViewHolder holder, WorkoutSummary workout) {
 
         String text = "";
         int cycle = workout.getCycleDisplayName() == 0
@@ -297,50 +293,26 @@ public class WorkoutListAdapter extends BaseAdapter {
         convertView.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                SqlHandler handler = new SqlHandler(mContext);
-                try {
-                    handler.open();
-
-                    Workout workout = mListOfWorkouts.get(position);
-
-                    // Not initialized so do it!
-                    if (workout.getMainExercise() == null) {
-                        workout.setMainExercise(handler.getMainExerciseForWorkout(workout));
-                    }
-
-                    if (workout.getAdditionalExercises() == null
-                            || workout.getAdditionalExercises().isEmpty()) {
-                        workout.setAdditionalExercises(handler.getAdditionalExercisesForWorkout(workout));
-                    }
-
-                    Intent intent = new Intent(mContext, WorkoutActivity.class);
-                    WorkoutHolder.getInstance().putWorkout(getWorkoutItem(workout));
-                    ((Activity) mContext)
-                            .startActivityForResult(intent, MainActivity.REQUEST_WORKOUT_RESULT);
-                } catch (SQLException e) {
-                    WendlerizedLog.e("Failed to get main exercise for workout", e);
-                } finally {
-                    handler.close();
-                }
+                openWorkout(position);
             }
         });
     }
 
-    private WorkoutHolder.WorkoutItem getWorkoutItem(Workout workout) {
-        return new WorkoutHolder.WorkoutItem(workout, 0, false, -1);
-    }
-
-    private MainExercise getMainExercise(Workout workout) {
-        SqlHandler handler = new SqlHandler(mContext);
-        try {
-            handler.open();
-            return handler.getMainExerciseForWorkout(workout);
-        } catch (SQLException e) {
-            WendlerizedLog.e("Failed to get main exercise for workout", e);
-        } finally {
-            handler.close();
+    /**
+     * Open the workout of a row, the activity loads the full workout itself.
+     */
+    public void openWorkout(int position) {
+        if (position >= mListOfWorkouts.size()) {
+            return;
         }
-        return null;
+        WorkoutSummary summary = mListOfWorkouts.get(position);
+        Activity activity = (Activity) mContext;
+        activity.startActivityForResult(
+                WorkoutActivity.createIntent(activity,
+                        summary.getWorkoutId(),
+                        summary.getWeek(),
+                        summary.getName()),
+                MainActivity.REQUEST_WORKOUT_RESULT);
     }
 
     /**
@@ -5,12 +5,8 @@ import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.app.FragmentStatePagerAdapter;
 
-import java.sql.SQLException;
-
 import se.johan.wendler.R;
 import se.johan.wendler.fragment.WorkoutNavigationListFragment;
-import se.johan.wendler.sql.SqlHandler;
-import se.johan.wendler.util.WendlerizedLog;
 
 /**
  * Adapter used for the workout navigation sFragments.
@@ -22,24 +18,18 @@ public class WorkoutNavigationAdapter extends FragmentStatePagerAdapter {
 
     private final Context mContext;
 
-    public WorkoutNavigationAdapter(FragmentManager fm, Context context) throws SQLException {
+    public WorkoutNavigationAdapter(FragmentManager fm, Context context) {
         super(fm);
         mContext = context;
-        initFragments(context);
+        initFragments();
     }
 
     /**
-     * Initialize our fragments.
+     * Initialize our fragments, they load their workouts themselves.
      */
-    private void initFragments(Context context) throws SQLException {
-        SqlHandler handler = new SqlHandler(context);
-        try {
-            handler.open();
-            for (int i = 0; i < sFragments.length; i++) {
-                sFragments[i] = WorkoutNavigationListFragment.newInstance(i + 1, handler);
-            }
-        } finally {
-            handler.close();
+    private void initFragments() {
+        for (int i = 0; i < sFragments.length; i++) {
+            sFragments[i] = WorkoutNavigationListFragment.newInstance(i + 1);
         }
     }
 
@@ -89,11 +79,7 @@ public class WorkoutNavigationAdapter extends FragmentStatePagerAdapter {
      * Recreate fragments.
      */
     public void recreateFragments() {
-        try {
-            initFragments(mContext);
-        } catch (SQLException e) {
-            WendlerizedLog.e("Failed to mark children as dirty", e);
-        }
+        initFragments();
         notifyDataSetChanged();
     }
 }
@@ -150,7 +150,8 @@ public class MainExerciseFooterView extends CardView {
         SqlHandler handler = new SqlHandler(getContext());
         try {
             handler.open();
-            return handler.getSetPercentages(week)[2];
+            int[] percentages = handler.getSetPercentages(week);
+            return percentages[percentages.length - 1];
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
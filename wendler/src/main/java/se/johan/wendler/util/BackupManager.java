@@ -6,11 +6,10 @@ import android.os.Environment;
 import android.preference.PreferenceManager;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
-import java.nio.channels.FileChannel;
+import java.sql.SQLException;
 
 import se.johan.wendler.sql.SqlHandler;
 
@@ -97,23 +96,22 @@ public class BackupManager {
      * Backup the database.
      */
     private boolean backupWorkouts(Context context, File folder) {
-        File file = context.getDatabasePath(SqlHandler.DATABASE_NAME);
-
         File newFile = new File(folder, Constants.WORKOUTS_BACKUP_NAME);
+        SqlHandler handler = new SqlHandler(context);
         try {
             if (!newFile.exists()) {
                 newFile.createNewFile();
             }
-            FileChannel src = new FileInputStream(file).getChannel();
-            FileChannel dst = new FileOutputStream(newFile).getChannel();
-            dst.transferFrom(src, 0, src.size());
-            src.close();
-            dst.close();
+            handler.open();
+            return handler.backupDbToFile(newFile);
         } catch (IOException e) {
             WendlerizedLog.e("Error backing up workouts", e);
             return false;
+        } catch (SQLException e) {
+            WendlerizedLog.e("Error backing up workouts", e);
+            return false;
+        } finally {
+            handler.close();
         }
-
-        return true;
     }
 }
@@ -14,4 +14,9 @@ public interface CardsOptionHandler {
      * Called when an exercise should be edited.
      */
     public void onEdit(int position);
+
+    /**
+     * Called when the progress of an exercise has changed.
+     */
+    public void onProgressChanged(int position);
 }
@@ -19,7 +19,6 @@ public class Constants {
     /**
      * Bundle constants
      */
-    public static final String BUNDLE_EXERCISE_ITEM = "bundle_exercise_item";
     public static final String SETTINGS_BACKUP_NAME = "settings";
     public static final String WORKOUTS_BACKUP_NAME = "workouts";
 }
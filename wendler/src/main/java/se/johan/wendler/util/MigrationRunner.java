@@ -0,0 +1,128 @@
+package se.johan.wendler.util;
+
+import android.content.Context;
+import android.os.AsyncTask;
+
+import java.sql.SQLException;
+
+import se.johan.wendler.sql.SqlHandler;
+
+/**
+ * Runs the conversion of the stored workouts to Training Max off the main thread. Only one
+ * conversion runs at a time, a recreated activity attaches to the running one.
+ */
+public class MigrationRunner {
+
+    private static final int BATCH_SIZE = 200;
+
+    private static MigrationRunner sInstance;
+
+    private MigrationListener mListener;
+    private boolean mIsRunning;
+    private int mDone;
+    private int mTotal;
+
+    /**
+     * Listener for the progress of a migration, called on the main thread.
+     */
+    public interface MigrationListener {
+
+        /**
+         * Called when a batch of workouts is done.
+         */
+        public void onMigrationProgress(int done, int total);
+
+        /**
+         * Called when the migration is done or failed.
+         */
+        public void onMigrationFinished(boolean success);
+    }
+
+    /**
+     * Private constructor.
+     */
+    private MigrationRunner() {
+    }
+
+    /**
+     * Return an instance of the MigrationRunner.
+     */
+    public static MigrationRunner getInstance() {
+        if (sInstance == null) {
+            sInstance = new MigrationRunner();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return if the stored workouts still need to be converted to Training Max.
+     */
+    public static boolean isTrainingMaxUpdateNeeded(Context context) {
+        return !PreferenceUtil.getBoolean(context, PreferenceUtil.KEY_UPDATE_TO_TM);
+    }
+
+    /**
+     * Set the listener to report to, null to stop reporting.
+     */
+    public void setListener(MigrationListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Convert the stored workouts to Training Max, or attach to the conversion already running.
+     */
+    public void runTrainingMaxUpdate(Context context, MigrationListener listener) {
+        mListener = listener;
+        if (mIsRunning) {
+            listener.onMigrationProgress(mDone, mTotal);
+            return;
+        }
+        mIsRunning = true;
+        mDone = 0;
+        mTotal = 0;
+
+        new AsyncTask<Context, Integer, Boolean>() {
+
+            @Override
+            protected void onProgressUpdate(Integer... values) {
+                super.onProgressUpdate(values);
+                mDone = values[0];
+                mTotal = values[1];
+                if (mListener != null) {
+                    mListener.onMigrationProgress(mDone, mTotal);
+                }
+            }
+
+            @Override
+            protected void onPostExecute(Boolean success) {
+                super.onPostExecute(success);
+                mIsRunning = false;
+                if (mListener != null) {
+                    mListener.onMigrationFinished(success);
+                }
+            }
+
+            @Override
+            protected Boolean doInBackground(Context... params) {
+                SqlHandler handler = new SqlHandler(params[0]);
+                try {
+                    handler.open();
+                    int total = handler.countOldWorkoutsToUpdate();
+                    int left;
+                    do {
+                        left = handler.updateOldWorkouts(BATCH_SIZE);
+                        publishProgress(total - left, total);
+                    } while (left > 0);
+                    PreferenceUtil.putBoolean(
+                            params[0], PreferenceUtil.KEY_UPDATE_TO_TM, true);
+                    return true;
+                } catch (SQLException e) {
+                    WendlerizedLog.e("Failed to update to TM", e);
+                    return false;
+                } finally {
+                    handler.close();
+                }
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, context.getApplicationContext());
+    }
+}
@@ -0,0 +1,80 @@
+package se.johan.wendler.util;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import se.johan.wendler.R;
+import se.johan.wendler.core.PlateInventory;
+import se.johan.wendler.core.PlateLoading;
+import se.johan.wendler.core.PlateTable;
+
+/**
+ * Returns the plates to load for a weight as shown on a set. The loading of every weight on
+ * the rounding grid is worked out once per inventory and the text is kept once formatted.
+ */
+public class PlateFormatter {
+
+    private static PlateTable sTable;
+    private static PlateInventory sInventory;
+    private static float sRoundTo;
+    private static String[] sTexts;
+
+    /**
+     * Private constructor.
+     */
+    private PlateFormatter() {
+    }
+
+    /**
+     * Return the plates to load for a weight.
+     */
+    public static synchronized String getPlates(Context context, double weight) {
+        WendlerSettings settings = WendlerSettings.get(context);
+        if (sTable == null
+                || !settings.getPlateInventory().equals(sInventory)
+                || settings.getRoundTo() != sRoundTo) {
+            sInventory = settings.getPlateInventory();
+            sRoundTo = settings.getRoundTo();
+            sTable = new PlateTable(sInventory, sRoundTo);
+            sTexts = new String[sTable.size()];
+        }
+
+        int index = sTable.indexOf(weight);
+        if (index == -1) {
+            return format(context, weight, sTable.get(weight));
+        }
+        if (sTexts[index] == null) {
+            sTexts[index] = format(context, weight, sTable.get(index));
+        }
+        return sTexts[index];
+    }
+
+    /**
+     * Format a loading, with the weight it adds up to if it is not the weight asked for.
+     */
+    private static String format(Context context, double weight, PlateLoading loading) {
+        DecimalFormat plateFormat = new DecimalFormat("0.##");
+
+        List<String> plateStrings = new ArrayList<>();
+        for (int i = 0; i < loading.size(); i++) {
+            if (loading.getCount(i) > 0) {
+                plateStrings.add(String.format(Locale.US, "%1$dx%2$s",
+                        loading.getCount(i), plateFormat.format(loading.getPlate(i))));
+            }
+        }
+        if (loading.isEmpty()) {
+            plateStrings.add(context.getString(R.string.empty_bar));
+        }
+
+        String label = Math.abs(loading.getWeight() - weight) < 0.001
+                ? context.getString(R.string.plates_label)
+                : context.getString(R.string.plates_closest_label,
+                plateFormat.format(loading.getWeight()));
+        return label + ": " + TextUtils.join(", ", plateStrings);
+    }
+}
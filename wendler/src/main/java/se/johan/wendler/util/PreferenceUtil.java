@@ -10,6 +10,7 @@ public class PreferenceUtil {
 
     public static final String KEY_HAS_SEEN_FIRST_TIME_DIALOG = "key_has_seen_first_time_dialog";
     public static final String KEY_SHOW_WARM_UP = "key_show_warm_up";
+    public static final String KEY_PROGRAM = "key_program";
     public static final String KEY_WARM_UP_SETS = "key_warm_up_sets";
     public static final String KEY_WARM_UP_REPS = "key_warm_up_reps";
     public static final String KEY_ROUND_TO = "key_round";
@@ -19,6 +20,8 @@ public class PreferenceUtil {
     public static final String KEY_USE_VOLUME_BUTTONS = "key_use_volume_button";
     public static final String KEY_KEEP_SCREEN_ON_STOPWATCH = "key_keep_screen_on_stopwatch";
     public static final String KEY_SHOW_PLATE_RECOMMENDATIONS = "key_show_plate_recommendations";
+    public static final String KEY_BAR_WEIGHT = "key_bar_weight";
+    public static final String KEY_PLATES = "key_plates";
     public static final String KEY_HAS_SEEN_SHOWCASE_WORKOUTS = "key_has_seen_showcase_workouts";
     public static final String KEY_HAS_SEEN_SHOWCASE_FINISH_WORKOUTS =
             "key_has_seen_showcase_workout";
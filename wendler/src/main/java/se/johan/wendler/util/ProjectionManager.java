@@ -0,0 +1,165 @@
+package se.johan.wendler.util;
+
+import android.content.Context;
+import android.os.AsyncTask;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import se.johan.wendler.core.DeloadType;
+import se.johan.wendler.core.ProgramConfig;
+import se.johan.wendler.core.ProjectionResult;
+import se.johan.wendler.core.ProjectionScenario;
+import se.johan.wendler.core.TrainingProjection;
+import se.johan.wendler.sql.SqlHandler;
+
+/**
+ * Helper class for projecting the training maxes of the coming cycles, from the stored stats.
+ * The lifts are in the order of {@link Constants#EXERCISES}.
+ */
+public class ProjectionManager {
+
+    private static final int WEEKS_IN_CYCLE = 4;
+
+    private static ProjectionManager sInstance;
+
+    private final ExecutorService mExecutor =
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Private constructor.
+     */
+    private ProjectionManager() {
+    }
+
+    /**
+     * Return an instance of the ProjectionManager.
+     */
+    public static synchronized ProjectionManager getInstance() {
+        if (sInstance == null) {
+            sInstance = new ProjectionManager();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Project the current settings and stats. The handler gets the {@link ProjectionResult} and
+     * the list of scenarios, or null for both if the stats could not be read.
+     */
+    public void requestProjection(Context context, int cycles, IAsyncHandler handler) {
+        requestSweep(context, cycles, new double[]{1}, null, null, handler);
+    }
+
+    /**
+     * Project every combination of increments scaled by a factor, training max percentages and
+     * deload types. Null percentages or deload types mean the stored ones. The handler gets the
+     * {@link ProjectionResult} and the list of scenarios, or null for both if the stats could
+     * not be read.
+     */
+    public void requestSweep(Context context,
+                             final int cycles,
+                             final double[] incrementScales,
+                             final int[] trainingPercentages,
+                             final DeloadType[] deloadTypes,
+                             final IAsyncHandler handler) {
+        new AsyncTask<Context, Void, Object[]>() {
+
+            @Override
+            protected void onPostExecute(Object[] result) {
+                super.onPostExecute(result);
+                if (result == null) {
+                    handler.onResult(null, null);
+                } else {
+                    handler.onResult(result[0], result[1]);
+                }
+            }
+
+            @Override
+            protected Object[] doInBackground(Context... params) {
+                return sweep(params[0], cycles, incrementScales, trainingPercentages,
+                        deloadTypes);
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, context);
+    }
+
+    /**
+     * Read the stats and run the sweep, called off the main thread.
+     */
+    private Object[] sweep(Context context,
+                           int cycles,
+                           double[] incrementScales,
+                           int[] trainingPercentages,
+                           DeloadType[] deloadTypes) {
+        int lifts = Constants.EXERCISES.length;
+        double[] oneRms = new double[lifts];
+        double[] increments = new double[lifts];
+        int[][] weekPercentages = new int[WEEKS_IN_CYCLE][];
+        int[] storedPercentages = new int[lifts];
+
+        SqlHandler sqlHandler = new SqlHandler(context);
+        try {
+            sqlHandler.open();
+            for (int lift = 0; lift < lifts; lift++) {
+                String name = Constants.EXERCISES[lift];
+                storedPercentages[lift] = sqlHandler.getWorkoutPercentage(name);
+                oneRms[lift] =
+                        sqlHandler.getOneRmForExercise(name) * 100 / storedPercentages[lift];
+                increments[lift] = sqlHandler.getIncrement(name);
+            }
+            for (int week = 0; week < WEEKS_IN_CYCLE; week++) {
+                weekPercentages[week] = sqlHandler.getSetPercentages(week + 1);
+            }
+        } catch (SQLException e) {
+            WendlerizedLog.e("Error reading stats for projection", e);
+            return null;
+        } finally {
+            sqlHandler.close();
+        }
+
+        ProgramConfig config = WendlerSettings.get(context).getProgramConfig();
+        if (deloadTypes == null) {
+            deloadTypes = new DeloadType[]{config.getDeloadType()};
+        }
+
+        // Without a percentage to try every lift keeps the one its training max was made with
+        int[][] percentages;
+        if (trainingPercentages == null) {
+            percentages = new int[][]{storedPercentages};
+        } else {
+            percentages = new int[trainingPercentages.length][lifts];
+            for (int i = 0; i < trainingPercentages.length; i++) {
+                Arrays.fill(percentages[i], trainingPercentages[i]);
+            }
+        }
+
+        List<ProjectionScenario> scenarios = new ArrayList<>();
+        for (DeloadType deloadType : deloadTypes) {
+            ProgramConfig scenarioConfig = config.withDeloadType(deloadType);
+            for (int[] liftPercentages : percentages) {
+                for (double scale : incrementScales) {
+                    double[] scaled = new double[lifts];
+                    for (int lift = 0; lift < lifts; lift++) {
+                        scaled[lift] = increments[lift] * scale;
+                    }
+                    scenarios.add(
+                            new ProjectionScenario(scenarioConfig, liftPercentages, scaled));
+                }
+            }
+        }
+
+        // The lifts are assumed to keep getting stronger at the stored increments.
+        TrainingProjection projection =
+                new TrainingProjection(oneRms, increments, weekPercentages, cycles);
+        try {
+            ProjectionResult result = projection.project(scenarios, mExecutor);
+            return new Object[]{result, scenarios};
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
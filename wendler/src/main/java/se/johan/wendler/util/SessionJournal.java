@@ -0,0 +1,562 @@
+package se.johan.wendler.util;
+
+import android.content.Context;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import se.johan.wendler.model.Workout;
+
+/**
+ * Append only journal of the changes made to a workout in progress, so they survive the process
+ * being killed before the workout is stored. Every record holds the new value of one thing, the
+ * reps of the main exercise, the progress of an extra exercise, the stopwatch or the notes, so
+ * replaying a journal twice does no harm.
+ * <p/>
+ * Records made close together are written at once with a single sync, and only the last value
+ * of each thing is written. A record is framed by its length and a checksum, a record torn by a
+ * crash ends the replay and is cut off. The journal is deleted when the workout is stored.
+ */
+public class SessionJournal {
+
+    private static final String DIRECTORY = "sessions";
+
+    private static final long FLUSH_DELAY_MS = 250;
+    private static final int COMPACT_SIZE = 32 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte TYPE_HEADER = 0;
+    private static final byte TYPE_MAIN_PROGRESS = 1;
+    private static final byte TYPE_EXTRA_PROGRESS = 2;
+    private static final byte TYPE_STOPWATCH = 3;
+    private static final byte TYPE_NOTES = 4;
+
+    private static final ScheduledExecutorService sExecutor =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "session-journal");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    // A recreated activity gets the journal with the records not written yet
+    private static final Map<String, SessionJournal> sJournals =
+            new HashMap<String, SessionJournal>();
+
+    private final File mFile;
+    private final String mKey;
+
+    // The last record of every thing, replayed from memory and written when compacting
+    private final Map<String, byte[]> mLatest = new LinkedHashMap<String, byte[]>();
+    private final Map<String, byte[]> mPending = new LinkedHashMap<String, byte[]>();
+
+    private RandomAccessFile mOutput;
+    private long mSize;
+    private boolean mFlushScheduled;
+    private boolean mIsDeleted;
+
+    /**
+     * Receives the values of a journal when it is replayed.
+     */
+    public interface Replayer {
+
+        /**
+         * Called with the reps of the last set of the main exercise, -1 if cleared.
+         */
+        public void onMainProgress(int reps);
+
+        /**
+         * Called with the progress of an extra exercise.
+         */
+        public void onExtraProgress(int exerciseId, int progress);
+
+        /**
+         * Called with the state of the stopwatch, the elapsed time of a running one includes
+         * the time since it was recorded.
+         */
+        public void onStopwatch(long elapsed, boolean isRunning);
+
+        /**
+         * Called with the notes of the workout.
+         */
+        public void onNotes(String notes);
+    }
+
+    /**
+     * Constructor.
+     */
+    private SessionJournal(File file, String key) {
+        mFile = file;
+        mKey = key;
+    }
+
+    /**
+     * Return the journal of a workout, found by its id or by its cycle, week and name if it has
+     * not been stored yet. The header names the cycle too, so a journal left by the same week
+     * of an earlier cycle is never replayed.
+     */
+    public static SessionJournal open(Context context, Workout workout) {
+        int workoutId = workout.getWorkoutId();
+        String key = String.format(Locale.ROOT, "%d:%d:%d:%d:%s", workoutId, workout.getCycle(),
+                workout.getCycleDisplayName(), workout.getWeek(), workout.getName());
+        String fileName = workoutId != -1
+                ? String.format(Locale.ROOT, "workout-%d.journal", workoutId)
+                : String.format(Locale.ROOT, "cycle-%d-week-%d-%08x.journal",
+                workout.getCycle(), workout.getWeek(), workout.getName().hashCode());
+        File file = new File(new File(context.getFilesDir(), DIRECTORY), fileName);
+
+        synchronized (sJournals) {
+            SessionJournal journal = sJournals.get(file.getPath());
+            if (journal == null || !journal.mKey.equals(key)) {
+                journal = new SessionJournal(file, key);
+                journal.loadOnJournalThread();
+                sJournals.put(file.getPath(), journal);
+            }
+            return journal;
+        }
+    }
+
+    /**
+     * Replay the last value of everything recorded.
+     */
+    public void replay(Replayer replayer) {
+        List<byte[]> records;
+        synchronized (this) {
+            records = new ArrayList<byte[]>(mLatest.values());
+        }
+        try {
+            for (byte[] record : records) {
+                replay(record, replayer);
+            }
+        } catch (IOException e) {
+            WendlerizedLog.e("Failed to replay " + mFile.getName(), e);
+        }
+    }
+
+    /**
+     * Record the reps of the last set of the main exercise.
+     */
+    public void recordMainProgress(int reps) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(TYPE_MAIN_PROGRESS);
+            out.writeInt(reps);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        record("main", bytes.toByteArray());
+    }
+
+    /**
+     * Record the progress of an extra exercise.
+     */
+    public void recordExtraProgress(int exerciseId, int progress) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(TYPE_EXTRA_PROGRESS);
+            out.writeInt(exerciseId);
+            out.writeInt(progress);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        record("extra:" + exerciseId, bytes.toByteArray());
+    }
+
+    /**
+     * Record the state of the stopwatch.
+     */
+    public void recordStopwatch(long elapsed, boolean isRunning) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(TYPE_STOPWATCH);
+            out.writeLong(elapsed);
+            out.writeBoolean(isRunning);
+            out.writeLong(System.currentTimeMillis());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        record("stopwatch", bytes.toByteArray());
+    }
+
+    /**
+     * Record the notes of the workout.
+     */
+    public void recordNotes(String notes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(TYPE_NOTES);
+            out.writeBoolean(notes != null);
+            byte[] text = notes != null ? notes.getBytes(UTF_8) : new byte[0];
+            out.writeInt(text.length);
+            out.write(text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        record("notes", bytes.toByteArray());
+    }
+
+    /**
+     * Write the pending records right away, without waiting for more of them.
+     */
+    public void flush() {
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writePending();
+            }
+        });
+    }
+
+    /**
+     * Drop the journal once the workout has been stored in the database.
+     */
+    public void delete() {
+        synchronized (this) {
+            mIsDeleted = true;
+            mPending.clear();
+            mLatest.clear();
+        }
+        synchronized (sJournals) {
+            if (sJournals.get(mFile.getPath()) == this) {
+                sJournals.remove(mFile.getPath());
+            }
+        }
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                closeOutput();
+                if (mFile.exists() && !mFile.delete()) {
+                    WendlerizedLog.d("Failed to delete " + mFile.getName());
+                }
+            }
+        });
+    }
+
+    /**
+     * Keep a record and schedule writing it.
+     */
+    private synchronized void record(String slot, byte[] record) {
+        if (mIsDeleted) {
+            return;
+        }
+        mLatest.put(slot, record);
+        mPending.remove(slot);
+        mPending.put(slot, record);
+        if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            sExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    writePending();
+                }
+            }, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Append the pending records with a single write and sync, called on the journal thread.
+     */
+    private void writePending() {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        synchronized (this) {
+            mFlushScheduled = false;
+            if (mIsDeleted || mPending.isEmpty()) {
+                return;
+            }
+            for (byte[] record : mPending.values()) {
+                writeFrame(frames, record);
+            }
+            mPending.clear();
+        }
+
+        try {
+            if (mOutput == null) {
+                openOutput();
+            }
+            mOutput.write(frames.toByteArray());
+            mOutput.getChannel().force(false);
+            mSize += frames.size();
+            if (mSize > COMPACT_SIZE) {
+                compact();
+            }
+        } catch (IOException e) {
+            WendlerizedLog.e("Failed to write " + mFile.getName(), e);
+            closeOutput();
+        }
+    }
+
+    /**
+     * Open the file for appending, starting it with the header if it is new.
+     */
+    private void openOutput() throws IOException {
+        File directory = mFile.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Failed to create " + directory);
+        }
+        mOutput = new RandomAccessFile(mFile, "rw");
+        // Anything after the last whole record was torn by a crash
+        mOutput.setLength(mSize);
+        mOutput.seek(mSize);
+        if (mSize == 0) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            writeFrame(header, createHeader());
+            mOutput.write(header.toByteArray());
+            mSize = header.size();
+        }
+    }
+
+    /**
+     * Rewrite the file with only the last record of everything.
+     */
+    private void compact() throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        writeFrame(frames, createHeader());
+        synchronized (this) {
+            for (byte[] record : mLatest.values()) {
+                writeFrame(frames, record);
+            }
+        }
+
+        File compacted = new File(mFile.getPath() + ".tmp");
+        RandomAccessFile output = new RandomAccessFile(compacted, "rw");
+        try {
+            output.setLength(0);
+            output.write(frames.toByteArray());
+            output.getChannel().force(false);
+        } finally {
+            output.close();
+        }
+        closeOutput();
+        if (!compacted.renameTo(mFile)) {
+            throw new IOException("Failed to replace " + mFile.getName());
+        }
+        mSize = frames.size();
+    }
+
+    /**
+     * Close the file if it is open.
+     */
+    private void closeOutput() {
+        if (mOutput == null) {
+            return;
+        }
+        try {
+            mOutput.close();
+        } catch (IOException e) {
+            WendlerizedLog.e("Failed to close " + mFile.getName(), e);
+        }
+        mOutput = null;
+    }
+
+    /**
+     * Read the file after the writes and deletes already queued, waiting for it.
+     */
+    private void loadOnJournalThread() {
+        try {
+            sExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    load();
+                    return null;
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            WendlerizedLog.e("Interrupted while reading " + mFile.getName(), e);
+        } catch (ExecutionException e) {
+            WendlerizedLog.e("Failed to read " + mFile.getName(), e.getCause());
+        }
+    }
+
+    /**
+     * Read the whole records in the file, keeping the last one of everything.
+     */
+    private void load() {
+        if (!mFile.exists()) {
+            return;
+        }
+        byte[] data = new byte[(int) mFile.length()];
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(mFile));
+            try {
+                in.readFully(data);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            WendlerizedLog.e("Failed to read " + mFile.getName(), e);
+            return;
+        }
+
+        int offset = 0;
+        boolean isHeaderRead = false;
+        try {
+            while (offset + 8 <= data.length) {
+                int length = readInt(data, offset);
+                if (length <= 0 || length > data.length - offset - 8) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(data, offset + 4, length);
+                if ((int) crc.getValue() != readInt(data, offset + 4 + length)) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                System.arraycopy(data, offset + 4, record, 0, length);
+                if (!isHeaderRead) {
+                    if (!isHeaderOf(record)) {
+                        // A journal left by another workout or cycle, it is deleted below
+                        break;
+                    }
+                    isHeaderRead = true;
+                } else {
+                    mLatest.put(getSlot(record), record);
+                }
+                offset += length + 8;
+            }
+        } catch (IOException e) {
+            WendlerizedLog.e("Failed to parse " + mFile.getName(), e);
+        }
+
+        synchronized (this) {
+            mSize = isHeaderRead ? offset : 0;
+            if (!isHeaderRead) {
+                mLatest.clear();
+            }
+        }
+        if (!isHeaderRead && !mFile.delete()) {
+            WendlerizedLog.d("Failed to delete " + mFile.getName());
+        }
+    }
+
+    /**
+     * Return the header record naming the workout of the journal.
+     */
+    private byte[] createHeader() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(TYPE_HEADER);
+            out.writeUTF(mKey);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Return if a record is the header of this journal.
+     */
+    private boolean isHeaderOf(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        return in.readByte() == TYPE_HEADER && mKey.equals(in.readUTF());
+    }
+
+    /**
+     * Return the thing a record holds the value of.
+     */
+    private static String getSlot(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_MAIN_PROGRESS:
+                return "main";
+            case TYPE_EXTRA_PROGRESS:
+                return "extra:" + in.readInt();
+            case TYPE_STOPWATCH:
+                return "stopwatch";
+            case TYPE_NOTES:
+                return "notes";
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    /**
+     * Hand the value of a record to a replayer.
+     */
+    private static void replay(byte[] record, Replayer replayer) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        switch (in.readByte()) {
+            case TYPE_MAIN_PROGRESS:
+                replayer.onMainProgress(in.readInt());
+                break;
+            case TYPE_EXTRA_PROGRESS:
+                replayer.onExtraProgress(in.readInt(), in.readInt());
+                break;
+            case TYPE_STOPWATCH:
+                long elapsed = in.readLong();
+                boolean isRunning = in.readBoolean();
+                long recordedAt = in.readLong();
+                if (isRunning) {
+                    elapsed += Math.max(0, System.currentTimeMillis() - recordedAt);
+                }
+                replayer.onStopwatch(elapsed, isRunning);
+                break;
+            case TYPE_NOTES:
+                boolean hasNotes = in.readBoolean();
+                byte[] text = new byte[in.readInt()];
+                in.readFully(text);
+                replayer.onNotes(hasNotes ? new String(text, UTF_8) : null);
+                break;
+        }
+    }
+
+    /**
+     * Write a record framed by its length and checksum.
+     */
+    private static void writeFrame(ByteArrayOutputStream out, byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        writeInt(out, record.length);
+        out.write(record, 0, record.length);
+        writeInt(out, (int) crc.getValue());
+    }
+
+    /**
+     * Write a big endian int.
+     */
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * Read a big endian int.
+     */
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xff) << 24
+                | (data[offset + 1] & 0xff) << 16
+                | (data[offset + 2] & 0xff) << 8
+                | (data[offset + 3] & 0xff);
+    }
+}
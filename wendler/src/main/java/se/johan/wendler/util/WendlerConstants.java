@@ -29,4 +29,7 @@ public class WendlerConstants {
     public static final int[] FRESH_PERCENTAGES_W_4 = new int[] {40, 50, 60};
 
     public static final float DEFAULT_ROUND_TO = 2.5f;
+
+    public static final String DEFAULT_BAR_WEIGHT = "45";
+    public static final String DEFAULT_PLATES = "10x45,2x25,2x10,2x5,2x2.5,2x1.25";
 }
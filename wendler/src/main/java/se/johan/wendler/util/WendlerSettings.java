@@ -0,0 +1,320 @@
+package se.johan.wendler.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import se.johan.wendler.R;
+import se.johan.wendler.core.DeloadType;
+import se.johan.wendler.core.PlateInventory;
+import se.johan.wendler.core.ProgramConfig;
+import se.johan.wendler.core.ProgramTemplate;
+import se.johan.wendler.sql.SqlHandler;
+import se.johan.wendler.sql.WorkoutRepository;
+import se.johan.wendler.sql.WorkoutStore;
+
+/**
+ * Immutable snapshot of the settings used when calculating workouts, parsed once. A new
+ * snapshot is built whenever a preference changes.
+ */
+public class WendlerSettings {
+
+    // Index of the deload types in the deload_type_entry_values array
+    private static final int DELOAD_TYPE_INCREMENT = 0;
+    private static final int DELOAD_TYPE_PERCENTAGE = 1;
+    private static final int DELOAD_TYPE_CUSTOM_PERCENTAGE = 2;
+
+    /**
+     * The preferences read into a snapshot, the others are left to their own users.
+     */
+    private static final Set<String> KEYS = new HashSet<>(Arrays.asList(
+            PreferenceUtil.KEY_SHOW_WARM_UP,
+            PreferenceUtil.KEY_SHOW_PLATE_RECOMMENDATIONS,
+            PreferenceUtil.KEY_ROUND_TO_VALUE,
+            PreferenceUtil.KEY_BAR_WEIGHT,
+            PreferenceUtil.KEY_PLATES,
+            PreferenceUtil.KEY_DELOAD_TYPE,
+            PreferenceUtil.KEY_CUSTOM_DELOAD_TYPE_VALUE,
+            PreferenceUtil.KEY_WARM_UP_SETS,
+            PreferenceUtil.KEY_WARM_UP_REPS,
+            PreferenceUtil.KEY_DELOAD_REPS,
+            PreferenceUtil.KEY_AUTO_DELOAD,
+            PreferenceUtil.KEY_RESET_CYCLE_DELOAD,
+            PreferenceUtil.KEY_WEIGHT_TYPE_DELOAD,
+            PreferenceUtil.KEY_PROGRAM));
+
+    private static volatile WendlerSettings sInstance;
+    private static Context sContext;
+
+    /**
+     * Plans the current cycles again with the new settings.
+     */
+    private static final WorkoutRepository.Query<Void> REPLAN =
+            new WorkoutRepository.Query<Void>() {
+                @Override
+                public Void run(SqlHandler handler) {
+                    handler.replanCycles();
+                    return null;
+                }
+            };
+
+    /**
+     * Kept in a field since the preferences only hold a weak reference to their listeners.
+     */
+    private static final SharedPreferences.OnSharedPreferenceChangeListener sListener =
+            new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+                    if (!KEYS.contains(key)) {
+                        return;
+                    }
+                    WendlerSettings old = sInstance;
+                    WendlerSettings settings = new WendlerSettings(sContext, prefs);
+                    if (old != null && old.hasSameValues(settings)) {
+                        // Keep the old config, the set plans are cached for it
+                        return;
+                    }
+                    sInstance = settings;
+                    // Cached workouts were planned with the old settings
+                    WorkoutStore.getInstance().evictAll();
+                    if (old == null || old.mPlanKey != settings.mPlanKey) {
+                        WorkoutRepository.getInstance(sContext).write(REPLAN, null);
+                    }
+                }
+            };
+
+    private final boolean mShowWarmUp;
+    private final boolean mShowPlates;
+    private final float mRoundTo;
+    private final ProgramConfig mConfig;
+    private final PlateInventory mPlateInventory;
+    private final int mPlanKey;
+
+    /**
+     * Read and parse the settings.
+     */
+    private WendlerSettings(Context context, SharedPreferences prefs) {
+        mShowWarmUp = prefs.getBoolean(PreferenceUtil.KEY_SHOW_WARM_UP, true);
+        mShowPlates = prefs.getBoolean(PreferenceUtil.KEY_SHOW_PLATE_RECOMMENDATIONS, true);
+        mRoundTo = parseRoundTo(prefs);
+        mPlateInventory = parsePlateInventory(prefs);
+
+        String deloadType = prefs.getString(PreferenceUtil.KEY_DELOAD_TYPE,
+                context.getString(R.string.deload_type_default_value));
+        int deloadTypeIndex = Arrays.asList(context.getResources()
+                .getStringArray(R.array.deload_type_entry_values)).indexOf(deloadType);
+
+        int deloadPercentage = WendlerConstants.DEFAULT_DELOAD_PERCENTAGE;
+        if (deloadTypeIndex == DELOAD_TYPE_CUSTOM_PERCENTAGE) {
+            deloadPercentage = parseInts(prefs, PreferenceUtil.KEY_CUSTOM_DELOAD_TYPE_VALUE,
+                    String.valueOf(WendlerConstants.DEFAULT_DELOAD_PERCENTAGE))[0];
+        }
+
+        mConfig = new ProgramConfig(
+                mRoundTo,
+                parseInts(prefs, PreferenceUtil.KEY_WARM_UP_SETS,
+                        WendlerConstants.DEFAULT_WARMUP_PERCENTAGES),
+                parseInts(prefs, PreferenceUtil.KEY_WARM_UP_REPS,
+                        WendlerConstants.DEFAULT_WARMUP_REPS),
+                parseInts(prefs, PreferenceUtil.KEY_DELOAD_REPS,
+                        WendlerConstants.DEFAULT_DELOAD_REPS),
+                prefs.getBoolean(PreferenceUtil.KEY_AUTO_DELOAD, true),
+                prefs.getBoolean(PreferenceUtil.KEY_RESET_CYCLE_DELOAD, false),
+                prefs.getBoolean(PreferenceUtil.KEY_WEIGHT_TYPE_DELOAD, true),
+                toDeloadType(deloadTypeIndex),
+                deloadPercentage,
+                ProgramTemplate.get(prefs.getString(
+                        PreferenceUtil.KEY_PROGRAM, ProgramTemplate.FIVE_THREE_ONE)));
+
+        mPlanKey = Arrays.hashCode(new int[]{
+                mShowWarmUp ? 1 : 0,
+                Float.floatToIntBits(mRoundTo),
+                Arrays.hashCode(mConfig.getWarmUpPercentages()),
+                Arrays.hashCode(mConfig.getWarmUpReps()),
+                Arrays.hashCode(mConfig.getDeloadReps()),
+                mConfig.getTemplate().getId().hashCode()});
+
+        WendlerizedLog.i("Loaded settings, program " + mConfig.getTemplate().getId()
+                + ", round to " + mRoundTo + ", deload type " + mConfig.getDeloadType());
+    }
+
+    /**
+     * Return the current settings.
+     */
+    public static WendlerSettings get(Context context) {
+        WendlerSettings settings = sInstance;
+        if (settings == null) {
+            synchronized (WendlerSettings.class) {
+                settings = sInstance;
+                if (settings == null) {
+                    sContext = context.getApplicationContext();
+                    SharedPreferences prefs =
+                            PreferenceManager.getDefaultSharedPreferences(sContext);
+                    prefs.registerOnSharedPreferenceChangeListener(sListener);
+                    settings = new WendlerSettings(sContext, prefs);
+                    sInstance = settings;
+                }
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * Build a new snapshot on next use. Needed after clearing the preferences, which does not
+     * notify the listeners.
+     */
+    public static void invalidate() {
+        synchronized (WendlerSettings.class) {
+            if (sContext != null) {
+                PreferenceManager.getDefaultSharedPreferences(sContext)
+                        .unregisterOnSharedPreferenceChangeListener(sListener);
+            }
+            sInstance = null;
+        }
+    }
+
+    /**
+     * Return if warm up sets should be shown.
+     */
+    public boolean showWarmUp() {
+        return mShowWarmUp;
+    }
+
+    /**
+     * Return if the plates to load should be shown for the sets.
+     */
+    public boolean showPlates() {
+        return mShowPlates;
+    }
+
+    /**
+     * Return the bar and plates available.
+     */
+    public PlateInventory getPlateInventory() {
+        return mPlateInventory;
+    }
+
+    /**
+     * Return the value weights are rounded to.
+     */
+    public float getRoundTo() {
+        return mRoundTo;
+    }
+
+    /**
+     * Return the settings the program is calculated with.
+     */
+    public ProgramConfig getProgramConfig() {
+        return mConfig;
+    }
+
+    /**
+     * Return a key which changes with every setting the planned sets of a week depend on. It is
+     * stored with the plans, so it must be the same between runs.
+     */
+    public int getPlanKey() {
+        return mPlanKey;
+    }
+
+    /**
+     * Return if another snapshot holds the same settings.
+     */
+    private boolean hasSameValues(WendlerSettings other) {
+        return other.mShowWarmUp == mShowWarmUp
+                && other.mShowPlates == mShowPlates
+                && Float.compare(other.mRoundTo, mRoundTo) == 0
+                && other.mPlateInventory.equals(mPlateInventory)
+                && other.mConfig.equals(mConfig);
+    }
+
+    /**
+     * Map the index of the deload type preference value to a deload type.
+     */
+    private static DeloadType toDeloadType(int index) {
+        switch (index) {
+            case DELOAD_TYPE_INCREMENT:
+                return DeloadType.INCREMENT;
+            case DELOAD_TYPE_PERCENTAGE:
+            case DELOAD_TYPE_CUSTOM_PERCENTAGE:
+                return DeloadType.PERCENTAGE;
+            default:
+                return DeloadType.NONE;
+        }
+    }
+
+    /**
+     * Return the rounding value, the default if it is not set or invalid.
+     */
+    private static float parseRoundTo(SharedPreferences prefs) {
+        try {
+            float value = Float.parseFloat(prefs.getString(PreferenceUtil.KEY_ROUND_TO_VALUE,
+                    String.valueOf(WendlerConstants.DEFAULT_ROUND_TO)));
+            return value > 0 ? value : WendlerConstants.DEFAULT_ROUND_TO;
+        } catch (NumberFormatException e) {
+            WendlerizedLog.e("Invalid round to value", e);
+            return WendlerConstants.DEFAULT_ROUND_TO;
+        }
+    }
+
+    /**
+     * Return the plate inventory, the default if the stored one is invalid.
+     */
+    private static PlateInventory parsePlateInventory(SharedPreferences prefs) {
+        try {
+            return parsePlateInventory(
+                    prefs.getString(PreferenceUtil.KEY_BAR_WEIGHT,
+                            WendlerConstants.DEFAULT_BAR_WEIGHT),
+                    prefs.getString(PreferenceUtil.KEY_PLATES, WendlerConstants.DEFAULT_PLATES));
+        } catch (IllegalArgumentException e) {
+            WendlerizedLog.e("Invalid plate inventory", e);
+            return parsePlateInventory(
+                    WendlerConstants.DEFAULT_BAR_WEIGHT, WendlerConstants.DEFAULT_PLATES);
+        }
+    }
+
+    /**
+     * Parse the bar weight and a comma separated list of plates written as pairs x weight.
+     */
+    private static PlateInventory parsePlateInventory(String barWeight, String plates) {
+        String[] values = plates.split(",");
+        double[] weights = new double[values.length];
+        int[] pairs = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            String[] plate = values[i].trim().split("x");
+            if (plate.length != 2) {
+                throw new IllegalArgumentException("Invalid plate: " + values[i]);
+            }
+            pairs[i] = Integer.parseInt(plate[0].trim());
+            weights[i] = Double.parseDouble(plate[1].trim());
+        }
+        return new PlateInventory(Double.parseDouble(barWeight.trim()), weights, pairs);
+    }
+
+    /**
+     * Parse a comma separated list of numbers, the default if the stored value is invalid.
+     */
+    private static int[] parseInts(SharedPreferences prefs, String key, String defaultValue) {
+        try {
+            return parseInts(prefs.getString(key, defaultValue));
+        } catch (NumberFormatException e) {
+            WendlerizedLog.e("Invalid value for " + key, e);
+            return parseInts(defaultValue);
+        }
+    }
+
+    /**
+     * Parse a comma separated list of numbers.
+     */
+    private static int[] parseInts(String value) {
+        String[] values = value.split(",");
+        int[] ints = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            ints[i] = Integer.parseInt(values[i].trim());
+        }
+        return ints;
+    }
+}
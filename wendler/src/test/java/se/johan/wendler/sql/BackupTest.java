@@ -0,0 +1,76 @@
+package se.johan.wendler.sql;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+import se.johan.wendler.BuildConfig;
+import se.johan.wendler.util.Constants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a backup holds every commit on its own, without the write-ahead log.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class BackupTest {
+
+    private Context mContext;
+    private SqlHandler mHandler;
+    private File mBackup;
+
+    /**
+     * Start from an initialized database.
+     */
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        mHandler = TestData.openInitialized(mContext);
+        mBackup = new File(mContext.getDatabasePath(SqlHandler.DATABASE_NAME).getParentFile(),
+                Constants.WORKOUTS_BACKUP_NAME);
+    }
+
+    /**
+     * Drop the database and the backup.
+     */
+    @After
+    public void tearDown() {
+        mHandler.close();
+        SqlHandler.deleteDatabase(mContext);
+        mBackup.delete();
+    }
+
+    /**
+     * Workouts which are still only in the write-ahead log end up in the backup file.
+     */
+    @Test
+    public void backupHoldsUncheckpointedCommits() {
+        TestData.finishWorkout(mHandler, Constants.EXERCISES[0], 1, 2);
+        TestData.finishWorkout(mHandler, Constants.EXERCISES[1], 1, 0);
+
+        assertTrue(mHandler.backupDbToFile(mBackup));
+        assertFalse(new File(mBackup.getPath() + "-wal").exists());
+
+        SQLiteDatabase backup = SQLiteDatabase.openDatabase(
+                mBackup.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        try {
+            assertEquals(2, DatabaseUtils.longForQuery(backup, SqlHandler.SQL_COUNT_OLD_WORKOUTS,
+                    null));
+        } finally {
+            backup.close();
+        }
+    }
+}
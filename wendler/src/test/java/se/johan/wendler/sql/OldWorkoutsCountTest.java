@@ -0,0 +1,84 @@
+package se.johan.wendler.sql;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import se.johan.wendler.BuildConfig;
+import se.johan.wendler.model.Workout;
+import se.johan.wendler.util.Constants;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the cached number of old workouts follows every committed change.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class OldWorkoutsCountTest {
+
+    private Context mContext;
+    private SqlHandler mHandler;
+
+    /**
+     * Start from an initialized database.
+     */
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        mHandler = TestData.openInitialized(mContext);
+    }
+
+    /**
+     * Drop the database.
+     */
+    @After
+    public void tearDown() {
+        mHandler.close();
+        SqlHandler.deleteDatabase(mContext);
+    }
+
+    /**
+     * The count is read again after a store, a delete, an undo and a purge.
+     */
+    @Test
+    public void countFollowsCommittedChanges() {
+        assertEquals(0, mHandler.getOldWorkoutsCount());
+
+        Workout press = TestData.finishWorkout(mHandler, Constants.EXERCISES[0], 1, 0);
+        TestData.finishWorkout(mHandler, Constants.EXERCISES[1], 1, 0);
+        assertEquals(2, mHandler.getOldWorkoutsCount());
+
+        mHandler.setWorkoutDeleted(press.getWorkoutId(), true);
+        assertEquals(1, mHandler.getOldWorkoutsCount());
+
+        mHandler.setWorkoutDeleted(press.getWorkoutId(), false);
+        assertEquals(2, mHandler.getOldWorkoutsCount());
+
+        mHandler.setWorkoutDeleted(press.getWorkoutId(), true);
+        mHandler.purgeDeletedWorkout(press.getWorkoutId());
+        assertEquals(1, mHandler.getOldWorkoutsCount());
+    }
+
+    /**
+     * A count cached under an older generation is not used once another handler has committed.
+     */
+    @Test
+    public void countIsSharedBetweenHandlers() throws Exception {
+        SqlHandler other = new SqlHandler(mContext);
+        other.open();
+        try {
+            assertEquals(0, other.getOldWorkoutsCount());
+            TestData.finishWorkout(mHandler, Constants.EXERCISES[0], 1, 0);
+            assertEquals(1, other.getOldWorkoutsCount());
+        } finally {
+            other.close();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package se.johan.wendler.sql;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import se.johan.wendler.BuildConfig;
+import se.johan.wendler.util.Constants;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the plans of the current cycles are written by the writes which change them and
+ * never by the reads.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class PlanTest {
+
+    private Context mContext;
+    private SqlHandler mHandler;
+    private SQLiteDatabase mDatabase;
+
+    /**
+     * Open a connection of our own to a newly initialized database.
+     */
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        mHandler = TestData.openInitialized(mContext);
+        mDatabase = SQLiteDatabase.openDatabase(
+                mContext.getDatabasePath(SqlHandler.DATABASE_NAME).getPath(),
+                null,
+                SQLiteDatabase.OPEN_READWRITE);
+    }
+
+    /**
+     * Close both connections and drop the database.
+     */
+    @After
+    public void tearDown() {
+        mDatabase.close();
+        mHandler.close();
+        SqlHandler.deleteDatabase(mContext);
+    }
+
+    /**
+     * A week without a plan is built in memory, loading it leaves the plan table as it was.
+     */
+    @Test
+    public void readsDoNotPlan() {
+        long before = plannedSets();
+
+        mHandler.getWorkoutSummariesForList(1);
+        mHandler.getMainExerciseForWorkout(Constants.EXERCISES[0], 2);
+
+        assertEquals(before, plannedSets());
+    }
+
+    /**
+     * A new one rm plans the current cycle of every exercise, which the reads then return.
+     */
+    @Test
+    public void oneRmUpdatePlansCycles() {
+        mHandler.updateOneRm(60, 150, 100, 130);
+
+        assertEquals(Constants.EXERCISES.length, plannedExercises("one_rm IN (60, 150, 100, 130)"));
+        assertEquals(60, mHandler.getMainExerciseForWorkout(Constants.EXERCISES[0], 1)
+                .getWeight(), 0);
+    }
+
+    /**
+     * A stored workout plans the current cycles with it.
+     */
+    @Test
+    public void storedWorkoutPlansCycles() {
+        TestData.finishWorkout(mHandler, Constants.EXERCISES[0], 1, 0);
+
+        assertEquals(Constants.EXERCISES.length, plannedExercises(null));
+    }
+
+    /**
+     * Return the number of planned sets.
+     */
+    private long plannedSets() {
+        return DatabaseUtils.longForQuery(mDatabase, "SELECT COUNT(*) FROM wendler_plan", null);
+    }
+
+    /**
+     * Return the number of exercises with planned sets matching a selection.
+     */
+    private long plannedExercises(String selection) {
+        return DatabaseUtils.longForQuery(mDatabase,
+                "SELECT COUNT(DISTINCT name) FROM wendler_plan"
+                        + (selection == null ? "" : " WHERE " + selection), null);
+    }
+}
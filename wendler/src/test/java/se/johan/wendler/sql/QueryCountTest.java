@@ -0,0 +1,120 @@
+package se.johan.wendler.sql;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQuery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import se.johan.wendler.BuildConfig;
+import se.johan.wendler.util.Constants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts the queries behind the screens which are loaded often, so a loader which starts
+ * querying per exercise or per workout again fails here.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class QueryCountTest {
+
+    /**
+     * The stats joined with the workouts, the plans, the stored extras and the templates.
+     */
+    private static final int MAX_WEEK_QUERIES = 4;
+
+    private Context mContext;
+    private SqlHandler mHandler;
+    private int mQueries;
+
+    /**
+     * Count every cursor opened on the shared connection.
+     */
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        SqlHandler.sCursorFactory = new SQLiteDatabase.CursorFactory() {
+            @Override
+            public Cursor newCursor(SQLiteDatabase db,
+                                    SQLiteCursorDriver driver,
+                                    String editTable,
+                                    SQLiteQuery query) {
+                mQueries++;
+                return new SQLiteCursor(driver, editTable, query);
+            }
+        };
+        mHandler = TestData.openInitialized(mContext);
+    }
+
+    /**
+     * Drop the database and the counting.
+     */
+    @After
+    public void tearDown() {
+        mHandler.close();
+        SqlHandler.deleteDatabase(mContext);
+        SqlHandler.sCursorFactory = null;
+    }
+
+    /**
+     * A week is loaded with a fixed number of queries, however many of its workouts are done.
+     */
+    @Test
+    public void weekLoadDoesNotQueryPerWorkout() {
+        TestData.finishWorkout(mHandler, Constants.EXERCISES[0], 1, 2);
+        int oneDone = countWeekLoad(1);
+
+        for (int i = 1; i < Constants.EXERCISES.length; i++) {
+            TestData.finishWorkout(mHandler, Constants.EXERCISES[i], 1, 2);
+        }
+        int allDone = countWeekLoad(1);
+
+        assertEquals(oneDone, allDone);
+        assertTrue("Loaded a week with " + allDone + " queries", allDone <= MAX_WEEK_QUERIES);
+    }
+
+    /**
+     * A week with nothing done only needs the stats and the plans.
+     */
+    @Test
+    public void newWeekLoadQueriesStatsAndPlans() {
+        assertEquals(2, countWeekLoad(2));
+    }
+
+    /**
+     * The additional exercises of a workout are stored without querying per exercise.
+     */
+    @Test
+    public void workoutStoreDoesNotQueryPerExtra() {
+        TestData.finishWorkout(mHandler, Constants.EXERCISES[0], 1, 1);
+
+        mQueries = 0;
+        TestData.finishWorkout(mHandler, Constants.EXERCISES[1], 1, 1);
+        int oneExtra = mQueries;
+
+        mQueries = 0;
+        TestData.finishWorkout(mHandler, Constants.EXERCISES[2], 1, 10);
+        assertEquals(oneExtra, mQueries);
+    }
+
+    /**
+     * Return the number of queries of loading a week, once the caches are warm.
+     */
+    private int countWeekLoad(int week) {
+        mHandler.getWorkoutSummariesForList(week);
+        mQueries = 0;
+        mHandler.getWorkoutSummariesForList(week);
+        return mQueries;
+    }
+}
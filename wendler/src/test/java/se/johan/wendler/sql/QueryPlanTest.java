@@ -0,0 +1,147 @@
+package se.johan.wendler.sql;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import se.johan.wendler.BuildConfig;
+import se.johan.wendler.util.Constants;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the query plans of the queries run whenever a week or the history is shown, so a
+ * change of a query or an index which makes them scan the workout or plan tables fails here.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class QueryPlanTest {
+
+    /**
+     * The stats table has one row per exercise and drives the joins, so it may be scanned.
+     */
+    private static final List<String> SCANNABLE = Arrays.asList("s", "wendler_stats");
+
+    private Context mContext;
+    private SqlHandler mHandler;
+    private SQLiteDatabase mDatabase;
+
+    /**
+     * Open a connection of our own to a newly initialized database.
+     */
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        mHandler = TestData.openInitialized(mContext);
+        TestData.finishWorkout(mHandler, Constants.EXERCISES[0], 1, 2);
+        mDatabase = SQLiteDatabase.openDatabase(
+                mContext.getDatabasePath(SqlHandler.DATABASE_NAME).getPath(),
+                null,
+                SQLiteDatabase.OPEN_READWRITE);
+    }
+
+    /**
+     * Close both connections and drop the database.
+     */
+    @After
+    public void tearDown() {
+        mDatabase.close();
+        mHandler.close();
+        SqlHandler.deleteDatabase(mContext);
+    }
+
+    /**
+     * The workouts of a week are found by exercise, cycle and week.
+     */
+    @Test
+    public void weekWorkoutsUseIndex() {
+        assertNoScan(SqlHandler.SQL_WEEK_WORKOUTS);
+        assertNoScan(SqlHandler.SQL_WEEK_WORKOUTS_BY_NAME);
+    }
+
+    /**
+     * The planned sets of a week are found by their primary key.
+     */
+    @Test
+    public void weekPlansUseIndex() {
+        assertNoScan(SqlHandler.SQL_WEEK_PLANS);
+        assertNoScan(SqlHandler.SQL_WEEK_PLANS_BY_NAME);
+    }
+
+    /**
+     * The history pages and its count only visit the done workouts which are not deleted.
+     */
+    @Test
+    public void oldWorkoutsUseIndex() {
+        assertNoScan(SqlHandler.SQL_OLD_WORKOUT_SUMMARIES);
+        assertNoScan(SqlHandler.SQL_OLD_WORKOUT_SUMMARIES_AFTER);
+        assertNoScan(SqlHandler.SQL_OLD_WORKOUT_SUMMARY);
+        assertNoScan(SqlHandler.SQL_OLD_WORKOUT);
+        assertNoScan(SqlHandler.SQL_COUNT_OLD_WORKOUTS);
+    }
+
+    /**
+     * A single workout, deleted or not, is found by its id.
+     */
+    @Test
+    public void workoutByIdUsesIndex() {
+        assertNoScan(SqlHandler.SQL_WORKOUT);
+        assertNoScan(SqlHandler.SQL_DELETED_WORKOUT);
+    }
+
+    /**
+     * Fail if the plan of a query scans any table but the stats.
+     */
+    private void assertNoScan(String sql) {
+        List<String> details = explain(sql);
+        assertTrue("No plan for " + sql, !details.isEmpty());
+        for (String detail : details) {
+            if (!detail.startsWith("SCAN")) {
+                continue;
+            }
+            String[] words = detail.replaceFirst("^SCAN (TABLE )?", "").split(" ");
+            String table = words[0];
+            String alias = words.length > 2 && words[1].equals("AS") ? words[2] : table;
+            if (!SCANNABLE.contains(table) && !SCANNABLE.contains(alias)) {
+                fail(detail + " in " + sql);
+            }
+        }
+    }
+
+    /**
+     * Return the details of the query plan of a query, with every argument set to one.
+     */
+    private List<String> explain(String sql) {
+        int argCount = sql.length() - sql.replace("?", "").length();
+        String[] args = new String[argCount];
+        Arrays.fill(args, "1");
+
+        List<String> details = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = mDatabase.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+            int column = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(column));
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return details;
+    }
+}
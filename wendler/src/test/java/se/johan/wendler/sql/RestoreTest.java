@@ -0,0 +1,78 @@
+package se.johan.wendler.sql;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+import se.johan.wendler.BuildConfig;
+import se.johan.wendler.model.Workout;
+import se.johan.wendler.util.Constants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that every open handler uses the restored database once a backup is restored.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RestoreTest {
+
+    private Context mContext;
+    private SqlHandler mHandler;
+    private SqlHandler mOtherHandler;
+    private File mBackup;
+
+    /**
+     * Start from an initialized database with a second handler open next to the first.
+     */
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        mHandler = TestData.openInitialized(mContext);
+        mOtherHandler = new SqlHandler(mContext);
+        mOtherHandler.open();
+        mBackup = new File(mContext.getDatabasePath(SqlHandler.DATABASE_NAME).getParentFile(),
+                Constants.WORKOUTS_BACKUP_NAME);
+    }
+
+    /**
+     * Drop the database and the backup.
+     */
+    @After
+    public void tearDown() {
+        mOtherHandler.close();
+        mHandler.close();
+        SqlHandler.deleteDatabase(mContext);
+        mBackup.delete();
+    }
+
+    /**
+     * A handler opened before the restore reads the restored workouts, not the replaced ones.
+     */
+    @Test
+    public void openHandlersReadRestoredDatabase() {
+        Workout kept = TestData.finishWorkout(mHandler, Constants.EXERCISES[0], 1, 0);
+        assertTrue(mHandler.backupDbToFile(mBackup));
+        Workout dropped = TestData.finishWorkout(mHandler, Constants.EXERCISES[1], 1, 0);
+        assertEquals(2, mOtherHandler.getOldWorkoutsCount());
+
+        mHandler.restoreDbFromFile(mBackup);
+
+        assertEquals(1, mOtherHandler.getOldWorkoutsCount());
+        assertNotNull(mOtherHandler.getOldWorkout(kept.getWorkoutId()));
+        assertNull(mOtherHandler.getOldWorkout(dropped.getWorkoutId()));
+        TestData.finishWorkout(mOtherHandler, Constants.EXERCISES[2], 1, 0);
+        assertEquals(2, mHandler.getOldWorkoutsCount());
+    }
+}
@@ -0,0 +1,90 @@
+package se.johan.wendler.sql;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+
+import se.johan.wendler.BuildConfig;
+import se.johan.wendler.model.AdditionalExercise;
+import se.johan.wendler.model.ExerciseSet;
+import se.johan.wendler.model.SetType;
+import se.johan.wendler.model.Workout;
+import se.johan.wendler.util.Constants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that a workout is stored with its stats and additional exercises or not at all.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class StoreWorkoutTest {
+
+    private Context mContext;
+    private SqlHandler mHandler;
+
+    /**
+     * Start from an initialized database.
+     */
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        mHandler = TestData.openInitialized(mContext);
+    }
+
+    /**
+     * Drop the database.
+     */
+    @After
+    public void tearDown() {
+        mHandler.close();
+        SqlHandler.deleteDatabase(mContext);
+    }
+
+    /**
+     * A workout is stored with all of its additional exercises.
+     */
+    @Test
+    public void storesExtras() {
+        Workout workout = TestData.finishWorkout(mHandler, Constants.EXERCISES[0], 1, 3);
+        Workout stored = mHandler.getOldWorkout(workout.getWorkoutId());
+        assertEquals(3, stored.getAdditionalExercises().size());
+    }
+
+    /**
+     * An additional exercise which can't be stored rolls back the workout and its stats.
+     */
+    @Test
+    public void failedExtraRollsBackWorkout() {
+        String name = Constants.EXERCISES[0];
+        double oneRm = mHandler.getOneRmForExercise(name);
+
+        ArrayList<AdditionalExercise> extras = TestData.createExtras(2);
+        ArrayList<ExerciseSet> sets = new ArrayList<>();
+        sets.add(new ExerciseSet(SetType.REGULAR, 20, 5, 10, 10, true));
+        extras.add(new AdditionalExercise(null, sets, null, 0, 0, 3, true));
+        Workout workout = TestData.createFinishedWorkout(mHandler, name, 4, extras);
+
+        try {
+            if (mHandler.storeWorkout(workout, true, true, true)) {
+                fail("Stored an additional exercise without a name");
+            }
+        } catch (RuntimeException e) {
+            // The constraint failure of the insert, the transaction is already rolled back
+        }
+
+        assertNull(mHandler.getOldWorkout(workout.getWorkoutId()));
+        assertEquals(0, mHandler.getOldWorkoutsCount());
+        assertEquals(oneRm, mHandler.getOneRmForExercise(name), 0);
+    }
+}
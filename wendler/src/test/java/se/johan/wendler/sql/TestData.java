@@ -0,0 +1,86 @@
+package se.johan.wendler.sql;
+
+import android.content.Context;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.TimeZone;
+
+import se.johan.wendler.core.EpochDay;
+import se.johan.wendler.model.AdditionalExercise;
+import se.johan.wendler.model.ExerciseSet;
+import se.johan.wendler.model.SetType;
+import se.johan.wendler.model.Workout;
+
+/**
+ * Sets up a database the way the first start of the app does and fills it with workouts.
+ */
+final class TestData {
+
+    /**
+     * Private constructor.
+     */
+    private TestData() {
+    }
+
+    /**
+     * Delete any earlier database and return an open handler to a newly initialized one.
+     */
+    static SqlHandler openInitialized(Context context) throws SQLException {
+        SqlHandler.deleteDatabase(context);
+        SqlHandler handler = new SqlHandler(context);
+        handler.open();
+        handler.insertWeekPercentages(new int[]{65, 75, 85}, new int[]{70, 80, 90},
+                new int[]{75, 85, 95}, new int[]{40, 50, 60});
+        handler.insertOneRmAndWorkoutPercentage(50, 140, 90, 120, 90);
+        handler.insertExerciseOrder(1, 2, 3, 4);
+        handler.insertIncrements(2.5, 5, 2.5, 5);
+        return handler;
+    }
+
+    /**
+     * Finish the workout of an exercise in a given week the way the workout screen does, with
+     * a number of additional exercises, and return it.
+     */
+    static Workout finishWorkout(SqlHandler handler, String name, int week, int extras) {
+        Workout workout = createFinishedWorkout(handler, name, week, createExtras(extras));
+        if (!handler.storeWorkout(workout, true, true, extras > 0)) {
+            throw new AssertionError("Could not store " + name);
+        }
+        return workout;
+    }
+
+    /**
+     * Return the won workout of an exercise in a given week with some additional exercises,
+     * without storing it.
+     */
+    static Workout createFinishedWorkout(SqlHandler handler,
+                                         String name,
+                                         int week,
+                                         ArrayList<AdditionalExercise> extras) {
+        Workout workout = handler.getWorkout(-1, week, name);
+        workout.setWorkoutId(handler.getNextWorkoutId());
+        workout.getMainExercise().setLastSetProgress(10);
+
+        long now = System.currentTimeMillis();
+        workout.updateInsertTime(now);
+        workout.updateWorkoutDate(EpochDay.fromMillis(now, TimeZone.getDefault()));
+        workout.setComplete();
+        workout.setIsWon(true);
+        workout.setAdditionalExercises(extras);
+        return workout;
+    }
+
+    /**
+     * Return a number of done additional exercises.
+     */
+    static ArrayList<AdditionalExercise> createExtras(int count) {
+        ArrayList<AdditionalExercise> extras = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ArrayList<ExerciseSet> sets = new ArrayList<>();
+            sets.add(new ExerciseSet(SetType.REGULAR, 20, 5, 10, 10, true));
+            extras.add(new AdditionalExercise("Extra " + i, sets, null, 0, 0, i + 1, true));
+        }
+        return extras;
+    }
+}
@@ -0,0 +1,75 @@
+package se.johan.wendler.sql;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import se.johan.wendler.BuildConfig;
+import se.johan.wendler.util.Constants;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the update of the old workouts to training max goes through them in batches and
+ * converts every workout once.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class UpdateOldWorkoutsTest {
+
+    private Context mContext;
+    private SqlHandler mHandler;
+
+    /**
+     * Start from an initialized database with five done workouts.
+     */
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        mHandler = TestData.openInitialized(mContext);
+        for (int i = 0; i < 5; i++) {
+            TestData.finishWorkout(
+                    mHandler, Constants.EXERCISES[i % Constants.EXERCISES.length], 1, 0);
+        }
+    }
+
+    /**
+     * Drop the database.
+     */
+    @After
+    public void tearDown() {
+        mHandler.close();
+        SqlHandler.deleteDatabase(mContext);
+    }
+
+    /**
+     * Every batch converts at most its size, and the update is done after the last one.
+     */
+    @Test
+    public void updatesInBatches() {
+        assertEquals(5, mHandler.countOldWorkoutsToUpdate());
+
+        assertEquals(3, mHandler.updateOldWorkouts(2));
+        assertEquals(1, mHandler.updateOldWorkouts(2));
+        assertEquals(0, mHandler.updateOldWorkouts(2));
+        assertEquals(0, mHandler.countOldWorkoutsToUpdate());
+    }
+
+    /**
+     * Workouts stored after the update started already use training max and are left out.
+     */
+    @Test
+    public void leavesOutNewWorkouts() {
+        assertEquals(4, mHandler.updateOldWorkouts(1));
+
+        TestData.finishWorkout(mHandler, Constants.EXERCISES[0], 2, 0);
+
+        assertEquals(4, mHandler.countOldWorkoutsToUpdate());
+    }
+}
@@ -0,0 +1,100 @@
+package se.johan.wendler.sql;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import se.johan.wendler.BuildConfig;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that every query of the repository reaches its callback, also when it fails.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class WorkoutRepositoryTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private Context mContext;
+    private SqlHandler mHandler;
+    private WorkoutRepository mRepository;
+
+    /**
+     * Start from an initialized database.
+     */
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        mHandler = TestData.openInitialized(mContext);
+        mRepository = WorkoutRepository.getInstance(mContext);
+    }
+
+    /**
+     * Drop the database.
+     */
+    @After
+    public void tearDown() {
+        mHandler.close();
+        SqlHandler.deleteDatabase(mContext);
+    }
+
+    /**
+     * A failing read and a failing write both deliver null, and the work after them still runs.
+     */
+    @Test
+    public void failedQueriesDeliverNull() throws InterruptedException {
+        WorkoutRepository.Query<Integer> failing = new WorkoutRepository.Query<Integer>() {
+            @Override
+            public Integer run(SqlHandler handler) {
+                throw new SQLiteException("no such table");
+            }
+        };
+        assertNull(await(true, failing));
+        assertNull(await(false, failing));
+
+        assertEquals(Integer.valueOf(0), await(false, new WorkoutRepository.Query<Integer>() {
+            @Override
+            public Integer run(SqlHandler handler) {
+                return handler.getOldWorkoutsCount();
+            }
+        }));
+    }
+
+    /**
+     * Run a query as a write or a read and return what its callback got.
+     */
+    private <T> T await(boolean write, WorkoutRepository.Query<T> query)
+            throws InterruptedException {
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final AtomicReference<T> result = new AtomicReference<>();
+        WorkoutRepository.Callback<T> callback = new WorkoutRepository.Callback<T>() {
+            @Override
+            public void onResult(T value) {
+                result.set(value);
+                delivered.countDown();
+            }
+        };
+        if (write) {
+            mRepository.write(query, callback);
+        } else {
+            mRepository.read(query, callback);
+        }
+        assertTrue("No result delivered", delivered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        return result.get();
+    }
+}
@@ -0,0 +1,64 @@
+package se.johan.wendler.sql;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import se.johan.wendler.BuildConfig;
+import se.johan.wendler.model.Workout;
+import se.johan.wendler.util.Constants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Checks that the changes made to a workout from the store stay out of it until stored.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class WorkoutStoreTest {
+
+    private Context mContext;
+    private SqlHandler mHandler;
+
+    /**
+     * Start from an initialized database and an empty store.
+     */
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        mHandler = TestData.openInitialized(mContext);
+        WorkoutStore.getInstance().evictAll();
+    }
+
+    /**
+     * Drop the database.
+     */
+    @After
+    public void tearDown() {
+        mHandler.close();
+        SqlHandler.deleteDatabase(mContext);
+    }
+
+    /**
+     * Every caller gets its own copy of a cached workout.
+     */
+    @Test
+    public void changesAreNotCached() {
+        Workout stored = TestData.finishWorkout(mHandler, Constants.EXERCISES[0], 1, 1);
+        WorkoutStore store = WorkoutStore.getInstance();
+
+        Workout first = store.get(mHandler, stored.getWorkoutId(), 1, Constants.EXERCISES[0]);
+        first.updateNotes("Not stored");
+        Workout second = store.get(mHandler, stored.getWorkoutId(), 1, Constants.EXERCISES[0]);
+
+        assertNotSame(first, second);
+        assertEquals(stored.getNotes(), second.getNotes());
+    }
+}
@@ -0,0 +1,133 @@
+package se.johan.wendler.util;
+
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.Arrays;
+
+import se.johan.wendler.BuildConfig;
+import se.johan.wendler.model.Workout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a journal is only replayed onto the workout it was recorded for, and that it is
+ * kept small.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SessionJournalTest {
+
+    private static final int WORKOUT_ID = 7;
+
+    private Context mContext;
+
+    /**
+     * Start without any journals.
+     */
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        File directory = new File(mContext.getFilesDir(), "sessions");
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * A journal is replayed onto the same workout in the same cycle.
+     */
+    @Test
+    public void replaysSameCycle() {
+        SessionJournal journal = SessionJournal.open(mContext, createWorkout(1, 1));
+        journal.recordMainProgress(8);
+        journal.flush();
+
+        RecordingReplayer replayer = new RecordingReplayer();
+        SessionJournal.open(mContext, createWorkout(1, 1)).replay(replayer);
+        assertEquals(8, replayer.mMainProgress);
+    }
+
+    /**
+     * A journal with the same file but recorded in another cycle is dropped, not replayed.
+     */
+    @Test
+    public void dropsOtherCycle() {
+        SessionJournal journal = SessionJournal.open(mContext, createWorkout(1, 1));
+        journal.recordMainProgress(8);
+        journal.flush();
+
+        RecordingReplayer replayer = new RecordingReplayer();
+        SessionJournal.open(mContext, createWorkout(2, 2)).replay(replayer);
+        assertEquals(-2, replayer.mMainProgress);
+        assertFalse(new File(new File(mContext.getFilesDir(), "sessions"),
+                "workout-" + WORKOUT_ID + ".journal").exists());
+    }
+
+    /**
+     * A journal written past the compaction size is rewritten with only the last record of
+     * everything, which is what is replayed.
+     */
+    @Test
+    public void compactsToLatestRecords() {
+        char[] text = new char[1000];
+        Arrays.fill(text, 'x');
+        SessionJournal journal = SessionJournal.open(mContext, createWorkout(1, 1));
+        for (int i = 0; i < 100; i++) {
+            journal.recordNotes(i + new String(text));
+        }
+        journal.flush();
+
+        RecordingReplayer replayer = new RecordingReplayer();
+        SessionJournal.open(mContext, createWorkout(1, 1)).replay(replayer);
+        assertEquals(99 + new String(text), replayer.mNotes);
+        assertTrue(new File(new File(mContext.getFilesDir(), "sessions"),
+                "workout-" + WORKOUT_ID + ".journal").length() < 32 * 1024);
+    }
+
+    /**
+     * Return a stored workout with a fixed id in a given cycle.
+     */
+    private static Workout createWorkout(int cycle, int cycleName) {
+        return new Workout("press", "Press", 1, cycle, cycleName, WORKOUT_ID, null);
+    }
+
+    /**
+     * Keeps the replayed reps of the main exercise, -2 if none were replayed.
+     */
+    private static class RecordingReplayer implements SessionJournal.Replayer {
+
+        int mMainProgress = -2;
+        String mNotes;
+
+        @Override
+        public void onMainProgress(int reps) {
+            mMainProgress = reps;
+        }
+
+        @Override
+        public void onExtraProgress(int exerciseId, int progress) {
+        }
+
+        @Override
+        public void onStopwatch(long elapsed, boolean isRunning) {
+        }
+
+        @Override
+        public void onNotes(String notes) {
+            mNotes = notes;
+        }
+    }
+}
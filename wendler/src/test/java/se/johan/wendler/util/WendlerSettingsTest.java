@@ -0,0 +1,87 @@
+package se.johan.wendler.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import se.johan.wendler.BuildConfig;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that a new settings snapshot is only built when a setting it holds changes.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class WendlerSettingsTest {
+
+    private Context mContext;
+    private SharedPreferences mPrefs;
+
+    /**
+     * Start from the default settings.
+     */
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mPrefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        mPrefs.edit().clear().commit();
+        WendlerSettings.invalidate();
+    }
+
+    /**
+     * Drop the changed settings.
+     */
+    @After
+    public void tearDown() {
+        mPrefs.edit().clear().commit();
+        WendlerSettings.invalidate();
+    }
+
+    /**
+     * A preference the snapshot does not read keeps the snapshot.
+     */
+    @Test
+    public void otherKeyKeepsSnapshot() {
+        WendlerSettings settings = WendlerSettings.get(mContext);
+
+        mPrefs.edit().putLong(PreferenceUtil.KEY_TIME_OF_LAST_BACKUP, 1000).commit();
+
+        assertSame(settings, WendlerSettings.get(mContext));
+    }
+
+    /**
+     * Writing the value a setting already has keeps the snapshot.
+     */
+    @Test
+    public void sameValueKeepsSnapshot() {
+        WendlerSettings settings = WendlerSettings.get(mContext);
+
+        mPrefs.edit().putBoolean(PreferenceUtil.KEY_SHOW_PLATE_RECOMMENDATIONS, true).commit();
+
+        assertSame(settings, WendlerSettings.get(mContext));
+    }
+
+    /**
+     * A changed setting builds a new snapshot.
+     */
+    @Test
+    public void changedValueBuildsSnapshot() {
+        WendlerSettings settings = WendlerSettings.get(mContext);
+
+        mPrefs.edit().putBoolean(PreferenceUtil.KEY_SHOW_PLATE_RECOMMENDATIONS, false).commit();
+
+        assertNotSame(settings, WendlerSettings.get(mContext));
+        assertFalse(WendlerSettings.get(mContext).showPlates());
+    }
+}